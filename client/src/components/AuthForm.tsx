@@ -42,6 +42,8 @@ const AuthForm: React.FC<Props> = ({ onLogin }) => {
         if (data.message) throw new Error(data.message);
         if (res.status === 401) throw new Error("Incorrect email or password.");
         if (res.status === 404) throw new Error("Account not found.");
+        if (res.status === 429) throw new Error("Too many failed attempts. Try again later.");
+        if (res.status === 503) throw new Error("The server is busy. Try again in a moment.");
         throw new Error("Authentication failed.");
       }
 
@@ -12,8 +12,10 @@ interface ChatWidgetProps {
 
 const ChatWidget: React.FC<ChatWidgetProps> = ({ roomId, stompClient, connected }) => {
   const [messages, setMessages] = useState<ChatMessage[]>([]);
+  const [olderCursor, setOlderCursor] = useState<string | null>(null);
   const [newMessage, setNewMessage] = useState('');
   const [isOpen, setIsOpen] = useState(false); 
+  const [sendError, setSendError] = useState<string | null>(null);
   const messagesEndRef = useRef<HTMLDivElement>(null);
   
   // Use the new helper method we just added
@@ -21,7 +23,12 @@ const ChatWidget: React.FC<ChatWidgetProps> = ({ roomId, stompClient, connected
 
   useEffect(() => {
     if (roomId) {
-      chatService.getHistory(roomId).then(setMessages).catch(console.error);
+      chatService.getHistory(roomId)
+        .then((page) => {
+          setMessages(page.messages);
+          setOlderCursor(page.nextCursor);
+        })
+        .catch(console.error);
     }
   }, [roomId]);
 
@@ -32,9 +39,14 @@ const ChatWidget: React.FC<ChatWidgetProps> = ({ roomId, stompClient, connected
         const receivedMsg: ChatMessage = JSON.parse(message.body);
         setMessages((prev) => [...prev, receivedMsg]);
       });
+      // Messages the server refused (e.g. sending too fast) are reported to this session only
+      const errors = stompClient.subscribe('/user/queue/errors', (message: IMessage) => {
+        setSendError(JSON.parse(message.body).error);
+      });
 
       return () => {
         subscription.unsubscribe();
+        errors.unsubscribe();
       };
     }
   }, [stompClient, connected, roomId]);
@@ -49,15 +61,23 @@ const ChatWidget: React.FC<ChatWidgetProps> = ({ roomId, stompClient, connected
     if (stompClient && newMessage.trim() && currentUserEmail) {
       stompClient.publish({
         destination: `/app/chat/${roomId}`,
-        body: JSON.stringify({
-          content: newMessage,
-          email: currentUserEmail
-        })
+        body: JSON.stringify({ content: newMessage })
       });
       setNewMessage('');
+      setSendError(null);
     }
   };
 
+  const loadOlder = () => {
+    if (!olderCursor) return;
+    chatService.getHistory(roomId, olderCursor)
+      .then((page) => {
+        setMessages((prev) => [...page.messages, ...prev]);
+        setOlderCursor(page.nextCursor);
+      })
+      .catch(console.error);
+  };
+
   const handleKeyPress = (e: React.KeyboardEvent) => {
     if (e.key === 'Enter') handleSend();
   };
@@ -77,18 +97,22 @@ const ChatWidget: React.FC<ChatWidgetProps> = ({ roomId, stompClient, connected
         <button onClick={() => setIsOpen(false)}>×</button>
       </div>
       <div className="chat-messages">
+        {olderCursor && (
+          <button className="chat-load-older" onClick={loadOlder}>Load earlier messages</button>
+        )}
         {messages.map((msg) => {
           // Compare emails safely
-          const isMe = msg.sender.email === currentUserEmail;
+          const isMe = msg.senderEmail === currentUserEmail;
           return (
             <div key={msg.id} className={`message-bubble ${isMe ? 'my-message' : 'other-message'}`}>
-              {!isMe && <div className="message-sender">{msg.sender.email}</div>}
+              {!isMe && <div className="message-sender">{msg.senderEmail}</div>}
               <div className="message-text">{msg.content}</div>
             </div>
           );
         })}
         <div ref={messagesEndRef} />
       </div>
+      {sendError && <div className="chat-error">{sendError}</div>}
       <div className="chat-input-area">
         <input 
           type="text" 
@@ -1,4 +1,4 @@
-import React, { useState, useEffect } from 'react';
+import React, { useState, useEffect, useRef } from 'react';
 import { Client, type IMessage } from '@stomp/stompjs';
 import SockJS from 'sockjs-client';
 import { API_BASE_URL } from '../config';
@@ -14,6 +14,8 @@ import ChatWidget from './ChatWidget';
 // Hooks & Services
 import { useThoughts } from '../hooks/useThoughts';
 import { userService } from '../services/userService';
+import { thoughtService } from '../services/thoughtService';
+import type { RoomEvents } from '../services/thoughtService';
 
 // Styles
 import './Dashboard.css';
@@ -40,7 +42,8 @@ const Dashboard: React.FC<DashboardProps> = ({ showToast }) => {
     thoughts,
     loading,
     error,
-    refresh,
+    applyEvent,
+    catchUp,
     addThought,
     removeThought,
     editThought,
@@ -53,37 +56,55 @@ const Dashboard: React.FC<DashboardProps> = ({ showToast }) => {
     totalPages
   } = useThoughts("All", currentRoomId);
 
+  // Add the tags already used on this board to the choices
+  useEffect(() => {
+    let cancelled = false;
+    thoughtService.facets(currentRoomId)
+      .then(facets => {
+        if (cancelled) return;
+        setAvailableTags(prev => [...prev, ...facets.map(f => f.tag).filter(t => !prev.includes(t))]);
+      })
+      .catch(() => { /* keep the defaults */ });
+    return () => { cancelled = true; };
+  }, [currentRoomId]);
+
   useEffect(() => {
     const socket = new SockJS(`${API_BASE_URL}/ws`);
     const client = new Client({
       webSocketFactory: () => socket,
       reconnectDelay: 5000,
-      onConnect: () => {
-        setConnected(true);
-        if (currentRoomId) subscribeToRoom(client, currentRoomId);
-      },
+      onConnect: () => setConnected(true),
       onDisconnect: () => setConnected(false),
     });
+    // The server takes the user from this token, read again on every reconnect
+    client.beforeConnect = () => {
+      const token = localStorage.getItem("token");
+      client.connectHeaders = token ? { Authorization: `Bearer ${token}` } : {};
+    };
 
     client.activate();
     setStompClient(client);
     return () => { client.deactivate(); };
   }, []);
 
+  // The subscription outlives renders, so it calls the latest applyEvent through a ref
+  const applyEventRef = useRef(applyEvent);
+  const catchUpRef = useRef(catchUp);
   useEffect(() => {
-    if (stompClient && connected && currentRoomId) {
-      subscribeToRoom(stompClient, currentRoomId);
-    }
-  }, [currentRoomId, stompClient, connected]);
+    applyEventRef.current = applyEvent;
+    catchUpRef.current = catchUp;
+  });
 
-  const subscribeToRoom = (client: Client, roomId: number) => {
-    client.subscribe(`/topic/room/${roomId}`, (message: IMessage) => {
-      if (message.body === 'UPDATE') {
-        refresh();
-        showToast('Board updated', 'success'); // This now uses the prop
-      }
+  useEffect(() => {
+    if (!stompClient || !connected || !currentRoomId) return;
+    const subscription = stompClient.subscribe(`/topic/room/${currentRoomId}/events`, (message: IMessage) => {
+      const batch = JSON.parse(message.body) as RoomEvents;
+      batch.events.forEach(event => applyEventRef.current(event, batch.node));
     });
-  };
+    // Events sent while we were not subscribed (reconnects) are only in the change log
+    catchUpRef.current();
+    return () => subscription.unsubscribe();
+  }, [currentRoomId, stompClient, connected]);
 
   // 4. Removed local showToast function definition
 
@@ -113,7 +113,10 @@ const UserProfileView: React.FC<Props> = ({ onLogout }) => {
                 }}
               >
                 <span>
-                  {r.name} <small>({r.code})</small>
+                  {r.name} <small>({r.code})</small>{" "}
+                  <small style={{ opacity: 0.6 }}>
+                    {r.memberCount} {r.memberCount === 1 ? "member" : "members"}
+                  </small>
                 </span>
                 <div>
                   <button
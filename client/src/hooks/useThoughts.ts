@@ -1,10 +1,22 @@
-import { useState, useCallback, useEffect } from "react";
+import { useState, useCallback, useEffect, useRef } from "react";
 import {
   thoughtService,
   type Thought,
+  type ThoughtEvent,
   type User,
 } from "../services/thoughtService";
 
+const PAGE_SIZE = 20;
+
+// Same order as the server's board query: open first, due date (none first),
+// pinned first, newest first
+const boardOrder = (a: Thought, b: Thought) =>
+  Number(a.completed) - Number(b.completed) ||
+  (a.dueDate ?? "").localeCompare(b.dueDate ?? "") ||
+  Number(b.pinned) - Number(a.pinned) ||
+  (b.createdAt ?? "").localeCompare(a.createdAt ?? "") ||
+  b.id - a.id;
+
 export const useThoughts = (initialFilter: string = "All", roomId?: number) => {
   const [thoughts, setThoughts] = useState<Thought[]>([]);
   const [loading, setLoading] = useState(true);
@@ -12,11 +24,16 @@ export const useThoughts = (initialFilter: string = "All", roomId?: number) => {
   const [page, setPage] = useState(0);
   const [totalPages, setTotalPages] = useState(0);
   const [filter, setFilter] = useState(initialFilter);
+  const lastVersion = useRef(new Map<number, number>()); // server node -> last version
+  const syncVersion = useRef<number | null>(null); // board version the visible page is known to include
 
   const fetchThoughts = useCallback(
     async (currPage: number, currFilter: string, currRoomId?: number) => {
       setLoading(true);
       try {
+        // Taken before the page, so catching up from it can only repeat changes, never miss one
+        const { version } = await thoughtService.changes(currRoomId);
+        syncVersion.current = version;
         const data = await thoughtService.getAll(
           currPage,
           currFilter,
@@ -39,6 +56,58 @@ export const useThoughts = (initialFilter: string = "All", roomId?: number) => {
     fetchThoughts(page, filter, roomId);
   }, [page, filter, roomId, fetchThoughts]);
 
+  useEffect(() => {
+    lastVersion.current.clear();
+  }, [roomId]);
+
+  const patch = (id: number, changed: Thought | null, insert: boolean) => {
+    const matchesFilter = (t: Thought) => filter === "All" || t.tag === filter;
+    setThoughts((prev) => {
+      const rest = prev.filter((t) => t.id !== id);
+      if (!changed || !matchesFilter(changed)) return rest;
+      // New thoughts only show up on the first page; updates only where they already are
+      if (rest.length === prev.length && (!insert || page !== 0)) return prev;
+      return [...rest, changed].sort(boardOrder).slice(0, PAGE_SIZE);
+    });
+  };
+
+  // Apply what changed on the board since the last sync (after a missed event or a reconnect)
+  const catchUp = async () => {
+    let since = syncVersion.current;
+    if (since === null) return;
+    try {
+      let changes;
+      do {
+        changes = await thoughtService.changes(roomId, since);
+        if (changes.reset) {
+          fetchThoughts(page, filter, roomId);
+          return;
+        }
+        changes.changed.forEach((t) => patch(t.id, t, true));
+        changes.deleted.forEach((id) => patch(id, null, false));
+        since = changes.version;
+        syncVersion.current = since;
+      } while (changes.hasMore);
+    } catch {
+      fetchThoughts(page, filter, roomId);
+    }
+  };
+
+  // Patch the visible page from a room event instead of refetching it
+  const applyEvent = (event: ThoughtEvent, node: number = 0) => {
+    if (event.roomId !== roomId) return;
+    const last = lastVersion.current.get(node);
+    const expected = last === undefined ? event.version : last + 1;
+    lastVersion.current.set(node, event.version);
+    if (event.version !== expected) {
+      // Missed an event (or the server restarted): fetch what changed since the last sync
+      catchUp();
+      return;
+    }
+
+    patch(event.thoughtId, event.type === "DELETED" ? null : event.thought, event.type === "CREATED");
+  };
+
   const addThought = async (content: string, tag: string, dueDate?: string) => {
     try {
       await thoughtService.create(content, tag, roomId, dueDate);
@@ -116,5 +185,7 @@ export const useThoughts = (initialFilter: string = "All", roomId?: number) => {
     totalPages,
     setFilter,
     refresh: () => fetchThoughts(page, filter, roomId),
+    applyEvent,
+    catchUp,
   };
 };
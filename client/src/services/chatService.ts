@@ -2,20 +2,23 @@ import { API_BASE_URL } from "../config";
 
 export interface ChatMessage {
   id: number;
+  senderEmail: string;
   content: string;
-  sender: {
-    id: number;
-    username: string;
-    email: string;
-  };
   timestamp: string;
 }
 
+export interface ChatHistoryPage {
+  messages: ChatMessage[]; // oldest first
+  nextCursor: string | null; // pass as `before` to load older messages
+}
+
 export const chatService = {
-  getHistory: async (roomId: string): Promise<ChatMessage[]> => {
+  getHistory: async (roomId: string, before?: string | null): Promise<ChatHistoryPage> => {
     const token = localStorage.getItem("token");
+    const params = new URLSearchParams({ limit: "50" });
+    if (before) params.append("before", before);
     const response = await fetch(
-      `${API_BASE_URL}/api/rooms/${roomId}/messages`,
+      `${API_BASE_URL}/api/rooms/${roomId}/messages?${params.toString()}`,
       {
         headers: {
           Authorization: `Bearer ${token}`,
@@ -27,6 +27,8 @@ export interface Thought {
   pinned: boolean;
   completed: boolean;
   assignedTo?: User | null;
+  roomId?: number | null; // null on the personal board
+  changeVersion?: number; // board version of its last change
 }
 
 export interface PageResponse<T> {
@@ -37,6 +39,74 @@ export interface PageResponse<T> {
   size: number;
 }
 
+export interface CursorPage<T> {
+  content: T[];
+  nextCursor: string | null;
+  hasMore: boolean;
+  totalElements: number | null;
+}
+
+// version goes up by one per event in a room
+export interface ThoughtEvent {
+  type: "CREATED" | "UPDATED" | "DELETED";
+  roomId: number;
+  version: number;
+  thoughtId: number;
+  thought: Thought | null; // null for DELETED
+}
+
+// One message on /topic/room/{roomId}/events: a room's events from one coalescing window
+export interface RoomEvents {
+  roomId: number;
+  node: number; // versions are counted per server node
+  events: ThoughtEvent[];
+}
+
+// GET /api/thoughts/changes: pass version back as `since`; reset means reload the board
+export interface BoardChanges {
+  version: number;
+  reset: boolean;
+  hasMore: boolean;
+  changed: Thought[];
+  deleted: number[];
+}
+
+// Items of POST /api/thoughts/batch. UPDATE replaces pinned/completed/dueDate/assignedTo like PUT does
+export interface ThoughtBatchOp {
+  op: "CREATE" | "UPDATE" | "DELETE";
+  id?: number;
+  roomId?: number;
+  content?: string;
+  tag?: string;
+  pinned?: boolean;
+  completed?: boolean;
+  dueDate?: string;
+  assignedTo?: number | null; // user id
+}
+
+export interface ThoughtBatchResult {
+  index: number;
+  status: number; // HTTP status of this operation
+  id: number | null;
+  error: string | null;
+  thought: Thought | null;
+}
+
+export interface SearchHit {
+  kind: "THOUGHT" | "CHAT";
+  id: number;
+  roomId: number | null;
+  preview: string;
+  score: number;
+}
+
+export interface SearchPage {
+  hits: SearchHit[];
+  page: number;
+  size: number;
+  totalHits: number;
+}
+
 const API_BASE = `${API_BASE_URL}/api`;
 
 const getHeaders = () => {
@@ -64,6 +134,24 @@ export const thoughtService = {
     return response.json();
   },
 
+  // Keyset pagination: pass the previous page's nextCursor to continue
+  scroll: async (
+    cursor?: string | null,
+    tag: string = "All",
+    roomId?: number,
+  ): Promise<CursorPage<Thought>> => {
+    const params = new URLSearchParams({ size: "20" });
+    if (cursor) params.append("cursor", cursor);
+    if (tag && tag !== "All") params.append("tag", tag);
+    if (roomId) params.append("roomId", roomId.toString());
+
+    const response = await fetch(`${API_BASE}/thoughts/scroll?${params.toString()}`, {
+      headers: getHeaders(),
+    });
+    if (!response.ok) throw new Error("Failed to fetch thoughts");
+    return response.json();
+  },
+
   create: async (
     content: string,
     tag: string,
@@ -100,14 +188,72 @@ export const thoughtService = {
   migrateTag: async (
     oldTag: string,
     newTag: string = "General",
+    roomId?: number,
   ): Promise<void> => {
     const params = new URLSearchParams({ oldTag, newTag });
+    if (roomId) params.append("roomId", roomId.toString());
     const response = await fetch(
       `${API_BASE}/thoughts/tags/migrate?${params.toString()}`,
       { method: "PUT", headers: getHeaders() },
     );
     if (!response.ok) throw new Error("Failed to migrate tags");
   },
+
+  // Without `since` only the board's current version comes back
+  changes: async (roomId?: number, since?: number): Promise<BoardChanges> => {
+    const params = new URLSearchParams();
+    if (roomId) params.append("roomId", roomId.toString());
+    if (since !== undefined) params.append("since", since.toString());
+    const response = await fetch(
+      `${API_BASE}/thoughts/changes?${params.toString()}`,
+      { headers: getHeaders() },
+    );
+    if (!response.ok) throw new Error("Failed to fetch changes");
+    return response.json();
+  },
+
+  // Several creates/updates/deletes in one request; one result per operation, in order
+  batch: async (operations: ThoughtBatchOp[]): Promise<ThoughtBatchResult[]> => {
+    const response = await fetch(`${API_BASE}/thoughts/batch`, {
+      method: "POST",
+      headers: getHeaders(),
+      body: JSON.stringify(operations),
+    });
+    if (!response.ok) throw new Error("Failed to apply changes");
+    return response.json();
+  },
+
+  // Tags in use on a board, with how many open and completed thoughts carry each
+  facets: async (roomId?: number): Promise<TagFacet[]> => {
+    const params = new URLSearchParams();
+    if (roomId) params.append("roomId", roomId.toString());
+    const response = await fetch(
+      `${API_BASE}/thoughts/tags/facets?${params.toString()}`,
+      { headers: getHeaders() },
+    );
+    if (!response.ok) throw new Error("Failed to fetch tags");
+    return response.json();
+  },
+};
+
+export interface TagFacet {
+  tag: string;
+  open: number;
+  completed: number;
+}
+
+export const searchService = {
+  // Ranked full-text search over thoughts and chat on the personal board and joined rooms
+  search: async (q: string, roomId?: number, page: number = 0): Promise<SearchPage> => {
+    const params = new URLSearchParams({ q, page: page.toString(), size: "20" });
+    if (roomId) params.append("roomId", roomId.toString());
+
+    const response = await fetch(`${API_BASE}/search?${params.toString()}`, {
+      headers: getHeaders(),
+    });
+    if (!response.ok) throw new Error("Search failed");
+    return response.json();
+  },
 };
 
 export const roomService = {
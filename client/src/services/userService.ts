@@ -1,5 +1,12 @@
 import { API_BASE_URL } from "../config";
-import type { Room } from "./thoughtService";
+
+export interface RoomSummary {
+  id: number;
+  name: string;
+  code: string;
+  ownerId: number;
+  memberCount: number;
+}
 
 export interface AssignedTask {
   id: number;
@@ -10,8 +17,8 @@ export interface AssignedTask {
 
 export interface UserProfile {
   email: string;
-  ownedRooms: Room[];
-  joinedRooms: Room[];
+  ownedRooms: RoomSummary[];
+  joinedRooms: RoomSummary[];
   assignedTasks: AssignedTask[];
 }
 
@@ -0,0 +1,79 @@
+package com.nyad.thought_wall.archive;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * MySQL named locks (GET_LOCK) that keep archive writers apart on every node sharing the
+ * database: one for an archival pass, and one per room for anything that writes or deletes
+ * the room's segments. A lock belongs to the connection that took it, so that connection is
+ * held for as long as the work runs; the work itself uses connections of its own.
+ */
+@Component
+class ArchiveLocks {
+
+    private static final String PASS = "thought_wall.chat-archive";
+    private static final String ROOM = "thought_wall.chat-archive.room.";
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    interface Work {
+        void run() throws IOException;
+    }
+
+    /** Runs the pass unless another node is running one; returns false if it did not run. */
+    boolean pass(Work work) throws IOException {
+        return locked(PASS, Duration.ZERO, work);
+    }
+
+    /** Runs the work once nothing else is writing the room's segments; false if that took longer than wait. */
+    boolean room(long roomId, Duration wait, Work work) throws IOException {
+        return locked(ROOM + roomId, wait, work);
+    }
+
+    private boolean locked(String name, Duration wait, Work work) throws IOException {
+        try {
+            return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+                if (!acquire(connection, name, wait)) return false;
+                try {
+                    work.run();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    release(connection, name);
+                }
+                return true;
+            }));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // GET_LOCK answers 1 when taken, 0 on timeout
+    private static boolean acquire(Connection connection, String name, Duration wait) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            statement.setString(1, name);
+            statement.setLong(2, wait.toSeconds());
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    private static void release(Connection connection, String name) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            statement.setString(1, name);
+            statement.executeQuery().close();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.nyad.thought_wall.archive;
+
+import com.nyad.thought_wall.repository.ChatCursor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A chat message as stored in a {@link ChatSegment}. The sender is kept by id; its email is
+ * looked up when the message is served, as the history query does with its join.
+ */
+public record ArchivedMessage(long id, LocalDateTime timestamp, Long senderId, String content) {
+
+    public ChatCursor key() {
+        return new ChatCursor(timestamp, id);
+    }
+}
@@ -0,0 +1,340 @@
+package com.nyad.thought_wall.archive;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.nyad.thought_wall.dto.ChatMessageView;
+import com.nyad.thought_wall.repository.ChatCursor;
+import com.nyad.thought_wall.repository.UserRepository;
+import com.nyad.thought_wall.util.TimeOrderedIdGenerator;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Archived chat on disk: one directory per room under app.chat.archive.dir, holding
+ * {@link ChatSegment} files named {@code <slot>-<write id>.seg}. The slot is the id of the
+ * segment's first message when it was archived; a rewrite (an account deletion taking its
+ * messages out) keeps the slot and gets a newer write id, and readers take the newest file of
+ * each slot, so a rewrite interrupted halfway never shows a message twice.
+ *
+ * Files are never changed in place: each one appears by an atomic rename after it has been
+ * synced and read back in full. A room's segments cover disjoint ranges that follow each other,
+ * which is what lets history continue from chat_messages into the archive with the same cursor.
+ * Whatever writes or deletes a room's segments (the archiver, a rewrite, a room deletion) holds
+ * the room's {@link ArchiveLocks} lock, on whichever node it runs.
+ *
+ * Without app.chat.archive.dir there is no archive: reads find nothing and deletions have
+ * nothing to remove.
+ */
+@Service
+public class ChatArchive {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatArchive.class);
+
+    private static final String SUFFIX = ".seg";
+    private static final String TEMP_PREFIX = ".tmp-";
+
+    @Autowired private UserRepository userRepository;
+    @Autowired private TimeOrderedIdGenerator idGenerator;
+    @Autowired private ArchiveLocks locks;
+
+    // No default: it has to be the same shared directory on every node
+    @Value("${app.chat.archive.dir:}")
+    private String dirSetting;
+
+    @Value("${app.chat.archive.block-size:256}")
+    private int blockSize;
+
+    @Value("${app.chat.archive.open-rooms:1000}")
+    private int openRooms;
+
+    @Value("${app.chat.archive.refresh:1m}")
+    private Duration refresh;
+
+    // How long a deletion waits for the archiver (or another deletion) to finish with a room
+    @Value("${app.chat.archive.lock-wait:2m}")
+    private Duration lockWait;
+
+    private Path dir;
+    // room id -> its segments, oldest first. Our own writes invalidate; other nodes' show up within refresh
+    private LoadingCache<Long, List<ChatSegment>> rooms;
+    private final Object writeLock = new Object();
+
+    private final LongAdder served = new LongAdder();
+    private final LongAdder corrupt = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        dir = dirSetting.isBlank() ? null : Path.of(dirSetting);
+        rooms = Caffeine.newBuilder().maximumSize(openRooms).expireAfterWrite(refresh).build(this::load);
+    }
+
+    public boolean configured() { return dir != null; }
+
+    public long servedCount() { return served.sum(); }
+    public long corruptCount() { return corrupt.sum(); }
+
+    /**
+     * Up to limit archived messages of the room older than before (the newest ones if before is
+     * null), newest first, as the history query returns them. A damaged segment is skipped.
+     */
+    public List<ChatMessageView> latestBefore(long roomId, ChatCursor before, int limit) {
+        List<ChatSegment> segments = rooms.get(roomId);
+        List<ArchivedMessage> found = new ArrayList<>();
+        for (int i = segments.size() - 1; i >= 0 && found.size() < limit; i--) {
+            ChatSegment segment = segments.get(i);
+            if (before != null && segment.firstKey().compareTo(before) >= 0) continue;
+            try {
+                found.addAll(segment.latestBefore(before, limit - found.size()));
+            } catch (IOException e) {
+                damaged(segment.file(), e);
+            }
+        }
+        if (found.isEmpty()) return List.of();
+        served.add(found.size());
+
+        Set<Long> senderIds = found.stream().map(ArchivedMessage::senderId).filter(Objects::nonNull).collect(Collectors.toSet());
+        Map<Long, String> emails = new HashMap<>();
+        userRepository.findAllById(senderIds).forEach(u -> emails.put(u.getId(), u.getEmail()));
+        return found.stream()
+                .map(m -> new ChatMessageView(m.id(), emails.get(m.senderId()), m.content(), m.timestamp()))
+                .toList();
+    }
+
+    /** Key of the newest archived message of the room, or null if nothing is archived. */
+    public ChatCursor lastKey(long roomId) {
+        List<ChatSegment> segments = rooms.get(roomId);
+        return segments.isEmpty() ? null : segments.get(segments.size() - 1).lastKey();
+    }
+
+    /** Starts a new segment for the room; hand it to {@link #commit} or abort it. Hold the room's lock until then. */
+    public ChatSegment.Writer begin(long roomId) throws IOException {
+        Path roomDir = Files.createDirectories(roomDir(roomId));
+        return ChatSegment.writer(roomDir.resolve(TEMP_PREFIX + idGenerator.nextId()), roomId, blockSize);
+    }
+
+    /**
+     * Finishes the writer and, once the file reads back intact, makes it part of the room's
+     * archive. Only after this returns may the archived rows be deleted.
+     */
+    public void commit(ChatSegment.Writer writer) throws IOException {
+        install(writer, -1);
+    }
+
+    /** Deletes the room's archive; returns how many messages it held. */
+    public long deleteRoom(long roomId) {
+        if (dir == null) return 0;
+        Path roomDir = roomDir(roomId);
+        long[] messages = {0};
+        inRoom(roomId, () -> {
+            synchronized (writeLock) {
+                if (Files.isDirectory(roomDir)) {
+                    messages[0] = load(roomId).stream().mapToLong(ChatSegment::messageCount).sum();
+                    try (Stream<Path> files = Files.list(roomDir)) {
+                        for (Path file : files.toList()) Files.delete(file);
+                        Files.delete(roomDir);
+                    }
+                }
+                rooms.invalidate(roomId);
+            }
+        });
+        return messages[0];
+    }
+
+    /**
+     * Takes the sender's messages out of every segment that has any (each segment lists its
+     * senders, so the others are not read). Returns how many messages were removed.
+     */
+    public long removeSender(long senderId) {
+        long[] removed = {0};
+        for (long roomId : roomIds()) {
+            // Listed under the lock, so a segment the archiver commits meanwhile is not missed
+            inRoom(roomId, () -> {
+                for (ChatSegment segment : load(roomId)) {
+                    if (segment.hasSender(senderId)) removed[0] += rewriteWithout(segment, senderId);
+                }
+            });
+        }
+        return removed[0];
+    }
+
+    /** Every archived message with its room, for rebuilding the search index. */
+    public void forEach(BiConsumer<Long, ArchivedMessage> action) {
+        for (long roomId : roomIds()) {
+            for (ChatSegment segment : load(roomId)) {
+                try {
+                    segment.forEach(message -> action.accept(roomId, message));
+                } catch (IOException e) {
+                    damaged(segment.file(), e);
+                }
+            }
+        }
+    }
+
+    // Holds the room's lock for the work; fails if the room stays busy for longer than lock-wait
+    private void inRoom(long roomId, ArchiveLocks.Work work) {
+        try {
+            if (!locks.room(roomId, lockWait, work)) {
+                throw new IllegalStateException("Chat archive of room " + roomId + " is busy, try again later");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Caller holds the room's lock
+    private long rewriteWithout(ChatSegment segment, long senderId) throws IOException {
+        ChatSegment.Writer writer = begin(segment.roomId());
+        long[] removed = {0};
+        try {
+            segment.forEach(message -> {
+                if (message.senderId() != null && message.senderId() == senderId) {
+                    removed[0]++;
+                    return;
+                }
+                try {
+                    writer.add(message);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            writer.abort();
+            throw e;
+        }
+
+        if (writer.count() > 0) {
+            install(writer, slot(segment.file()));
+        } else {
+            writer.abort();
+        }
+        synchronized (writeLock) {
+            Files.deleteIfExists(segment.file());
+            rooms.invalidate(segment.roomId());
+        }
+        return removed[0];
+    }
+
+    // slot -1: a new segment, whose slot is its first message id
+    private void install(ChatSegment.Writer writer, long slot) throws IOException {
+        Path file = writer.file();
+        try {
+            writer.finish();
+            ChatSegment written = ChatSegment.open(file);
+            written.verify();
+            long target = slot < 0 ? written.firstKey().id() : slot;
+            synchronized (writeLock) {
+                Files.move(file, file.resolveSibling(target + "-" + idGenerator.nextId() + SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+                syncDirectory(file.getParent());
+                rooms.invalidate(written.roomId());
+            }
+        } catch (IOException | RuntimeException e) {
+            writer.abort();
+            throw e;
+        }
+    }
+
+    private List<ChatSegment> load(long roomId) {
+        if (dir == null) return List.of();
+        Path roomDir = roomDir(roomId);
+        if (!Files.isDirectory(roomDir)) return List.of();
+        List<ChatSegment> segments = new ArrayList<>();
+        for (Path file : newestPerSlot(roomDir)) {
+            try {
+                ChatSegment segment = ChatSegment.open(file);
+                if (segment.roomId() != roomId) {
+                    throw new ChatSegment.CorruptSegmentException(file, "belongs to room " + segment.roomId());
+                }
+                segments.add(segment);
+            } catch (IOException e) {
+                damaged(file, e);
+            }
+        }
+        segments.sort(Comparator.comparing(ChatSegment::firstKey));
+        return List.copyOf(segments);
+    }
+
+    private static List<Path> newestPerSlot(Path roomDir) {
+        Map<Long, Path> newest = new HashMap<>();
+        Map<Long, Long> writeIds = new HashMap<>();
+        try (Stream<Path> files = Files.list(roomDir)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                int dash = name.indexOf('-');
+                if (!name.endsWith(SUFFIX) || dash < 1) continue;
+                try {
+                    long slot = Long.parseLong(name.substring(0, dash));
+                    long writeId = Long.parseLong(name.substring(dash + 1, name.length() - SUFFIX.length()));
+                    if (writeId > writeIds.getOrDefault(slot, Long.MIN_VALUE)) {
+                        writeIds.put(slot, writeId);
+                        newest.put(slot, file);
+                    }
+                } catch (NumberFormatException ignored) {
+                    // Not ours
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new ArrayList<>(newest.values());
+    }
+
+    private static long slot(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.indexOf('-')));
+    }
+
+    private List<Long> roomIds() {
+        if (dir == null || !Files.isDirectory(dir)) return List.of();
+        try (Stream<Path> dirs = Files.list(dir)) {
+            return dirs.filter(Files::isDirectory)
+                    .map(d -> d.getFileName().toString())
+                    .filter(name -> name.chars().allMatch(Character::isDigit))
+                    .map(Long::parseLong)
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path roomDir(long roomId) {
+        return dir.resolve(Long.toString(roomId));
+    }
+
+    private void damaged(Path file, IOException e) {
+        if (e instanceof ChatSegment.CorruptSegmentException) corrupt.increment();
+        log.error("Skipping chat segment {}: {}", file, e.getMessage());
+    }
+
+    // Makes the rename itself durable. Opening a directory only works on Linux and the like; elsewhere skip it
+    private static void syncDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+            // Best effort
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.nyad.thought_wall.archive;
+
+import com.nyad.thought_wall.repository.ChatCursor;
+import com.nyad.thought_wall.util.SqlIdentifiers;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Moves chat older than app.chat.archive.max-age out of chat_messages into the rooms' segment
+ * files ({@link ChatArchive}), so the table only holds the recent window most reads ask for.
+ *
+ * Room by room, old messages are read oldest first in chunks and written to a new segment of up
+ * to segment-size messages. Rows are deleted only once the segment is committed; if the job
+ * stops in between, the next run deletes them before archiving anything else, so nothing ends
+ * up archived twice.
+ *
+ * Off by default, and when on it needs app.chat.archive.dir (storage every node shares). Each
+ * pass holds a cluster-wide lock ({@link ArchiveLocks}), so nodes that all have it enabled take
+ * turns, and each room is archived under the room's lock, which account deletions rewriting its
+ * segments take as well. A room that is busy is left for the next pass.
+ */
+@Service
+public class ChatArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatArchiver.class);
+
+    private static final RowMapper<ArchivedMessage> ROW = (rs, i) -> new ArchivedMessage(
+            rs.getLong(1), rs.getTimestamp(2).toLocalDateTime(), rs.getObject(3, Long.class), rs.getString(4));
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private ChatArchive archive;
+    @Autowired private ArchiveLocks locks;
+
+    @Value("${app.chat.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.chat.archive.max-age:90d}")
+    private Duration maxAge;
+
+    @Value("${app.chat.archive.interval:6h}")
+    private Duration interval;
+
+    @Value("${app.chat.archive.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${app.chat.archive.segment-size:100000}")
+    private int segmentSize;
+
+    private ScheduledExecutorService scheduler;
+    private final LongAdder archived = new LongAdder();
+
+    // chat_messages.timestamp needs quoting on H2 (SqlIdentifiers)
+    private String older;
+    private String timestamp;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) return;
+        if (!archive.configured()) {
+            throw new IllegalStateException("app.chat.archive.dir must be set (to storage every node shares) when app.chat.archive.enabled=true");
+        }
+        timestamp = SqlIdentifiers.quote(jdbcTemplate, "timestamp");
+        older = "SELECT id, " + timestamp + ", sender_id, content FROM chat_messages WHERE room_id = ? AND " + timestamp + " < ?";
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("chat-archiver").daemon().factory());
+        scheduler.scheduleWithFixedDelay(this::archiveSafely, 1, interval.toMinutes(), TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    public long archivedCount() { return archived.sum(); }
+
+    private void archiveSafely() {
+        try {
+            archive();
+        } catch (RuntimeException e) {
+            // An exception would cancel the scheduled task for good
+            log.warn("Chat archival failed: {}", e.getMessage());
+        }
+    }
+
+    /** One pass over all rooms; returns how many messages were moved (0 if another node is running one). */
+    public long archive() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minus(maxAge));
+        long[] moved = {0};
+        try {
+            boolean ran = locks.pass(() -> {
+                for (long roomId : jdbcTemplate.queryForList("SELECT id FROM rooms", Long.class)) {
+                    try {
+                        if (!locks.room(roomId, Duration.ZERO, () -> moved[0] += archiveRoom(roomId, cutoff))) {
+                            log.debug("Chat archive of room {} is being rewritten, skipping it this time", roomId);
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        // Nothing of the failed segment was deleted; the next run tries again
+                        log.warn("Archiving chat of room {} failed: {}", roomId, e.getMessage());
+                    }
+                }
+            });
+            if (!ran) log.debug("Another node is archiving chat");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (moved[0] > 0) log.info("Archived {} chat messages older than {}", moved[0], maxAge);
+        return moved[0];
+    }
+
+    private long archiveRoom(long roomId, Timestamp cutoff) throws IOException {
+        ChatCursor done = archive.lastKey(roomId);
+        // Rows left behind by a run that stopped between committing a segment and deleting them
+        if (done != null) deleteUpTo(roomId, done);
+
+        long moved = 0;
+        List<ArchivedMessage> rows = older(roomId, cutoff, done);
+        while (!rows.isEmpty()) {
+            ChatSegment.Writer writer = archive.begin(roomId);
+            try {
+                do {
+                    for (ArchivedMessage row : rows) writer.add(row);
+                    done = writer.lastKey();
+                    rows = writer.count() < segmentSize ? older(roomId, cutoff, done) : List.of();
+                } while (!rows.isEmpty());
+            } catch (IOException | RuntimeException e) {
+                writer.abort();
+                throw e;
+            }
+            archive.commit(writer);
+
+            if (jdbcTemplate.queryForList("SELECT id FROM rooms WHERE id = ?", Long.class, roomId).isEmpty()) {
+                archive.deleteRoom(roomId); // deleted while we were writing
+                return moved;
+            }
+            deleteUpTo(roomId, done);
+            moved += writer.count();
+            archived.add(writer.count());
+            rows = older(roomId, cutoff, done);
+        }
+        return moved;
+    }
+
+    // Next chunk of archivable rows after the given key, oldest first; a range scan on idx_chat_room_ts
+    private List<ArchivedMessage> older(long roomId, Timestamp cutoff, ChatCursor after) {
+        if (after == null) {
+            return jdbcTemplate.query(older + " ORDER BY " + timestamp + ", id LIMIT ?", ROW, roomId, cutoff, chunkSize);
+        }
+        Timestamp afterTimestamp = Timestamp.valueOf(after.timestamp());
+        return jdbcTemplate.query(older + " AND (" + timestamp + " > ? OR (" + timestamp + " = ? AND id > ?)) ORDER BY " + timestamp + ", id LIMIT ?",
+                ROW, roomId, cutoff, afterTimestamp, afterTimestamp, after.id(), chunkSize);
+    }
+
+    // Chunked like DeletionService, each statement its own transaction
+    private void deleteUpTo(long roomId, ChatCursor last) {
+        Timestamp lastTimestamp = Timestamp.valueOf(last.timestamp());
+        String sql = "DELETE FROM chat_messages WHERE room_id = ? AND (" + timestamp + " < ? OR (" + timestamp + " = ? AND id <= ?)) LIMIT " + chunkSize;
+        int affected;
+        do {
+            affected = jdbcTemplate.update(sql, roomId, lastTimestamp, lastTimestamp, last.id());
+        } while (affected == chunkSize);
+    }
+}
@@ -0,0 +1,371 @@
+package com.nyad.thought_wall.archive;
+
+import com.nyad.thought_wall.repository.ChatCursor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * One immutable file of a room's archived chat, oldest message first.
+ *
+ * <pre>
+ * header   "TWCS", u16 version, u16 flags, i64 room id, i64 created (epoch ms), i32 CRC32 of the above, i32 0
+ * blocks   i32 deflated length, i32 raw length, i32 messages, i32 CRC32 of the deflated bytes, deflated messages
+ * index    per block: i64 first message's timestamp (epoch seconds), i32 nanos, i64 its id, i64 block offset
+ * senders  sorted distinct sender ids
+ * footer   i64 index offset, i32 blocks, i64 senders offset, i32 senders, i64 messages, last message's
+ *          i64 seconds, i32 nanos and i64 id, i32 CRC32 of index and senders, i32 CRC32 of the footer, "TWCS"
+ * </pre>
+ *
+ * A message is i64 id, i64 seconds, i32 nanos, i64 sender id (0 for none) and the content as
+ * modified UTF-8, all big-endian. The index is sparse, one key per block: a history page
+ * binary-searches it and inflates one or two blocks. Readers memory-map the file and check a
+ * block's checksum before inflating it; a file with a missing footer (an unfinished write), an
+ * unknown version or a checksum mismatch is rejected with {@link CorruptSegmentException}.
+ */
+public final class ChatSegment {
+
+    static final int MAGIC = 0x54574353; // "TWCS"
+    static final short VERSION = 1;
+
+    private static final int HEADER_SIZE = 32;
+    private static final int BLOCK_HEADER_SIZE = 16;
+    private static final int INDEX_ENTRY_SIZE = 28;
+    private static final int FOOTER_SIZE = 64;
+
+    public static class CorruptSegmentException extends IOException {
+        CorruptSegmentException(Path file, String reason) {
+            super(file + ": " + reason);
+        }
+    }
+
+    private final Path file;
+    private final ByteBuffer buffer;
+    private final long roomId;
+    private final long messageCount;
+    private final int indexOffset;
+    private final long[] firstSeconds;
+    private final int[] firstNanos;
+    private final long[] firstIds;
+    private final int[] blockOffsets;
+    private final long[] senders;
+    private final ChatCursor lastKey;
+
+    public static ChatSegment open(Path file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw new CorruptSegmentException(file, "larger than 2 GB");
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        return new ChatSegment(file, buffer);
+    }
+
+    private ChatSegment(Path file, ByteBuffer buffer) throws CorruptSegmentException {
+        this.file = file;
+        this.buffer = buffer;
+        int size = buffer.capacity();
+        if (size < HEADER_SIZE + FOOTER_SIZE || buffer.getInt(0) != MAGIC) throw corrupt("not a chat segment");
+        short version = buffer.getShort(4);
+        if (version != VERSION) throw corrupt("unsupported version " + version);
+        if (crc(buffer, 0, 24) != buffer.getInt(24)) throw corrupt("header checksum mismatch");
+        roomId = buffer.getLong(8);
+
+        int footer = size - FOOTER_SIZE;
+        if (buffer.getInt(footer + 60) != MAGIC) throw corrupt("no footer, the write did not finish");
+        if (crc(buffer, footer, 56) != buffer.getInt(footer + 56)) throw corrupt("footer checksum mismatch");
+        long index = buffer.getLong(footer);
+        int blocks = buffer.getInt(footer + 8);
+        long sendersAt = buffer.getLong(footer + 12);
+        int senderCount = buffer.getInt(footer + 20);
+        if (blocks <= 0 || senderCount < 0 || index < HEADER_SIZE
+                || sendersAt != index + (long) blocks * INDEX_ENTRY_SIZE || footer != sendersAt + senderCount * 8L) {
+            throw corrupt("footer offsets do not add up");
+        }
+        if (crc(buffer, (int) index, footer - (int) index) != buffer.getInt(footer + 52)) throw corrupt("index checksum mismatch");
+        indexOffset = (int) index;
+        messageCount = buffer.getLong(footer + 24);
+        lastKey = key(buffer.getLong(footer + 32), buffer.getInt(footer + 40), buffer.getLong(footer + 44));
+
+        firstSeconds = new long[blocks];
+        firstNanos = new int[blocks];
+        firstIds = new long[blocks];
+        blockOffsets = new int[blocks];
+        for (int b = 0; b < blocks; b++) {
+            int entry = indexOffset + b * INDEX_ENTRY_SIZE;
+            firstSeconds[b] = buffer.getLong(entry);
+            firstNanos[b] = buffer.getInt(entry + 8);
+            firstIds[b] = buffer.getLong(entry + 12);
+            long offset = buffer.getLong(entry + 20);
+            if (offset < HEADER_SIZE || offset >= indexOffset || (b > 0 && offset <= blockOffsets[b - 1])) {
+                throw corrupt("block " + b + " offset out of range");
+            }
+            blockOffsets[b] = (int) offset;
+        }
+        senders = new long[senderCount];
+        for (int i = 0; i < senderCount; i++) senders[i] = buffer.getLong((int) sendersAt + i * 8);
+    }
+
+    public Path file() { return file; }
+    public long roomId() { return roomId; }
+    public long messageCount() { return messageCount; }
+    public ChatCursor firstKey() { return blockKey(0); }
+    public ChatCursor lastKey() { return lastKey; }
+
+    public boolean hasSender(long senderId) {
+        return Arrays.binarySearch(senders, senderId) >= 0;
+    }
+
+    /** Up to limit messages older than before (all of them if before is null), newest first. */
+    public List<ArchivedMessage> latestBefore(ChatCursor before, int limit) throws IOException {
+        List<ArchivedMessage> found = new ArrayList<>(Math.min(limit, 256));
+        for (int b = before == null ? blockOffsets.length - 1 : lastBlockStartingBefore(before); b >= 0 && found.size() < limit; b--) {
+            List<ArchivedMessage> block = block(b);
+            for (int i = block.size() - 1; i >= 0 && found.size() < limit; i--) {
+                ArchivedMessage message = block.get(i);
+                if (before == null || message.key().compareTo(before) < 0) found.add(message);
+            }
+        }
+        return found;
+    }
+
+    /** Every message, oldest first, one block in memory at a time. */
+    public void forEach(Consumer<ArchivedMessage> action) throws IOException {
+        for (int b = 0; b < blockOffsets.length; b++) block(b).forEach(action);
+    }
+
+    /** Reads every block, so each checksum is checked, and compares against the footer. */
+    public void verify() throws IOException {
+        long[] count = {0};
+        ChatCursor[] previous = {null};
+        boolean[] ordered = {true};
+        forEach(message -> {
+            count[0]++;
+            if (previous[0] != null && message.key().compareTo(previous[0]) <= 0) ordered[0] = false;
+            previous[0] = message.key();
+        });
+        if (!ordered[0]) throw corrupt("messages out of order");
+        if (count[0] != messageCount || !lastKey.equals(previous[0])) throw corrupt("contents do not match the footer");
+    }
+
+    // Binary search of the sparse index: the last block whose first message is older than key
+    private int lastBlockStartingBefore(ChatCursor key) {
+        int low = 0;
+        int high = blockOffsets.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (blockKey(mid).compareTo(key) < 0) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    private ChatCursor blockKey(int b) {
+        return key(firstSeconds[b], firstNanos[b], firstIds[b]);
+    }
+
+    private List<ArchivedMessage> block(int b) throws IOException {
+        int offset = blockOffsets[b];
+        int end = b + 1 < blockOffsets.length ? blockOffsets[b + 1] : indexOffset;
+        int deflated = buffer.getInt(offset);
+        int raw = buffer.getInt(offset + 4);
+        int count = buffer.getInt(offset + 8);
+        if (deflated < 0 || raw < 0 || count <= 0 || offset + BLOCK_HEADER_SIZE + (long) deflated != end) {
+            throw corrupt("block " + b + " has a bad header");
+        }
+        ByteBuffer data = buffer.slice(offset + BLOCK_HEADER_SIZE, deflated);
+        if (crc(data, 0, deflated) != buffer.getInt(offset + 12)) throw corrupt("block " + b + " checksum mismatch");
+
+        // One spare byte so the inflater reads on to the end of the stream and reports finished()
+        byte[] bytes = new byte[raw + 1];
+        int length = 0;
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            while (!inflater.finished()) {
+                int n = inflater.inflate(bytes, length, bytes.length - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary() || length == bytes.length)) break;
+                length += n;
+            }
+            if (!inflater.finished() || length != raw) throw corrupt("block " + b + " does not inflate to " + raw + " bytes");
+        } catch (DataFormatException e) {
+            throw corrupt("block " + b + ": " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, raw));
+        List<ArchivedMessage> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long id = in.readLong();
+            long seconds = in.readLong();
+            int nanos = in.readInt();
+            long senderId = in.readLong();
+            String content = in.readUTF();
+            messages.add(new ArchivedMessage(id, LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC),
+                    senderId == 0 ? null : senderId, content));
+        }
+        return messages;
+    }
+
+    private CorruptSegmentException corrupt(String reason) {
+        return new CorruptSegmentException(file, reason);
+    }
+
+    // Timestamps are stored as their UTC epoch form only to pack them; no zone is implied
+    private static ChatCursor key(long seconds, int nanos, long id) {
+        return new ChatCursor(LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC), id);
+    }
+
+    private static int crc(ByteBuffer buffer, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset, length));
+        return (int) crc.getValue();
+    }
+
+    public static Writer writer(Path file, long roomId, int blockSize) throws IOException {
+        return new Writer(file, roomId, blockSize);
+    }
+
+    /**
+     * Writes a new segment file. Messages must come oldest first; {@link #finish} writes the
+     * index and footer and syncs the file. Until then the file has no footer and does not open.
+     */
+    public static final class Writer {
+        private final Path file;
+        private final FileChannel channel;
+        private final int blockSize;
+        private final ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(raw);
+        private final Deflater deflater = new Deflater();
+        private final ByteArrayOutputStream index = new ByteArrayOutputStream();
+        private final DataOutputStream indexOut = new DataOutputStream(index);
+        private final Set<Long> senders = new HashSet<>();
+        private long position;
+        private int blocks;
+        private int inBlock;
+        private long count;
+        private ArchivedMessage last;
+
+        private Writer(Path file, long roomId, int blockSize) throws IOException {
+            this.file = file;
+            this.blockSize = blockSize;
+            channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                    .putInt(MAGIC).putShort(VERSION).putShort((short) 0).putLong(roomId).putLong(System.currentTimeMillis());
+            header.putInt(crc(header, 0, 24)).putInt(0);
+            write(header.flip());
+        }
+
+        public Path file() { return file; }
+        public long count() { return count; }
+        public ChatCursor lastKey() { return last == null ? null : last.key(); }
+
+        public void add(ArchivedMessage message) throws IOException {
+            if (last != null && message.key().compareTo(last.key()) <= 0) {
+                throw new IllegalArgumentException("Messages must be added oldest first");
+            }
+            long seconds = message.timestamp().toEpochSecond(ZoneOffset.UTC);
+            int nanos = message.timestamp().getNano();
+            if (inBlock == 0) {
+                indexOut.writeLong(seconds);
+                indexOut.writeInt(nanos);
+                indexOut.writeLong(message.id());
+                indexOut.writeLong(position);
+            }
+            out.writeLong(message.id());
+            out.writeLong(seconds);
+            out.writeInt(nanos);
+            out.writeLong(message.senderId() == null ? 0 : message.senderId());
+            out.writeUTF(message.content());
+            if (message.senderId() != null) senders.add(message.senderId());
+            last = message;
+            count++;
+            if (++inBlock == blockSize) flushBlock();
+        }
+
+        public void finish() throws IOException {
+            if (count == 0) throw new IllegalStateException("A segment needs at least one message");
+            flushBlock();
+            long indexOffset = position;
+            long[] sorted = senders.stream().mapToLong(Long::longValue).sorted().toArray();
+            ByteBuffer meta = ByteBuffer.allocate(index.size() + sorted.length * 8).put(index.toByteArray());
+            for (long sender : sorted) meta.putLong(sender);
+            int metaCrc = crc(meta, 0, meta.capacity());
+            write(meta.flip());
+
+            ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE)
+                    .putLong(indexOffset).putInt(blocks)
+                    .putLong(indexOffset + (long) blocks * INDEX_ENTRY_SIZE).putInt(sorted.length)
+                    .putLong(count)
+                    .putLong(last.timestamp().toEpochSecond(ZoneOffset.UTC)).putInt(last.timestamp().getNano()).putLong(last.id())
+                    .putInt(metaCrc);
+            footer.putInt(crc(footer, 0, 56)).putInt(MAGIC);
+            write(footer.flip());
+            channel.force(true);
+            channel.close();
+            deflater.end();
+        }
+
+        /** Gives up on the file and deletes it. */
+        public void abort() {
+            try {
+                channel.close();
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+                // Unreadable without a footer either way
+            } finally {
+                deflater.end();
+            }
+        }
+
+        private void flushBlock() throws IOException {
+            if (inBlock == 0) return;
+            byte[] bytes = raw.toByteArray();
+            deflater.reset();
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream deflated = new ByteArrayOutputStream(bytes.length / 2 + 64);
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) deflated.write(chunk, 0, deflater.deflate(chunk));
+            byte[] data = deflated.toByteArray();
+
+            ByteBuffer block = ByteBuffer.allocate(BLOCK_HEADER_SIZE + data.length)
+                    .putInt(data.length).putInt(bytes.length).putInt(inBlock).putInt(0).put(data);
+            block.putInt(12, crc(block, BLOCK_HEADER_SIZE, data.length));
+            write(block.flip());
+            raw.reset();
+            inBlock = 0;
+            blocks++;
+        }
+
+        private void write(ByteBuffer data) throws IOException {
+            while (data.hasRemaining()) position += channel.write(data);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.nyad.thought_wall.cluster;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.MessageChannel;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+@Configuration
+@ConditionalOnProperty(name = "app.cluster.enabled", havingValue = "true")
+public class ClusterConfig {
+
+    @Value("${app.node-id:0}")
+    private int nodeId;
+
+    @Value("${app.cluster.transport:tcp}")
+    private String transport;
+
+    @Value("${app.cluster.port:7400}")
+    private int port;
+
+    // Listen on loopback unless told otherwise; set to the node's private address
+    @Value("${app.cluster.bind-address:127.0.0.1}")
+    private String bindAddress;
+
+    // Shared by all nodes; frames signed with anything else are dropped (TcpTransport)
+    @Value("${app.cluster.secret:}")
+    private String secret;
+
+    // host:port of every other node
+    @Value("${app.cluster.peers:}")
+    private List<String> peers;
+
+    @Value("${app.cluster.send-queue:10000}")
+    private int sendQueue;
+
+    @Bean
+    public ClusterTransport clusterTransport() {
+        return switch (transport) {
+            case "in-process" -> new InProcessTransport();
+            case "tcp" -> new TcpTransport(new InetSocketAddress(bindAddress, port), secret(),
+                    peers.stream().map(ClusterConfig::parsePeer).toList(), sendQueue);
+            default -> throw new IllegalArgumentException("Unknown app.cluster.transport: " + transport);
+        };
+    }
+
+    @Bean(initMethod = "start")
+    public ClusterFanout clusterFanout(ClusterTransport clusterTransport, ApplicationContext context) {
+        return new ClusterFanout(nodeId, clusterTransport,
+                () -> context.getBean("brokerChannel", MessageChannel.class));
+    }
+
+    private byte[] secret() {
+        byte[] bytes = secret.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length < 32) {
+            throw new IllegalStateException("app.cluster.secret must be set to at least 32 bytes (e.g. CLUSTER_SECRET) for the tcp transport");
+        }
+        return bytes;
+    }
+
+    private static InetSocketAddress parsePeer(String peer) {
+        int colon = peer.lastIndexOf(':');
+        if (colon < 0) throw new IllegalArgumentException("Cluster peer must be host:port, got " + peer);
+        return new InetSocketAddress(peer.substring(0, colon).trim(), Integer.parseInt(peer.substring(colon + 1).trim()));
+    }
+}
@@ -0,0 +1,133 @@
+package com.nyad.thought_wall.cluster;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeType;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Bridges the local simple broker to the other nodes.
+ *
+ * As an interceptor on the broker channel it sees every /topic publication made on this
+ * node (@SendTo results and SimpMessagingTemplate sends alike) and forwards the serialized
+ * message through the {@link ClusterTransport}. Messages arriving from other nodes are
+ * de-duplicated and handed to the local broker, which only has this node's subscribers.
+ * They are marked with {@link #ORIGIN_HEADER} so they are not forwarded again.
+ *
+ * Node-to-node notices (destinations under {@link #CONTROL_PREFIX}, e.g. cache evictions) travel
+ * the same way through {@link #broadcast} but go to the handler registered with {@link #onControl}
+ * instead of the broker.
+ */
+public class ClusterFanout implements ChannelInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterFanout.class);
+
+    static final String ORIGIN_HEADER = "clusterOrigin";
+    public static final String CONTROL_PREFIX = "/cluster/";
+
+    private final int nodeId;
+    private final ClusterTransport transport;
+    // Looked up lazily: the broker channel is created by the same configuration this interceptor is registered in
+    private final Supplier<MessageChannel> brokerChannel;
+
+    // Starts from the clock so a restarted node does not reuse sequence numbers still in peers' seen cache
+    private final AtomicLong seq = new AtomicLong(System.currentTimeMillis() * 1000);
+    // Transports do not resend, but a message can still arrive twice (e.g. a replayed frame);
+    // a minute is far longer than any such delay
+    private final Cache<String, Boolean> seen = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofMinutes(1))
+            .maximumSize(1_000_000)
+            .build();
+
+    private final LongAdder forwarded = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+
+    private final Map<String, Consumer<byte[]>> controlHandlers = new ConcurrentHashMap<>();
+
+    public ClusterFanout(int nodeId, ClusterTransport transport, Supplier<MessageChannel> brokerChannel) {
+        this.nodeId = nodeId;
+        this.transport = transport;
+        this.brokerChannel = brokerChannel;
+    }
+
+    public void start() {
+        transport.start(this::deliver);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(message);
+        String destination = headers.getDestination();
+        if (destination == null || !destination.startsWith("/topic/")) return message;
+        if (headers.getHeader(ORIGIN_HEADER) != null) return message; // came from another node
+        if (!(message.getPayload() instanceof byte[] payload)) return message;
+
+        MimeType contentType = headers.getContentType();
+        transport.publish(new ClusterMessage(nodeId, seq.incrementAndGet(), destination,
+                contentType != null ? contentType.toString() : null, payload));
+        forwarded.increment();
+        return message;
+    }
+
+    /** Sends a control notice to every other node; never delivered to STOMP subscribers. */
+    public void broadcast(String destination, byte[] payload) {
+        if (!destination.startsWith(CONTROL_PREFIX)) throw new IllegalArgumentException("Not a control destination: " + destination);
+        transport.publish(new ClusterMessage(nodeId, seq.incrementAndGet(), destination, null, payload));
+        forwarded.increment();
+    }
+
+    public void onControl(String destination, Consumer<byte[]> handler) {
+        controlHandlers.put(destination, handler);
+    }
+
+    private void deliver(ClusterMessage message) {
+        if (message.originNode() == nodeId) return;
+        if (seen.asMap().putIfAbsent(message.originNode() + ":" + message.seq(), Boolean.TRUE) != null) {
+            duplicates.increment();
+            return;
+        }
+        received.increment();
+
+        if (message.destination().startsWith(CONTROL_PREFIX)) {
+            Consumer<byte[]> handler = controlHandlers.get(message.destination());
+            if (handler == null) return;
+            try {
+                handler.accept(message.payload());
+            } catch (RuntimeException e) {
+                log.warn("Handling cluster notice {} failed: {}", message.destination(), e.getMessage());
+            }
+            return;
+        }
+
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setDestination(message.destination());
+        if (message.contentType() != null) headers.setContentType(MimeType.valueOf(message.contentType()));
+        headers.setHeader(ORIGIN_HEADER, message.originNode());
+        try {
+            brokerChannel.get().send(MessageBuilder.createMessage(message.payload(), headers.getMessageHeaders()));
+        } catch (RuntimeException e) {
+            log.warn("Delivering cluster message to {} failed: {}", message.destination(), e.getMessage());
+        }
+    }
+
+    public long forwardedCount() { return forwarded.sum(); }
+    public long receivedCount() { return received.sum(); }
+    public long duplicateCount() { return duplicates.sum(); }
+    public long queuedCount() { return transport.queuedCount(); }
+}
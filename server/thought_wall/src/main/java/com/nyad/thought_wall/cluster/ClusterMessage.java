@@ -0,0 +1,8 @@
+package com.nyad.thought_wall.cluster;
+
+/**
+ * A topic publication forwarded between nodes. {@code payload} is the already serialized
+ * STOMP body, so receiving nodes hand it to their broker without converting it again.
+ * (originNode, seq) identifies the publication for de-duplication.
+ */
+public record ClusterMessage(int originNode, long seq, String destination, String contentType, byte[] payload) {}
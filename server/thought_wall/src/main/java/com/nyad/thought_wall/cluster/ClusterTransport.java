@@ -0,0 +1,27 @@
+package com.nyad.thought_wall.cluster;
+
+import java.util.function.Consumer;
+
+/**
+ * Moves {@link ClusterMessage}s between nodes. Delivery is best-effort and at-most-once:
+ * a message can be lost (TcpTransport drops it when a peer's send queue is full, and loses
+ * what was in flight when a connection breaks) and is never retransmitted. Receivers must
+ * cope with gaps; clients resync on version gaps and node-local caches expire.
+ * {@link ClusterFanout} drops the node's own messages and any duplicates.
+ */
+public interface ClusterTransport extends AutoCloseable {
+
+    /** Starts delivering messages from other nodes to {@code receiver}. */
+    void start(Consumer<ClusterMessage> receiver);
+
+    /** Sends to every other node. Must not block the caller on network I/O. */
+    void publish(ClusterMessage message);
+
+    /** Messages accepted by {@link #publish} but not sent yet, across all peers. */
+    default long queuedCount() {
+        return 0;
+    }
+
+    @Override
+    void close();
+}
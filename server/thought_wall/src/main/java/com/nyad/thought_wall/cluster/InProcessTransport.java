@@ -0,0 +1,34 @@
+package com.nyad.thought_wall.cluster;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Connects application contexts running in the same JVM through a shared static hub.
+ * Meant for tests and local experiments with several nodes in one process.
+ */
+public class InProcessTransport implements ClusterTransport {
+
+    private static final List<InProcessTransport> HUB = new CopyOnWriteArrayList<>();
+
+    private volatile Consumer<ClusterMessage> receiver;
+
+    @Override
+    public void start(Consumer<ClusterMessage> receiver) {
+        this.receiver = receiver;
+        HUB.add(this);
+    }
+
+    @Override
+    public void publish(ClusterMessage message) {
+        for (InProcessTransport node : HUB) {
+            if (node != this) node.receiver.accept(message);
+        }
+    }
+
+    @Override
+    public void close() {
+        HUB.remove(this);
+    }
+}
@@ -0,0 +1,255 @@
+package com.nyad.thought_wall.cluster;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Full mesh over plain TCP: every node listens on its own port and keeps one outbound
+ * connection per peer. Each peer has a bounded send queue drained by its own thread, so a
+ * slow or dead peer never blocks publishers; when the queue is full new messages for that
+ * peer are dropped and counted. Connections are re-established with backoff; frames in flight
+ * when a connection breaks are lost, not resent (at-most-once, see {@link ClusterTransport}).
+ *
+ * The listener binds to app.cluster.bind-address (loopback unless configured) and peers prove
+ * they share app.cluster.secret: every frame carries an HMAC-SHA256 of its body, and a frame
+ * that fails the check or was sent more than MAX_AGE ago (a replay; newer ones are caught by
+ * ClusterFanout's duplicate check) closes the connection unprocessed.
+ *
+ * Frame: int body length, body, 32-byte HMAC of the body.
+ * Body: int originNode, long seq, long sentAt (epoch ms), UTF destination, UTF contentType,
+ * int payload length, payload bytes.
+ */
+public class TcpTransport implements ClusterTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(TcpTransport.class);
+
+    private static final int MAX_FRAME = 4 * 1024 * 1024;
+    private static final int MAC_LENGTH = 32;
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final long MAX_AGE_MS = 30_000;
+
+    private final InetSocketAddress bindAddress;
+    private final SecretKeySpec secret;
+    private final List<InetSocketAddress> peers;
+    private final int queueCapacity;
+
+    private volatile boolean running;
+    private ServerSocket server;
+    private final List<Peer> outbound = new ArrayList<>();
+    private final List<Socket> inbound = new CopyOnWriteArrayList<>();
+
+    private final LongAdder dropped = new LongAdder();
+
+    public TcpTransport(InetSocketAddress bindAddress, byte[] secret, List<InetSocketAddress> peers, int queueCapacity) {
+        this.bindAddress = bindAddress;
+        this.secret = new SecretKeySpec(secret, MAC_ALGORITHM);
+        this.peers = peers;
+        this.queueCapacity = queueCapacity;
+    }
+
+    @Override
+    public void start(Consumer<ClusterMessage> receiver) {
+        running = true;
+        try {
+            server = new ServerSocket();
+            server.setReuseAddress(true);
+            server.bind(bindAddress);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot listen for cluster peers on " + bindAddress, e);
+        }
+        Thread.ofPlatform().name("cluster-accept").daemon().start(() -> acceptLoop(receiver));
+
+        for (InetSocketAddress address : peers) {
+            Peer peer = new Peer(address, new ArrayBlockingQueue<>(queueCapacity));
+            outbound.add(peer);
+            Thread.ofPlatform().name("cluster-send-" + address).daemon().start(() -> sendLoop(peer));
+        }
+    }
+
+    @Override
+    public void publish(ClusterMessage message) {
+        for (Peer peer : outbound) {
+            if (!peer.queue.offer(message)) dropped.increment();
+        }
+    }
+
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    @Override
+    public long queuedCount() {
+        long queued = 0;
+        for (Peer peer : outbound) queued += peer.queue.size();
+        return queued;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        closeQuietly(server);
+        inbound.forEach(TcpTransport::closeQuietly);
+        outbound.forEach(p -> closeQuietly(p.socket));
+    }
+
+    private void acceptLoop(Consumer<ClusterMessage> receiver) {
+        while (running) {
+            try {
+                Socket socket = server.accept();
+                inbound.add(socket);
+                Thread.ofVirtual().name("cluster-read-" + socket.getRemoteSocketAddress()).start(() -> readLoop(socket, receiver));
+            } catch (IOException e) {
+                if (running) log.warn("Accepting cluster connection failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void readLoop(Socket socket, Consumer<ClusterMessage> receiver) {
+        Mac mac = newMac();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            while (running) {
+                int length = in.readInt();
+                if (length < 0 || length > MAX_FRAME) throw new IOException("Bad frame length " + length);
+                byte[] body = new byte[length];
+                in.readFully(body);
+                byte[] signature = new byte[MAC_LENGTH];
+                in.readFully(signature);
+                if (!MessageDigest.isEqual(mac.doFinal(body), signature)) {
+                    throw new IOException("Frame signature mismatch (wrong app.cluster.secret or not a peer)");
+                }
+
+                DataInputStream frame = new DataInputStream(new ByteArrayInputStream(body));
+                int origin = frame.readInt();
+                long seq = frame.readLong();
+                long sentAt = frame.readLong();
+                if (Math.abs(System.currentTimeMillis() - sentAt) > MAX_AGE_MS) {
+                    throw new IOException("Stale frame, sent at " + sentAt + " (replay or clock skew)");
+                }
+                String destination = frame.readUTF();
+                String contentType = frame.readUTF();
+                byte[] payload = new byte[frame.readInt()];
+                frame.readFully(payload);
+                receiver.accept(new ClusterMessage(origin, seq, destination, contentType.isEmpty() ? null : contentType, payload));
+            }
+        } catch (EOFException e) {
+            // peer went away
+        } catch (IOException e) {
+            if (running) log.warn("Cluster connection from {} failed: {}", socket.getRemoteSocketAddress(), e.getMessage());
+        } finally {
+            inbound.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    private void sendLoop(Peer peer) {
+        Mac mac = newMac();
+        long backoff = 100;
+        while (running) {
+            try {
+                Socket socket = new Socket();
+                peer.socket = socket;
+                socket.connect(peer.address, 2000);
+                socket.setTcpNoDelay(true);
+                backoff = 100;
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                while (running) {
+                    ClusterMessage message = peer.queue.poll(500, TimeUnit.MILLISECONDS);
+                    if (message == null) continue;
+                    write(out, message, mac);
+                    // Coalesce whatever else is already queued into the same flush
+                    while ((message = peer.queue.poll()) != null) write(out, message, mac);
+                    out.flush();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                // Messages lost with the connection are not resent; clients resync on version gaps
+                if (running) log.debug("Cluster peer {} unavailable: {}", peer.address, e.getMessage());
+            } finally {
+                closeQuietly(peer.socket);
+            }
+            sleepQuietly(backoff);
+            backoff = Math.min(backoff * 2, 5000);
+        }
+    }
+
+    private static void write(DataOutputStream out, ClusterMessage m, Mac mac) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(m.payload().length + 128);
+        DataOutputStream body = new DataOutputStream(bytes);
+        body.writeInt(m.originNode());
+        body.writeLong(m.seq());
+        body.writeLong(System.currentTimeMillis());
+        body.writeUTF(m.destination());
+        body.writeUTF(m.contentType() != null ? m.contentType() : "");
+        body.writeInt(m.payload().length);
+        body.write(m.payload());
+
+        byte[] frame = bytes.toByteArray();
+        out.writeInt(frame.length);
+        out.write(frame);
+        out.write(mac.doFinal(frame));
+    }
+
+    // Mac instances are not thread-safe: one per connection thread
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(secret);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e); // every JDK has HmacSHA256
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        if (closeable == null) return;
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
+        }
+    }
+
+    private static final class Peer {
+        final InetSocketAddress address;
+        final BlockingQueue<ClusterMessage> queue;
+        volatile Socket socket;
+
+        Peer(InetSocketAddress address, BlockingQueue<ClusterMessage> queue) {
+            this.address = address;
+            this.queue = queue;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.nyad.thought_wall.config;
+
+import com.nyad.thought_wall.util.RoomCodeGenerator;
+import com.nyad.thought_wall.util.TimeOrderedIdGenerator;
+import com.nyad.thought_wall.util.TimeOrderedIdentifierGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.hibernate.autoconfigure.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class IdGeneratorConfig {
+
+    // Must be unique per running instance (0-63) when several nodes share the database
+    @Value("${app.node-id:0}")
+    private long nodeId;
+
+    // Shipped empty on purpose: set ROOM_CODE_KEY
+    @Value("${app.rooms.code-key:}")
+    private String roomCodeKey;
+
+    @Bean
+    public TimeOrderedIdGenerator idGenerator() {
+        return new TimeOrderedIdGenerator(nodeId);
+    }
+
+    @Bean
+    public RoomCodeGenerator roomCodeGenerator(TimeOrderedIdGenerator idGenerator) {
+        if (roomCodeKey.length() < 32) {
+            throw new IllegalStateException("app.rooms.code-key must be set to at least 32 characters (e.g. ROOM_CODE_KEY)");
+        }
+        return new RoomCodeGenerator(idGenerator, roomCodeKey);
+    }
+
+    // @TimeOrderedId entities take their ids from the same generator as everything else
+    @Bean
+    public HibernatePropertiesCustomizer timeOrderedIds(TimeOrderedIdGenerator idGenerator) {
+        return properties -> properties.put(TimeOrderedIdentifierGenerator.GENERATOR_SETTING, idGenerator);
+    }
+}
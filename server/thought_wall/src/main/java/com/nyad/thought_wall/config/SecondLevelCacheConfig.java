@@ -0,0 +1,87 @@
+package com.nyad.thought_wall.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.hibernate.autoconfigure.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Hibernate second-level cache for User and Room (entities, Room.members and the email/code
+ * lookup queries), held in bounded Caffeine caches through JCache.
+ *
+ * Writes through Hibernate keep this node's cache exact. Other nodes hear about changes from
+ * EntityCacheInvalidator when clustering is on; the TTL bounds staleness if a notice is lost.
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+    public static final String USERS = "users";
+    public static final String ROOMS = "rooms";
+    public static final String ROOM_MEMBERS = "rooms.members";
+    // Hibernate's default names for the query cache regions
+    public static final String QUERY_RESULTS = "default-query-results-region";
+    public static final String UPDATE_TIMESTAMPS = "default-update-timestamps-region";
+
+    public static final List<String> REGIONS = List.of(USERS, ROOMS, ROOM_MEMBERS, QUERY_RESULTS, UPDATE_TIMESTAMPS);
+
+    @Value("${app.cache.entities.max-size:100000}")
+    private long entityMaxSize;
+
+    @Value("${app.cache.entities.ttl:10m}")
+    private Duration entityTtl;
+
+    @Value("${app.cache.queries.max-size:50000}")
+    private long queryMaxSize;
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager() {
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        // Own URI per context, so a second context in the same JVM (tests, benchmarks) starts empty
+        CacheManager manager = provider.getCacheManager(
+                URI.create("thought-wall-l2-" + UUID.randomUUID()), getClass().getClassLoader());
+
+        manager.createCache(USERS, bounded(entityMaxSize, entityTtl));
+        manager.createCache(ROOMS, bounded(entityMaxSize, entityTtl));
+        manager.createCache(ROOM_MEMBERS, bounded(entityMaxSize, entityTtl));
+        manager.createCache(QUERY_RESULTS, bounded(queryMaxSize, entityTtl));
+        // Must never lose entries: a missing timestamp would let stale query results through
+        CaffeineConfiguration<Object, Object> timestamps = new CaffeineConfiguration<>();
+        timestamps.setStoreByValue(false);
+        timestamps.setStatisticsEnabled(true);
+        manager.createCache(UPDATE_TIMESTAMPS, timestamps);
+        return manager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCache(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put("hibernate.cache.use_second_level_cache", true);
+            properties.put("hibernate.cache.use_query_cache", true);
+            properties.put("hibernate.cache.region.factory_class", "jcache");
+            properties.put("hibernate.javax.cache.cache_manager", hibernateCacheManager);
+            // Every region is created above with its bounds; an unknown one is a mistake, not a default
+            properties.put("hibernate.javax.cache.missing_cache_strategy", "fail");
+        };
+    }
+
+    private static CaffeineConfiguration<Object, Object> bounded(long maxSize, Duration ttl) {
+        CaffeineConfiguration<Object, Object> config = new CaffeineConfiguration<>();
+        config.setMaximumSize(OptionalLong.of(maxSize));
+        config.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        // Hibernate's cache entries are immutable; copying them on every read buys nothing
+        config.setStoreByValue(false);
+        config.setStatisticsEnabled(true);
+        return config;
+    }
+}
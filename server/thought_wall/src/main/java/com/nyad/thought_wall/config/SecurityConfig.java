@@ -5,12 +5,15 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.server.ResponseStatusException;
 
 import com.nyad.thought_wall.security.JwtFilter;
 
@@ -24,9 +27,38 @@ public class SecurityConfig {
     @Value("${app.frontend.url}")
     private String frontendUrl;
 
+    // Actuator runs on its own port bound to localhost (see application.properties)
+    @Value("${management.server.port:-1}")
+    private int managementPort;
+
+    // Raising or lowering it takes effect per account at the next login (PasswordHashing.needsRehash)
+    @Value("${app.auth.bcrypt.strength:10}")
+    private int bcryptStrength;
+
+    @Value("${app.auth.requests.threads:4}")
+    private int authThreads;
+
+    @Value("${app.auth.requests.queue-capacity:200}")
+    private int authQueueCapacity;
+
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder(bcryptStrength);
+    }
+
+    // What AuthController does once a hash is done (user lookup and save, JWT signing), so the
+    // hashing threads only ever hash. Bounded like the hashing pool: once full, sign-ins get a 503
+    @Bean
+    public ThreadPoolTaskExecutor authExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("auth-");
+        executor.setCorePoolSize(authThreads);
+        executor.setMaxPoolSize(authThreads);
+        executor.setQueueCapacity(authQueueCapacity);
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many sign-ins in progress, try again shortly");
+        });
+        return executor;
     }
 
     @Bean
@@ -46,6 +78,7 @@ public class SecurityConfig {
                 .requestMatchers("/api/auth/**").permitAll()
                 .requestMatchers("/hello", "/error").permitAll()
                 .requestMatchers("/ws/**").permitAll()
+                .requestMatchers(request -> request.getLocalPort() == managementPort).permitAll()
                 
                 // Allow OPTIONS for pre-flight checks
                 .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
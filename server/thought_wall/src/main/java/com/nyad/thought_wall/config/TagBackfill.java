@@ -0,0 +1,55 @@
+package com.nyad.thought_wall.config;
+
+import com.nyad.thought_wall.service.TagCountService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+
+/**
+ * One-off migration to the tags dictionary. Databases created before it still have the old
+ * free-form thoughts.tag column: its names are copied into tags and thoughts.tag_id is filled
+ * in. tag_counts is computed once when it is still empty. Both steps are no-ops afterwards.
+ * The old column is left in place and can be dropped by hand once the backfill has run.
+ */
+@Component
+public class TagBackfill implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(TagBackfill.class);
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private TagCountService tagCounts;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (hasLegacyTagColumn()) {
+            jdbcTemplate.update("INSERT INTO tags (name) SELECT DISTINCT t.tag FROM thoughts t "
+                    + "WHERE t.tag_id IS NULL AND t.tag IS NOT NULL AND t.tag <> '' "
+                    + "AND NOT EXISTS (SELECT 1 FROM tags g WHERE g.name = t.tag)");
+            int rows = jdbcTemplate.update("UPDATE thoughts SET tag_id = (SELECT g.id FROM tags g WHERE g.name = thoughts.tag) "
+                    + "WHERE tag_id IS NULL AND tag IS NOT NULL AND tag <> ''");
+            if (rows > 0) log.info("Moved {} thoughts to the tags dictionary", rows);
+        }
+
+        Integer counted = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM (SELECT 1 FROM tag_counts LIMIT 1) c", Integer.class);
+        Integer tagged = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM (SELECT 1 FROM thoughts WHERE tag_id IS NOT NULL LIMIT 1) t", Integer.class);
+        if (counted == 0 && tagged > 0) {
+            tagCounts.rebuild();
+            log.info("Computed tag_counts from existing thoughts");
+        }
+    }
+
+    private boolean hasLegacyTagColumn() {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((Connection c) -> {
+            try (ResultSet rs = c.getMetaData().getColumns(c.getCatalog(), null, "thoughts", "tag")) {
+                return rs.next();
+            }
+        }));
+    }
+}
@@ -1,23 +1,96 @@
 package com.nyad.thought_wall.config;
 
+import com.nyad.thought_wall.cluster.ClusterFanout;
+import com.nyad.thought_wall.metrics.StompMetrics;
+import com.nyad.thought_wall.websocket.StompAuthorization;
+import com.nyad.thought_wall.websocket.StompSessionRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
-import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+// The broker itself is set up by StompBrokerConfig (in place of @EnableWebSocketMessageBroker)
 @Configuration
-@EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     @Value("${app.frontend.url}")
     private String frontendUrl;
 
+    // platform: bounded thread pools; virtual: a virtual thread per message, capped at pool-size
+    @Value("${app.stomp.executor:platform}")
+    private String executorType;
+
+    @Value("${app.stomp.inbound.pool-size:16}")
+    private int inboundPoolSize;
+
+    @Value("${app.stomp.inbound.queue-capacity:10000}")
+    private int inboundQueueCapacity;
+
+    @Value("${app.stomp.outbound.pool-size:16}")
+    private int outboundPoolSize;
+
+    @Value("${app.stomp.outbound.queue-capacity:10000}")
+    private int outboundQueueCapacity;
+
+    @Value("${app.stomp.message-size-limit:64KB}")
+    private DataSize messageSizeLimit;
+
+    // Only present with app.cluster.enabled=true
+    @Autowired private ObjectProvider<ClusterFanout> clusterFanout;
+
+    @Autowired private StompSessionRegistry sessionRegistry;
+    @Autowired private StompAuthorization stompAuthorization;
+    @Autowired private StompMetrics stompMetrics;
+    @Autowired private ObjectProvider<MeterRegistry> meterRegistry;
+
+    private final List<ThreadPoolTaskExecutor> pools = new ArrayList<>();
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic");
+        // /queue only carries per-session replies (/user/queue/errors), so it is not clustered
+        config.enableSimpleBroker("/topic", "/queue");
         config.setApplicationDestinationPrefixes("/app");
+        // Forward every /topic publication to the other nodes and deliver theirs here
+        clusterFanout.ifAvailable(fanout -> config.configureBrokerChannel().interceptors(fanout));
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        // Authorization first, so refused frames never reach a handler
+        registration.executor(executor("stomp-in-", inboundPoolSize, inboundQueueCapacity))
+                .interceptors(stompAuthorization, stompMetrics);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // The registry numbers each session's messages here and sends them in that order
+        registration.executor(executor("stomp-out-", outboundPoolSize, outboundQueueCapacity))
+                .interceptors(sessionRegistry);
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // Sessions are decorated by StompSessionRegistry; these keep Spring's own checks in line with it
+        registration.setMessageSizeLimit((int) messageSizeLimit.toBytes())
+                .setSendTimeLimit(sessionRegistry.sendTimeLimitMillis())
+                .setSendBufferSizeLimit(sessionRegistry.sendBufferSizeLimitBytes());
     }
 
     @Override
@@ -26,4 +99,33 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .setAllowedOrigins(frontendUrl)
                 .withSockJS(); // Fallback options
     }
-}
\ No newline at end of file
+
+    // Both kinds block the submitting thread once full instead of growing without bound:
+    // inbound that means the socket reader stops reading, so TCP pushes back on the client
+    private Executor executor(String prefix, int poolSize, int queueCapacity) {
+        if ("virtual".equals(executorType)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(prefix);
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(poolSize);
+            return executor;
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(prefix);
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        pools.add(executor);
+        // executor.queued / executor.active etc., tagged name=stomp-in or stomp-out
+        meterRegistry.ifAvailable(registry -> new ExecutorServiceMetrics(executor.getThreadPoolExecutor(),
+                prefix.substring(0, prefix.length() - 1), Tags.empty()).bindTo(registry));
+        return executor;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pools.forEach(ThreadPoolTaskExecutor::shutdown);
+    }
+}
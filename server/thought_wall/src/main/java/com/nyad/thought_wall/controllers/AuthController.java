@@ -3,48 +3,101 @@ package com.nyad.thought_wall.controllers;
 import com.nyad.thought_wall.entity.User;
 import com.nyad.thought_wall.repository.UserRepository;
 import com.nyad.thought_wall.security.JwtUtil;
+import com.nyad.thought_wall.security.LoginThrottle;
+import com.nyad.thought_wall.security.PasswordHashing;
+import com.nyad.thought_wall.service.EntityCacheInvalidator;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @RestController
 @RequestMapping("/api/auth")
 public class AuthController {
+    private static final Logger log = LoggerFactory.getLogger(AuthController.class);
+
     @Autowired private UserRepository userRepository;
     @Autowired private JwtUtil jwtUtil;
-    
-    // 1. INJECT: The password encoder
-    @Autowired private PasswordEncoder passwordEncoder;
+    @Autowired private EntityCacheInvalidator cacheInvalidator;
+    @Autowired private TransactionTemplate transactionTemplate;
+    @Autowired private LoginThrottle loginThrottle;
+
+    // 1. HASH: BCrypt runs on its own bounded pool; the servlet thread is released while it does
+    @Autowired private PasswordHashing passwordHashing;
+
+    // What comes after the hash (JPA, JWT signing) runs on its own bounded pool (SecurityConfig),
+    // so the hashing threads only ever hash
+    @Autowired @Qualifier("authExecutor") private Executor requestExecutor;
 
     @PostMapping("/signup")
-    public Map<String, String> signup(@RequestBody User user) {
+    public CompletableFuture<Map<String, String>> signup(@RequestBody User user) {
         if (userRepository.findByEmail(user.getEmail()).isPresent()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Email already taken");
         }
-        
+
         // 2. ENCODE: Hash the raw password before saving
-        user.setPassword(passwordEncoder.encode(user.getPassword()));
-        
-        userRepository.save(user);
-        String token = jwtUtil.generateToken(user.getEmail());
-        return Map.of("token", token);
+        return passwordHashing.encode(user.getPassword()).thenApplyAsync(hash -> {
+            user.setPassword(hash);
+            userRepository.save(user);
+            cacheInvalidator.userChanged(user.getId());
+            String token = jwtUtil.generateToken(user.getId(), user.getEmail());
+            return Map.of("token", token);
+        }, requestExecutor);
     }
 
     @PostMapping("/login")
-    public Map<String, String> login(@RequestBody User loginRequest) {
-        User user = userRepository.findByEmail(loginRequest.getEmail())
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User not found"));
-        
+    public CompletableFuture<Map<String, String>> login(@RequestBody User loginRequest, HttpServletRequest request) {
+        String email = loginRequest.getEmail();
+        String ip = request.getRemoteAddr();
+        // Refused before the lookup and the hash, so a locked-out burst costs almost nothing.
+        // The attempt counts as failed unless it reaches succeeded below
+        loginThrottle.acquire(email, ip);
+
+        User user = userRepository.findByEmail(email).orElse(null);
+        if (user == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User not found");
+        }
+
         // 3. VERIFY: Use matches() to check raw password against hash
         // Note: We check for null to prevent NPEs on old/bad data
-        if (user.getPassword() == null || !passwordEncoder.matches(loginRequest.getPassword(), user.getPassword())) {
+        String hash = user.getPassword();
+        if (hash == null) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid credentials");
         }
-        
-        String token = jwtUtil.generateToken(user.getEmail());
-        return Map.of("token", token);
+        return passwordHashing.matches(loginRequest.getPassword(), hash).thenApplyAsync(matches -> {
+            if (!matches) {
+                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid credentials");
+            }
+            loginThrottle.succeeded(email, ip);
+            if (passwordHashing.needsRehash(hash)) rehash(user.getId(), hash, loginRequest.getPassword());
+            String token = jwtUtil.generateToken(user.getId(), user.getEmail());
+            return Map.of("token", token);
+        }, requestExecutor);
+    }
+
+    // The cost setting changed since this hash was made. Done in the background and best effort:
+    // if the pool is busy the old hash still works and the next login tries again.
+    private void rehash(Long userId, String oldHash, String rawPassword) {
+        passwordHashing.encode(rawPassword).thenAcceptAsync(newHash -> {
+            boolean updated = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                User user = userRepository.findById(userId).orElse(null);
+                // Skip if the password was changed meanwhile
+                if (user == null || !oldHash.equals(user.getPassword())) return false;
+                user.setPassword(newHash);
+                return true;
+            }));
+            if (updated) cacheInvalidator.userChanged(userId);
+        }, requestExecutor).exceptionally(e -> {
+            log.debug("Rehash for user {} skipped: {}", userId, e.getMessage());
+            return null;
+        });
     }
-}
\ No newline at end of file
+}
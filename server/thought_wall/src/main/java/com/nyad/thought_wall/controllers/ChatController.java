@@ -1,19 +1,29 @@
 package com.nyad.thought_wall.controllers;
 
-import com.nyad.thought_wall.entity.ChatMessage;
-import com.nyad.thought_wall.entity.Room;
-import com.nyad.thought_wall.entity.User;
+import com.nyad.thought_wall.archive.ChatArchive;
+import com.nyad.thought_wall.dto.ChatMessageView;
+import com.nyad.thought_wall.repository.ChatCursor;
 import com.nyad.thought_wall.repository.ChatMessageRepository;
-import com.nyad.thought_wall.repository.RoomRepository;
-import com.nyad.thought_wall.repository.UserRepository;
+import com.nyad.thought_wall.security.AuthenticatedUser;
+import com.nyad.thought_wall.service.ChatService;
+import com.nyad.thought_wall.service.RateLimiter;
+import com.nyad.thought_wall.service.RoomMembershipService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.handler.annotation.SendTo;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -21,33 +31,83 @@ import java.util.Map;
 public class ChatController {
 
     @Autowired private ChatMessageRepository chatRepository;
-    @Autowired private RoomRepository roomRepository;
-    @Autowired private UserRepository userRepository;
+    @Autowired private ChatService chatService;
+    @Autowired private RoomMembershipService membershipService;
+    @Autowired private ChatArchive chatArchive;
 
     // WebSocket Endpoint: /app/chat/{roomId}
     // Broadcasts to: /topic/room/{roomId}/chat
+    // The sender is the session's principal, set on CONNECT from the JWT (StompAuthorization)
     @MessageMapping("/chat/{roomId}")
     @SendTo("/topic/room/{roomId}/chat")
-    public ChatMessage sendMessage(@Payload Map<String, String> payload, @DestinationVariable Long roomId) {
-        String content = payload.get("content");
-        String email = payload.get("email"); // We pass email from client for now
-
-        Room room = roomRepository.findById(roomId).orElseThrow();
-        User sender = userRepository.findByEmail(email).orElseThrow();
-
-        ChatMessage message = new ChatMessage();
-        message.setContent(content);
-        message.setRoom(room);
-        message.setSender(sender);
-        
-        return chatRepository.save(message);
+    public ChatMessageView sendMessage(@Payload Map<String, String> payload, @DestinationVariable Long roomId,
+                                       AuthenticatedUser sender) {
+        return chatService.send(roomId, sender, payload.get("content"));
+    }
+
+    // Only the sending session hears about it: /user/queue/errors
+    @MessageExceptionHandler(RateLimiter.RateLimitedException.class)
+    @SendToUser(destinations = "/queue/errors", broadcast = false)
+    public Map<String, String> rateLimited(RateLimiter.RateLimitedException e) {
+        return Map.of("error", e.getReason());
     }
 
     // REST Endpoint: Get History
+    // Returns the latest `limit` messages (oldest first); pass nextCursor as `before` to scroll back.
+    // Past what chat_messages still holds, the page continues from the archive (ChatArchiver).
     @GetMapping("/api/rooms/{roomId}/messages")
     @ResponseBody
     @CrossOrigin(origins = "${app.frontend.url}")
-    public List<ChatMessage> getChatHistory(@PathVariable Long roomId) {
-        return chatRepository.findByRoomIdOrderByTimestampAsc(roomId);
+    public ChatHistoryPage getChatHistory(
+            @PathVariable Long roomId,
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "50") int limit,
+            @AuthenticationPrincipal AuthenticatedUser me
+    ) {
+        if (!membershipService.isMember(roomId, me.id())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+        }
+        int size = Math.clamp(limit, 1, 200);
+
+        // One extra row tells us whether there is anything older
+        List<ChatMessageView> rows;
+        ChatCursor cursor = null;
+        if (before != null && !before.isEmpty()) {
+            try {
+                cursor = ChatCursor.decode(before);
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+            }
+            rows = chatRepository.findLatestBefore(roomId, cursor.timestamp(), cursor.id(), Limit.of(size + 1));
+        } else {
+            rows = chatRepository.findLatest(roomId, Limit.of(size + 1));
+        }
+        if (rows.size() <= size) {
+            // Archived messages are all older than the table's, so carry on below the oldest row
+            ChatCursor from = rows.isEmpty() ? cursor
+                    : new ChatCursor(rows.get(rows.size() - 1).timestamp(), rows.get(rows.size() - 1).id());
+            rows = new ArrayList<>(rows);
+            rows.addAll(chatArchive.latestBefore(roomId, from, size + 1 - rows.size()));
+        }
+
+        boolean hasMore = rows.size() > size;
+        List<ChatMessageView> page = new ArrayList<>(hasMore ? rows.subList(0, size) : rows);
+        String nextCursor = null;
+        if (hasMore) {
+            ChatMessageView oldest = page.get(page.size() - 1);
+            nextCursor = new ChatCursor(oldest.timestamp(), oldest.id()).encode();
+        }
+        Collections.reverse(page);
+        return new ChatHistoryPage(page, nextCursor);
+    }
+
+    public static class ChatHistoryPage {
+        public List<ChatMessageView> messages;
+        public String nextCursor; // null when there is nothing older
+
+        public ChatHistoryPage(List<ChatMessageView> messages, String nextCursor) {
+            this.messages = messages;
+            this.nextCursor = nextCursor;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,30 @@
+package com.nyad.thought_wall.controllers;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * ETag handling for GET endpoints whose content is covered by a version counter.
+ * The tag is built from the counters only, so a match is answered with 304 before the
+ * endpoint runs a single listing query or serializes anything.
+ */
+final class ConditionalGet {
+
+    private ConditionalGet() {}
+
+    /**
+     * Sets the ETag and answers If-None-Match. When this returns true the response is already
+     * a 304 and the handler should return null.
+     */
+    static boolean notModified(WebRequest request, String... versionParts) {
+        // Browsers keep the response but revalidate every time, so fetch() sends If-None-Match on its own
+        if (request instanceof NativeWebRequest nativeRequest
+                && nativeRequest.getNativeResponse() instanceof HttpServletResponse response) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+        }
+        return request.checkNotModified(String.join("-", versionParts));
+    }
+}
@@ -0,0 +1,25 @@
+package com.nyad.thought_wall.controllers;
+
+import com.nyad.thought_wall.security.AuthenticatedUser;
+import com.nyad.thought_wall.service.DeletionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@RequestMapping("/api/deletions")
+@CrossOrigin(origins = "${app.frontend.url}")
+public class DeletionController {
+
+    @Autowired private DeletionService deletions;
+
+    // Progress of a room or account deletion started with async=true; only its requester sees it
+    @GetMapping("/{id}")
+    public DeletionService.Job getJob(@PathVariable String id, @AuthenticationPrincipal AuthenticatedUser me) {
+        DeletionService.Job job = deletions.job(id, me.id());
+        if (job == null) throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        return job;
+    }
+}
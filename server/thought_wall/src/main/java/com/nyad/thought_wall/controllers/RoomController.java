@@ -6,17 +6,25 @@ import com.nyad.thought_wall.entity.User;
 import com.nyad.thought_wall.repository.RoomJoinRequestRepository;
 import com.nyad.thought_wall.repository.RoomRepository;
 import com.nyad.thought_wall.repository.UserRepository;
+import com.nyad.thought_wall.security.AuthenticatedUser;
+import com.nyad.thought_wall.service.DeletionService;
+import com.nyad.thought_wall.service.EntityCacheInvalidator;
+import com.nyad.thought_wall.service.ResourceVersionService;
+import com.nyad.thought_wall.service.RoomMembershipService;
+import com.nyad.thought_wall.util.RoomCodeGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.security.Principal;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/rooms")
@@ -26,51 +34,60 @@ public class RoomController {
     @Autowired private RoomRepository roomRepository;
     @Autowired private UserRepository userRepository;
     @Autowired private RoomJoinRequestRepository requestRepository;
+    @Autowired private RoomMembershipService membershipService;
+    @Autowired private ResourceVersionService resourceVersions;
+    @Autowired private EntityCacheInvalidator cacheInvalidator;
+    @Autowired private RoomCodeGenerator roomCodes;
+    @Autowired private DeletionService deletions;
 
     @PostMapping
-    public Room createRoom(@RequestBody String roomName, Principal principal) {
-        User user = getUser(principal);
-        String code = generateUniqueCode();
+    public Room createRoom(@RequestBody String roomName, @AuthenticationPrincipal AuthenticatedUser me) {
+        User user = getUser(me);
+        // Unique by construction, no existsByCode round trips
+        String code = roomCodes.next();
         Room room = new Room(roomName.replace("\"", ""), code, user);
-        return roomRepository.save(room);
+        Room saved = roomRepository.save(room);
+        cacheInvalidator.roomChanged(saved.getId());
+        resourceVersions.bump(ResourceVersionService.Kind.USER_ROOMS, me.id());
+        return saved;
     }
 
     // MODIFIED: Creates a join request instead of adding immediately
     @PostMapping("/join/{code}")
-    public ResponseEntity<?> joinRoom(@PathVariable String code, Principal principal) {
-        User user = getUser(principal);
-        Room room = roomRepository.findByCode(code)
+    public ResponseEntity<?> joinRoom(@PathVariable String code, @AuthenticationPrincipal AuthenticatedUser me) {
+        // Codes are upper case (old 6-character ones as well as the current 11-character ones)
+        Room room = roomRepository.findByCode(code.trim().toUpperCase(Locale.ROOT))
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Room not found"));
         
-        if (room.getMembers().contains(user)) {
+        if (membershipService.isMember(room.getId(), me.id())) {
             return ResponseEntity.badRequest().body("Already a member");
         }
         
         // Check if owner
-        if (room.getOwner().equals(user)) {
+        if (room.getOwner().getId().equals(me.id())) {
              return ResponseEntity.badRequest().body("You are the owner");
         }
 
         // Check pending
-        if (requestRepository.findByRoomIdAndUserId(room.getId(), user.getId()).isPresent()) {
+        if (requestRepository.findByRoomIdAndUserId(room.getId(), me.id()).isPresent()) {
             return ResponseEntity.badRequest().body("Request already pending");
         }
 
-        requestRepository.save(new RoomJoinRequest(room, user));
+        requestRepository.save(new RoomJoinRequest(room, userRepository.getReferenceById(me.id())));
         return ResponseEntity.ok(Map.of("message", "Request sent to room owner"));
     }
 
     // NEW: Get pending requests for a room (Owner only)
     @GetMapping("/{id}/requests")
-    public List<RoomJoinRequest> getRoomRequests(@PathVariable Long id, Principal principal) {
-        Room room = getOwnedRoom(id, principal);
+    public List<RoomJoinRequest> getRoomRequests(@PathVariable Long id, @AuthenticationPrincipal AuthenticatedUser me) {
+        Room room = getOwnedRoom(id, me);
         return requestRepository.findByRoomId(room.getId());
     }
 
     // NEW: Approve a request
     @PostMapping("/{roomId}/requests/{requestId}/approve")
-    public void approveRequest(@PathVariable Long roomId, @PathVariable Long requestId, Principal principal) {
-        Room room = getOwnedRoom(roomId, principal);
+    public void approveRequest(@PathVariable Long roomId, @PathVariable Long requestId, @AuthenticationPrincipal AuthenticatedUser me) {
+        Room room = getOwnedRoom(roomId, me);
         RoomJoinRequest req = requestRepository.findById(requestId)
             .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
         
@@ -79,19 +96,24 @@ public class RoomController {
         room.addMember(req.getUser());
         roomRepository.save(room);
         requestRepository.delete(req);
+        membershipService.memberAdded(roomId, req.getUser().getId());
+        cacheInvalidator.roomChanged(roomId);
+        resourceVersions.bump(ResourceVersionService.Kind.ROOM_MEMBERS, roomId);
+        // Every member's profile shows the room's member count
+        resourceVersions.bump(ResourceVersionService.Kind.USER_ROOMS, room.getMembers().stream().map(User::getId).toList());
     }
 
     // NEW: Reject a request
     @DeleteMapping("/{roomId}/requests/{requestId}")
-    public void rejectRequest(@PathVariable Long roomId, @PathVariable Long requestId, Principal principal) {
-        getOwnedRoom(roomId, principal); // Verify ownership
+    public void rejectRequest(@PathVariable Long roomId, @PathVariable Long requestId, @AuthenticationPrincipal AuthenticatedUser me) {
+        getOwnedRoom(roomId, me); // Verify ownership
         requestRepository.deleteById(requestId);
     }
 
     // NEW: Kick a user
     @DeleteMapping("/{roomId}/members/{userId}")
-    public void kickUser(@PathVariable Long roomId, @PathVariable Long userId, Principal principal) {
-        Room room = getOwnedRoom(roomId, principal);
+    public void kickUser(@PathVariable Long roomId, @PathVariable Long userId, @AuthenticationPrincipal AuthenticatedUser me) {
+        Room room = getOwnedRoom(roomId, me);
         User userToRemove = userRepository.findById(userId)
             .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
         
@@ -101,49 +123,58 @@ public class RoomController {
 
         room.getMembers().remove(userToRemove);
         roomRepository.save(room);
+        membershipService.memberRemoved(roomId, userId);
+        cacheInvalidator.roomChanged(roomId);
+        resourceVersions.bump(ResourceVersionService.Kind.ROOM_MEMBERS, roomId);
+        List<Long> affected = new ArrayList<>(room.getMembers().stream().map(User::getId).toList());
+        affected.add(userId);
+        resourceVersions.bump(ResourceVersionService.Kind.USER_ROOMS, affected);
     }
 
     @GetMapping
-    public Set<Room> getMyRooms(Principal principal) {
-        User user = getUser(principal);
-        return user.getJoinedRooms();
+    public Set<Room> getMyRooms(@AuthenticationPrincipal AuthenticatedUser me, WebRequest request) {
+        if (ConditionalGet.notModified(request, "rooms", me.id().toString(),
+                String.valueOf(resourceVersions.get(ResourceVersionService.Kind.USER_ROOMS, me.id())))) {
+            return null;
+        }
+        return roomRepository.findByMembersId(me.id());
     }
     
     @GetMapping("/{id}/members")
-    public Set<User> getRoomMembers(@PathVariable Long id, Principal principal) {
+    public Set<User> getRoomMembers(@PathVariable Long id, @AuthenticationPrincipal AuthenticatedUser me, WebRequest request) {
+        if (!membershipService.isMember(id, me.id())) {
+            if (!roomRepository.existsById(id)) throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+        }
+        if (ConditionalGet.notModified(request, "members", id.toString(),
+                String.valueOf(resourceVersions.get(ResourceVersionService.Kind.ROOM_MEMBERS, id)))) {
+            return null;
+        }
         Room room = roomRepository.findById(id)
             .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-        
-        if (!room.getMembers().contains(getUser(principal))) {
-             throw new ResponseStatusException(HttpStatus.FORBIDDEN);
-        }
         return room.getMembers();
     }
 
+    // Set-based and chunked (DeletionService); with async=true, or while an earlier request for
+    // the same deletion is still running, answers 202 and the job can be followed at GET /api/deletions/{id}
     @DeleteMapping("/{id}")
-    public void deleteRoom(@PathVariable Long id, Principal principal) {
-        Room room = getOwnedRoom(id, principal);
-        roomRepository.delete(room);
+    public ResponseEntity<DeletionService.Job> deleteRoom(@PathVariable Long id, @AuthenticationPrincipal AuthenticatedUser me,
+                                                          @RequestParam(defaultValue = "false") boolean async) {
+        getOwnedRoom(id, me); // Verify ownership
+        DeletionService.Job job = deletions.deleteRoom(id, me.id(), async);
+        return job.state == DeletionService.State.DONE ? ResponseEntity.ok(job) : ResponseEntity.accepted().body(job);
     }
 
-    private Room getOwnedRoom(Long roomId, Principal principal) {
+    private Room getOwnedRoom(Long roomId, AuthenticatedUser me) {
         Room room = roomRepository.findById(roomId)
             .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-        if (!room.getOwner().getEmail().equals(principal.getName())) {
+        if (!room.getOwner().getId().equals(me.id())) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Only the owner can perform this action");
         }
         return room;
     }
 
-    private User getUser(Principal p) {
-        return userRepository.findByEmail(p.getName()).orElseThrow();
-    }
-
-    private String generateUniqueCode() {
-        String code;
-        do {
-            code = UUID.randomUUID().toString().substring(0, 6).toUpperCase();
-        } while (roomRepository.existsByCode(code));
-        return code;
+    private User getUser(AuthenticatedUser me) {
+        return userRepository.findById(me.id()).orElseThrow();
     }
 }
\ No newline at end of file
@@ -0,0 +1,96 @@
+package com.nyad.thought_wall.controllers;
+
+import com.nyad.thought_wall.repository.RoomRepository;
+import com.nyad.thought_wall.search.SearchIndex;
+import com.nyad.thought_wall.security.AuthenticatedUser;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/search")
+@CrossOrigin(origins = "${app.frontend.url}")
+public class SearchController {
+
+    @Autowired private SearchIndex searchIndex;
+    @Autowired private RoomRepository roomRepository;
+
+    // Accounts allowed to run maintenance commands such as the index rebuild
+    @Value("${app.admin.emails:}")
+    private Set<String> adminEmails;
+
+    // Searches thought and chat content on the caller's personal board and in their rooms.
+    // roomId narrows it to one room. Only the best app.search.max-hits matches are ranked.
+    @GetMapping
+    public SearchPage search(
+            @RequestParam String q,
+            @RequestParam(required = false) Long roomId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @AuthenticationPrincipal AuthenticatedUser me
+    ) {
+        if (q.isBlank()) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Query cannot be empty");
+        int limit = Math.clamp(size, 1, 100);
+
+        Set<Long> rooms = new HashSet<>(roomRepository.findIdsByMembersId(me.id()));
+        SearchIndex.Scope scope;
+        if (roomId != null) {
+            if (!rooms.contains(roomId)) throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+            // Personal thoughts have no room, so a negative user id keeps them out
+            scope = new SearchIndex.Scope(-1, Set.of(roomId));
+        } else {
+            scope = new SearchIndex.Scope(me.id(), rooms);
+        }
+
+        SearchIndex.Result result = searchIndex.search(q, scope, Math.max(page, 0) * limit, limit);
+        List<SearchHit> hits = result.hits().stream()
+                .map(h -> new SearchHit(h.doc().kind().name(), h.doc().id(), h.doc().roomId(), h.doc().preview(), h.score()))
+                .toList();
+        return new SearchPage(hits, page, limit, result.total());
+    }
+
+    @PostMapping("/rebuild")
+    public Map<String, Object> rebuild(@AuthenticationPrincipal AuthenticatedUser me) {
+        if (!adminEmails.contains(me.email())) throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+        if (!searchIndex.rebuild()) throw new ResponseStatusException(HttpStatus.CONFLICT, "Rebuild already running");
+        return Map.of("documents", searchIndex.size());
+    }
+
+    public static class SearchHit {
+        public String kind; // THOUGHT or CHAT
+        public long id;
+        public Long roomId; // null for personal thoughts
+        public String preview;
+        public double score;
+
+        public SearchHit(String kind, long id, Long roomId, String preview, double score) {
+            this.kind = kind;
+            this.id = id;
+            this.roomId = roomId;
+            this.preview = preview;
+            this.score = score;
+        }
+    }
+
+    public static class SearchPage {
+        public List<SearchHit> hits;
+        public int page;
+        public int size;
+        public int totalHits; // capped at app.search.max-hits
+
+        public SearchPage(List<SearchHit> hits, int page, int size, int totalHits) {
+            this.hits = hits;
+            this.page = page;
+            this.size = size;
+            this.totalHits = totalHits;
+        }
+    }
+}
@@ -1,26 +1,46 @@
 package com.nyad.thought_wall.controllers;
 
+import com.nyad.thought_wall.dto.BoardChanges;
+import com.nyad.thought_wall.dto.ThoughtBatch;
+import com.nyad.thought_wall.entity.Tag;
 import com.nyad.thought_wall.entity.Thought;
 import com.nyad.thought_wall.entity.Room;
 import com.nyad.thought_wall.entity.User;
+import com.nyad.thought_wall.repository.BoardScope;
+import com.nyad.thought_wall.repository.ThoughtCursor;
 import com.nyad.thought_wall.repository.ThoughtRepository;
+import com.nyad.thought_wall.repository.ThoughtSpecs;
 import com.nyad.thought_wall.repository.UserRepository;
 import com.nyad.thought_wall.repository.RoomRepository;
+import com.nyad.thought_wall.search.SearchIndex;
+import com.nyad.thought_wall.security.AuthenticatedUser;
+import com.nyad.thought_wall.service.BoardVersionService;
+import com.nyad.thought_wall.service.RateLimiter;
+import com.nyad.thought_wall.service.ResourceVersionService;
+import com.nyad.thought_wall.service.RoomEventPublisher;
+import com.nyad.thought_wall.service.RoomMembershipService;
+import com.nyad.thought_wall.service.TagCountService;
+import com.nyad.thought_wall.service.TagDictionary;
+import com.nyad.thought_wall.service.ThoughtBatchService;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.security.Principal;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/thoughts")
@@ -30,7 +50,19 @@ public class ThoughtController {
     @Autowired private ThoughtRepository repository;
     @Autowired private UserRepository userRepository;
     @Autowired private RoomRepository roomRepository;
-    @Autowired private SimpMessagingTemplate messagingTemplate;
+    @Autowired private RoomEventPublisher events;
+    @Autowired private SearchIndex searchIndex;
+    @Autowired private TagDictionary tags;
+    @Autowired private TagCountService tagCounts;
+    @Autowired private RoomMembershipService membershipService;
+    @Autowired private ThoughtBatchService batchService;
+    @Autowired private BoardVersionService versions;
+    @Autowired private ResourceVersionService resourceVersions;
+    @Autowired private TransactionTemplate transactionTemplate;
+    @Autowired private RateLimiter rateLimiter;
+
+    @Value("${app.thoughts.batch.max-operations:200}")
+    private int maxBatchOperations;
 
     @GetMapping
     public Page<Thought> getAllThoughts(
@@ -38,8 +70,17 @@ public class ThoughtController {
             @RequestParam(required = false) String tag,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            Principal principal
+            @AuthenticationPrincipal AuthenticatedUser me,
+            WebRequest request
     ) {
+        if (roomId != null) checkRoomMember(roomId, me.id());
+        // Every write to the board bumps its version, so the version alone identifies the page
+        BoardScope board = roomId != null ? BoardScope.room(roomId) : BoardScope.personal(me.id());
+        if (ConditionalGet.notModified(request, "board", board.roomId() + "." + board.userId(),
+                String.valueOf(versions.current(board)))) {
+            return null;
+        }
+
         Sort sort = Sort.by(
             Sort.Order.asc("completed"),
             Sort.Order.asc("dueDate"),
@@ -47,108 +88,279 @@ public class ThoughtController {
             Sort.Order.desc("createdAt")
         );
         Pageable pageable = PageRequest.of(page, size, sort);
-        String email = principal.getName();
 
+        if (!isTagFilter(tag)) {
+            return roomId != null
+                    ? repository.findRoomThoughts(roomId, pageable)
+                    : repository.findPersonalThoughts(me.id(), pageable);
+        }
+
+        // A name that is not in the dictionary cannot match anything
+        Tag filter = tags.find(tag).orElse(null);
+        if (filter == null) return Page.empty(pageable);
+        return roomId != null
+                ? repository.findRoomThoughtsByTag(roomId, filter.getId(), pageable)
+                : repository.findPersonalThoughtsByTag(me.id(), filter.getId(), pageable);
+    }
+
+    // Keyset pagination: omit the cursor for the first page, then pass back nextCursor.
+    // Deep pages cost the same as the first one. The total needs a COUNT(*) so it is opt-in.
+    @GetMapping("/scroll")
+    public CursorPage<Thought> scrollThoughts(
+            @RequestParam(required = false) Long roomId,
+            @RequestParam(required = false) String tag,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal,
+            @AuthenticationPrincipal AuthenticatedUser me
+    ) {
+        int limit = Math.clamp(size, 1, 100);
+        Integer tagFilter = null;
+        if (isTagFilter(tag)) {
+            Tag filter = tags.find(tag).orElse(null);
+            if (filter == null) return new CursorPage<>(List.of(), null, false, includeTotal ? 0L : null);
+            tagFilter = filter.getId();
+        }
+
+        Specification<Thought> board;
         if (roomId != null) {
-            Room room = roomRepository.findById(roomId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Room not found"));
-            
-            User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
-            
-            if(!room.getMembers().contains(user)) throw new ResponseStatusException(HttpStatus.FORBIDDEN);
-
-            if (tag != null && !tag.equals("All") && !tag.isEmpty()) {
-                return repository.findByRoomIdAndTag(roomId, tag, pageable);
-            }
-            return repository.findByRoomId(roomId, pageable);
+            checkRoomMember(roomId, me.id());
+            board = ThoughtSpecs.roomBoard(roomId, tagFilter);
         } else {
-            if (tag != null && !tag.equals("All") && !tag.isEmpty()) {
-                return repository.findPersonalThoughtsByTag(email, tag, pageable);
+            board = ThoughtSpecs.personalBoard(me.id(), tagFilter);
+        }
+
+        Specification<Thought> query = board;
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                query = board.and(ThoughtSpecs.after(ThoughtCursor.decode(cursor)));
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
             }
-            return repository.findPersonalThoughts(email, pageable);
         }
+
+        // Fetch one extra row to know whether another page exists without counting
+        List<Thought> rows = repository.findBy(query, q -> q.sortBy(ThoughtSpecs.BOARD_ORDER).project("tagRef", "assignedTo").limit(limit + 1).all());
+        boolean hasMore = rows.size() > limit;
+        List<Thought> content = hasMore ? rows.subList(0, limit) : rows;
+        String nextCursor = hasMore ? ThoughtCursor.of(content.get(content.size() - 1)).encode() : null;
+        Long total = includeTotal ? repository.count(board) : null;
+
+        return new CursorPage<>(content, nextCursor, hasMore, total);
     }
 
     @PostMapping
-    public Thought createThought(@Valid @RequestBody ThoughtRequest request, Principal principal) {
-        User user = userRepository.findByEmail(principal.getName())
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-        
+    public Thought createThought(@Valid @RequestBody ThoughtRequest request, @AuthenticationPrincipal AuthenticatedUser me) {
+        rateLimiter.acquireThoughtWrites(me.id(), 1);
         Thought thought = new Thought();
         thought.setContent(request.content);
-        thought.setTag(request.tag == null || request.tag.isEmpty() ? "General" : request.tag);
-        thought.setUser(user);
+        thought.setTagRef(tags.resolve(request.tag));
+        // Only the FK is needed, so no users SELECT (Thought.user is never serialized)
+        thought.setUser(userRepository.getReferenceById(me.id()));
         thought.setDueDate(request.dueDate);
         thought.setCompleted(false);
 
         if (request.roomId != null) {
+            checkRoomMember(request.roomId, me.id());
+
             Room room = roomRepository.findById(request.roomId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Room not found"));
-            
-            if(!room.getMembers().contains(user)) throw new ResponseStatusException(HttpStatus.FORBIDDEN);
             thought.setRoom(room);
         }
         
-        Thought saved = repository.save(thought);
-        notifyRoom(saved.getRoom());
+        // The board version, the tag counts and the row commit together (see BoardVersionService)
+        Thought saved = transactionTemplate.execute(status -> {
+            thought.setChangeVersion(versions.next(BoardScope.of(thought)));
+            Thought created = repository.save(thought);
+            tagCounts.thoughtCreated(created);
+            return created;
+        });
+        searchIndex.indexThought(saved.getId(), request.roomId, me.id(), saved.getContent());
+        if (saved.getRoom() != null) events.thoughtCreated(saved);
         return saved;
     }
 
     @PutMapping("/{id}")
-    public Thought updateThought(@PathVariable Long id, @RequestBody Thought updates, Principal principal) {
+    public Thought updateThought(@PathVariable Long id, @RequestBody Thought updates, @AuthenticationPrincipal AuthenticatedUser me) {
+        rateLimiter.acquireThoughtWrites(me.id(), 1);
         Thought thought = repository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Thought not found"));
         
-        boolean isOwner = thought.getUser().getEmail().equals(principal.getName());
-        boolean inSameRoom = thought.getRoom() != null && thought.getRoom().getMembers().stream()
-                             .anyMatch(u -> u.getEmail().equals(principal.getName()));
+        boolean isOwner = thought.getUser().getId().equals(me.id());
+        boolean inSameRoom = !isOwner && thought.getRoom() != null
+                             && membershipService.isMember(thought.getRoom().getId(), me.id());
 
         if (!isOwner && !inSameRoom) {
              throw new ResponseStatusException(HttpStatus.FORBIDDEN);
         }
 
+        BoardScope board = BoardScope.of(thought);
+        Integer oldTagId = thought.getTagRef() != null ? thought.getTagRef().getId() : null;
+        boolean wasCompleted = thought.isCompleted();
+        User oldAssignee = thought.getAssignedTo();
+
+        // Checked before the tag below is resolved, which may create it
+        User newAssignee = null;
+        if (updates.getAssignedTo() != null) {
+             User assignee = userRepository.findById(updates.getAssignedTo().getId())
+                     .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown assignee"));
+             // Same rule as the batch endpoint: a room member, or the author on a personal board
+             boolean onBoard = thought.getRoom() != null
+                     ? membershipService.isMember(thought.getRoom().getId(), assignee.getId())
+                     : assignee.getId().equals(thought.getUser().getId());
+             if (!onBoard) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Assignee is not a member of the board");
+             newAssignee = assignee;
+        }
+
         if (updates.getContent() != null && !updates.getContent().isBlank()) {
             thought.setContent(updates.getContent());
         }
-        if (updates.getTag() != null) thought.setTag(updates.getTag());
+        if (updates.getTag() != null) {
+            if (updates.getTag().length() > 20) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Tag too long");
+            thought.setTagRef(tags.resolve(updates.getTag()));
+        }
         thought.setPinned(updates.isPinned());
         thought.setCompleted(updates.isCompleted());
         thought.setDueDate(updates.getDueDate());
-        
-        if (updates.getAssignedTo() != null) {
-             User assignee = userRepository.findById(updates.getAssignedTo().getId()).orElse(null);
-             thought.setAssignedTo(assignee);
-        } else {
-             thought.setAssignedTo(null);
-        }
+        thought.setAssignedTo(newAssignee);
 
-        Thought saved = repository.save(thought);
-        notifyRoom(saved.getRoom());
+        Thought saved = transactionTemplate.execute(status -> {
+            thought.setChangeVersion(versions.next(board));
+            Thought updated = repository.save(thought);
+            Integer newTagId = updated.getTagRef() != null ? updated.getTagRef().getId() : null;
+            tagCounts.thoughtChanged(board, oldTagId, wasCompleted, newTagId, updated.isCompleted());
+            return updated;
+        });
+        searchIndex.indexThought(saved.getId(), saved.getRoom() != null ? saved.getRoom().getId() : null,
+                saved.getUser().getId(), saved.getContent());
+        assignedChanged(oldAssignee, saved.getAssignedTo());
+        if (saved.getRoom() != null) events.thoughtUpdated(saved);
         return saved;
     }
 
     @DeleteMapping("/{id}")
-    public void deleteThought(@PathVariable Long id, Principal principal) {
+    public void deleteThought(@PathVariable Long id, @AuthenticationPrincipal AuthenticatedUser me) {
+        rateLimiter.acquireThoughtWrites(me.id(), 1);
         Thought thought = repository.findById(id)
             .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Thought not found"));
         
-        if (!thought.getUser().getEmail().equals(principal.getName())) {
+        if (!thought.getUser().getId().equals(me.id())) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN);
         }
         Room room = thought.getRoom();
-        repository.deleteById(id);
-        notifyRoom(room);
+        BoardScope board = BoardScope.of(thought);
+        Integer tagId = thought.getTagRef() != null ? thought.getTagRef().getId() : null;
+        transactionTemplate.executeWithoutResult(status -> {
+            repository.deleteById(id);
+            versions.tombstones(board, versions.next(board), List.of(id));
+            tagCounts.thoughtDeleted(board, tagId, thought.isCompleted());
+        });
+        searchIndex.removeThought(id);
+        assignedChanged(thought.getAssignedTo(), null);
+        if (room != null) events.thoughtDeleted(room.getId(), id);
     }
     
+    // Mixed create/update/delete in one transaction, e.g. moving several Kanban cards or
+    // clearing completed ones. Always 200; each operation reports its own status.
+    @PostMapping("/batch")
+    public List<ThoughtBatch.Result> batch(@RequestBody List<ThoughtBatch.Op> operations, @AuthenticationPrincipal AuthenticatedUser me) {
+        if (operations.size() > maxBatchOperations) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + maxBatchOperations + " operations per batch");
+        }
+        if (operations.isEmpty()) return List.of();
+        rateLimiter.acquireThoughtWrites(me.id(), operations.size());
+        return batchService.apply(operations, me.id());
+    }
+
+    // Retags every thought with oldTag on the personal board, or on a room board with roomId
     @PutMapping("/tags/migrate")
-    public void migrateTag(@RequestParam String oldTag, @RequestParam String newTag, Principal principal) {
-        repository.updateTagForUser(oldTag, newTag, principal.getName());
+    public void migrateTag(
+            @RequestParam String oldTag,
+            @RequestParam String newTag,
+            @RequestParam(required = false) Long roomId,
+            @AuthenticationPrincipal AuthenticatedUser me
+    ) {
+        if (newTag.length() > 20) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Tag too long");
+        if (roomId != null) checkRoomMember(roomId, me.id());
+        Tag from = tags.find(oldTag).orElse(null);
+        if (from == null) return; // nothing is tagged with it
+        Tag to = tags.resolve(newTag);
+
+        if (roomId == null) {
+            BoardScope personal = BoardScope.personal(me.id());
+            transactionTemplate.executeWithoutResult(status -> {
+                repository.updateTagForUser(from, to, me.id(), versions.next(personal));
+                tagCounts.tagMoved(personal, from.getId(), to.getId());
+            });
+            return;
+        }
+
+        BoardScope room = BoardScope.room(roomId);
+        List<Long> ids = transactionTemplate.execute(status -> {
+            long version = versions.next(room);
+            // Read under the board lock, so the list matches what the update changes
+            List<Long> retagged = repository.findIdsByRoomIdAndTag(roomId, from);
+            repository.updateTagForRoom(from, to, roomId, version);
+            tagCounts.tagMoved(room, from.getId(), to.getId());
+            return retagged;
+        });
+        // Members patch their boards from the events; the coalescer sends them in one message
+        repository.findAllById(ids).forEach(events::thoughtUpdated);
+    }
+
+    // Incremental sync: thoughts changed and deleted on a board since version `since`.
+    // Without since it only returns the current version, to take before loading the board.
+    @GetMapping("/changes")
+    public BoardChanges changes(
+            @RequestParam(required = false) Long roomId,
+            @RequestParam(required = false) Long since,
+            @AuthenticationPrincipal AuthenticatedUser me
+    ) {
+        if (roomId != null) checkRoomMember(roomId, me.id());
+        BoardScope board = roomId != null ? BoardScope.room(roomId) : BoardScope.personal(me.id());
+        if (since == null) return BoardChanges.none(versions.current(board));
+        return versions.changes(board, since);
+    }
+
+    // Tag -> open/completed counts for the personal board, or a room board with roomId
+    @GetMapping("/tags/facets")
+    public List<TagCountService.Facet> tagFacets(@RequestParam(required = false) Long roomId, @AuthenticationPrincipal AuthenticatedUser me) {
+        if (roomId == null) return tagCounts.facets(BoardScope.personal(me.id()));
+        checkRoomMember(roomId, me.id());
+        return tagCounts.facets(BoardScope.room(roomId));
     }
 
-    private void notifyRoom(Room room) {
-        if (room != null) {
-            messagingTemplate.convertAndSend("/topic/room/" + room.getId(), "UPDATE");
+    // The assignees' profiles list the thought
+    private void assignedChanged(User before, User after) {
+        if (before != null) resourceVersions.bump(ResourceVersionService.Kind.USER_ASSIGNED, before.getId());
+        if (after != null && (before == null || !after.getId().equals(before.getId()))) {
+            resourceVersions.bump(ResourceVersionService.Kind.USER_ASSIGNED, after.getId());
+        }
+    }
+
+    private void checkRoomMember(Long roomId, Long userId) {
+        if (!membershipService.isMember(roomId, userId)) {
+            // Only the rejection path pays for telling a missing room apart from a forbidden one
+            if (!roomRepository.existsById(roomId)) throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Room not found");
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+        }
+    }
+
+    private static boolean isTagFilter(String tag) {
+        return tag != null && !tag.equals("All") && !tag.isEmpty();
+    }
+
+    public static class CursorPage<T> {
+        public List<T> content;
+        public String nextCursor;
+        public boolean hasMore;
+        public Long totalElements; // null unless includeTotal=true
+
+        public CursorPage(List<T> content, String nextCursor, boolean hasMore, Long totalElements) {
+            this.content = content;
+            this.nextCursor = nextCursor;
+            this.hasMore = hasMore;
+            this.totalElements = totalElements;
         }
     }
 
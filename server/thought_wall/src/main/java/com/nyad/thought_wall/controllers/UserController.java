@@ -1,19 +1,22 @@
 package com.nyad.thought_wall.controllers;
 
-import com.nyad.thought_wall.entity.Room;
-import com.nyad.thought_wall.entity.Thought;
-import com.nyad.thought_wall.entity.User;
+import com.nyad.thought_wall.dto.AssignedTask;
+import com.nyad.thought_wall.dto.RoomSummary;
+import com.nyad.thought_wall.repository.RoomRepository;
 import com.nyad.thought_wall.repository.ThoughtRepository;
 import com.nyad.thought_wall.repository.UserRepository;
+import com.nyad.thought_wall.security.AuthenticatedUser;
+import com.nyad.thought_wall.service.DeletionService;
+import com.nyad.thought_wall.service.ResourceVersionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.security.Principal;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/users")
@@ -22,66 +25,51 @@ public class UserController {
 
     @Autowired private UserRepository userRepository;
     @Autowired private ThoughtRepository thoughtRepository;
+    @Autowired private ResourceVersionService resourceVersions;
+    @Autowired private RoomRepository roomRepository;
+    @Autowired private DeletionService deletions;
 
+    // Four statements whatever the user's data: email, owned rooms, joined rooms, assigned tasks
     @GetMapping("/profile")
-    public UserProfileDTO getProfile(Principal principal) {
-        User user = getUser(principal);
-        List<Thought> assigned = thoughtRepository.findByAssignedToEmail(user.getEmail());
-        
-        List<AssignedThoughtDTO> assignedDTOs = assigned.stream()
-            .map(t -> new AssignedThoughtDTO(
-                t.getId(), 
-                t.getContent(), 
-                t.getRoom() != null ? t.getRoom().getName() : "Personal",
-                t.isCompleted()
-            ))
-            .collect(Collectors.toList());
+    public UserProfileDTO getProfile(@AuthenticationPrincipal AuthenticatedUser me, WebRequest request) {
+        if (ConditionalGet.notModified(request, "profile", me.id().toString(),
+                String.valueOf(resourceVersions.get(ResourceVersionService.Kind.USER_ROOMS, me.id())),
+                String.valueOf(resourceVersions.get(ResourceVersionService.Kind.USER_ASSIGNED, me.id())))) {
+            return null;
+        }
+        String email = userRepository.findEmailById(me.id())
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
 
         return new UserProfileDTO(
-            user.getEmail(),
-            user.getOwnedRooms(),
-            user.getJoinedRooms(),
-            assignedDTOs
+            email,
+            roomRepository.findSummariesByOwnerId(me.id()),
+            roomRepository.findSummariesByMemberId(me.id()),
+            thoughtRepository.findAssignedTasks(me.id())
         );
     }
 
+    // Set-based and chunked (DeletionService); with async=true, or while an earlier request for
+    // the same deletion is still running, answers 202 and the job can be followed at GET /api/deletions/{id}
     @DeleteMapping("/me")
-    public void deleteAccount(Principal principal) {
-        User user = getUser(principal);
-        userRepository.delete(user);
-    }
-
-    private User getUser(Principal p) {
-        return userRepository.findByEmail(p.getName())
-            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    public ResponseEntity<DeletionService.Job> deleteAccount(@AuthenticationPrincipal AuthenticatedUser me,
+                                                             @RequestParam(defaultValue = "false") boolean async) {
+        if (!userRepository.existsById(me.id())) throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        DeletionService.Job job = deletions.deleteAccount(me.id(), async);
+        return job.state == DeletionService.State.DONE ? ResponseEntity.ok(job) : ResponseEntity.accepted().body(job);
     }
 
     // DTOs for Profile Response
     static class UserProfileDTO {
         public String email;
-        public Set<Room> ownedRooms;
-        public Set<Room> joinedRooms;
-        public List<AssignedThoughtDTO> assignedTasks;
+        public List<RoomSummary> ownedRooms;
+        public List<RoomSummary> joinedRooms;
+        public List<AssignedTask> assignedTasks;
 
-        public UserProfileDTO(String email, Set<Room> ownedRooms, Set<Room> joinedRooms, List<AssignedThoughtDTO> assignedTasks) {
+        public UserProfileDTO(String email, List<RoomSummary> ownedRooms, List<RoomSummary> joinedRooms, List<AssignedTask> assignedTasks) {
             this.email = email;
             this.ownedRooms = ownedRooms;
             this.joinedRooms = joinedRooms;
             this.assignedTasks = assignedTasks;
         }
     }
-
-    static class AssignedThoughtDTO {
-        public Long id;
-        public String content;
-        public String roomName;
-        public boolean completed;
-
-        public AssignedThoughtDTO(Long id, String content, String roomName, boolean completed) {
-            this.id = id;
-            this.content = content;
-            this.roomName = roomName;
-            this.completed = completed;
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,4 @@
+package com.nyad.thought_wall.dto;
+
+/** A thought assigned to the caller, with its room's name ("Personal" for personal boards). */
+public record AssignedTask(Long id, String content, String roomName, boolean completed) {}
@@ -0,0 +1,24 @@
+package com.nyad.thought_wall.dto;
+
+import com.nyad.thought_wall.entity.Thought;
+
+import java.util.List;
+
+/**
+ * Response of GET /api/thoughts/changes: what happened on a board after the client's version.
+ * Pass {@code version} back as {@code since} next time. With hasMore, ask again right away.
+ * changed and deleted together hold at most app.sync.max-changes rows, unless a single version
+ * (one batch) has more, since a page always ends on a whole version.
+ * reset means the changes are no longer known (tombstones purged, or a version from another
+ * database) and the client has to reload the board.
+ */
+public record BoardChanges(long version, boolean reset, boolean hasMore, List<Thought> changed, List<Long> deleted) {
+
+    public static BoardChanges reset(long version) {
+        return new BoardChanges(version, true, false, List.of(), List.of());
+    }
+
+    public static BoardChanges none(long version) {
+        return new BoardChanges(version, false, false, List.of(), List.of());
+    }
+}
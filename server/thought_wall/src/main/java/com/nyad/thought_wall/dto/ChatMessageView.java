@@ -0,0 +1,10 @@
+package com.nyad.thought_wall.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Wire format for chat messages, both for history pages and for the
+ * /topic/room/{roomId}/chat broadcast. Built straight from a JPQL projection
+ * so history reads never load the sender User or the Room.
+ */
+public record ChatMessageView(Long id, String senderEmail, String content, LocalDateTime timestamp) {}
@@ -0,0 +1,10 @@
+package com.nyad.thought_wall.dto;
+
+import java.util.List;
+
+/**
+ * One message on /topic/room/{roomId}/events: the room's events from one coalescing
+ * window, in version order. Versions are counted per node, so clients track them per
+ * {@code node} when several nodes publish for the same room.
+ */
+public record RoomEvents(Long roomId, int node, List<ThoughtEvent> events) {}
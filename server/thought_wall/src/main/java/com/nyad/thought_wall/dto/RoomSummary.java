@@ -0,0 +1,4 @@
+package com.nyad.thought_wall.dto;
+
+/** A room as the profile page lists it: no owner or member entities, just the member count. */
+public record RoomSummary(Long id, String name, String code, Long ownerId, long memberCount) {}
@@ -0,0 +1,40 @@
+package com.nyad.thought_wall.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Request and response items for POST /api/thoughts/batch.
+ *
+ * An UPDATE carries the same fields as PUT /api/thoughts/{id}: content and tag are kept when
+ * null, while pinned, completed, dueDate and assignedTo (a user id) are always replaced.
+ */
+public final class ThoughtBatch {
+
+    private ThoughtBatch() {}
+
+    public enum Action { CREATE, UPDATE, DELETE }
+
+    public record Op(
+            Action op,
+            Long id,          // UPDATE and DELETE
+            Long roomId,      // CREATE; null for the personal board
+            String content,
+            String tag,
+            boolean pinned,
+            boolean completed,
+            LocalDateTime dueDate,
+            Long assignedTo
+    ) {}
+
+    /** One per operation, in request order. status is an HTTP status code; thought is null for deletes and failures. */
+    public record Result(int index, int status, Long id, String error, ThoughtView thought) {
+
+        public static Result ok(int index, Long id, ThoughtView thought) {
+            return new Result(index, 200, id, null, thought);
+        }
+
+        public static Result failed(int index, int status, Long id, String error) {
+            return new Result(index, status, id, error, null);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.nyad.thought_wall.dto;
+
+/**
+ * A thought write in a room, delivered inside a {@link RoomEvents} message.
+ *
+ * {@code version} increases by exactly one per event within a room, so a client that sees
+ * anything other than lastVersion + 1 has missed an event (or the server restarted) and
+ * should refetch the board instead of patching it. {@code thought} is null for DELETED.
+ */
+public record ThoughtEvent(Type type, Long roomId, long version, Long thoughtId, ThoughtView thought) {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+}
@@ -0,0 +1,40 @@
+package com.nyad.thought_wall.dto;
+
+import com.nyad.thought_wall.entity.Thought;
+import com.nyad.thought_wall.entity.User;
+
+import java.time.LocalDateTime;
+
+/**
+ * Compact thought payload for room events: the fields a board card renders, with the
+ * room reduced to its id and the assignee to id + email (no nested Room/owner/members).
+ */
+public record ThoughtView(
+        Long id,
+        String content,
+        String tag,
+        boolean pinned,
+        boolean completed,
+        LocalDateTime createdAt,
+        LocalDateTime dueDate,
+        Long roomId,
+        Assignee assignedTo,
+        long changeVersion
+) {
+    public record Assignee(Long id, String email) {}
+
+    public static ThoughtView of(Thought t) {
+        User a = t.getAssignedTo();
+        return new ThoughtView(
+                t.getId(),
+                t.getContent(),
+                t.getTag(),
+                t.isPinned(),
+                t.isCompleted(),
+                t.getCreatedAt(),
+                t.getDueDate(),
+                t.getRoom() != null ? t.getRoom().getId() : null,
+                a != null ? new Assignee(a.getId(), a.getEmail()) : null,
+                t.getChangeVersion());
+    }
+}
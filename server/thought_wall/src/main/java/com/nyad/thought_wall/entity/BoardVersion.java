@@ -0,0 +1,36 @@
+package com.nyad.thought_wall.entity;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+
+/**
+ * Change counter per board, bumped by BoardVersionService in the same transaction as every
+ * thought write on that board. A room board is (roomId, 0), a personal board is (0, userId).
+ * prunedVersion is the newest tombstone version that has been purged: clients asking for
+ * changes since an older version have to reload instead.
+ */
+@Entity
+@Table(name = "board_versions")
+public class BoardVersion {
+
+    @EmbeddedId
+    private Key key;
+
+    @Column(nullable = false)
+    private long version;
+
+    @Column(name = "pruned_version", nullable = false)
+    private long prunedVersion;
+
+    public BoardVersion() {}
+
+    public Key getKey() { return key; }
+    public long getVersion() { return version; }
+    public long getPrunedVersion() { return prunedVersion; }
+
+    @Embeddable
+    public record Key(
+            @Column(name = "room_id") long roomId,
+            @Column(name = "user_id") long userId
+    ) implements Serializable {}
+}
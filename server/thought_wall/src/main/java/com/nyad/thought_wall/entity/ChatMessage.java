@@ -1,29 +1,36 @@
 package com.nyad.thought_wall.entity;
 
+import com.nyad.thought_wall.util.TimeOrderedId;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 @Entity
-@Table(name = "chat_messages")
+@Table(name = "chat_messages", indexes = {
+    // History pages seek backwards from a (timestamp, id) cursor within one room
+    @Index(name = "idx_chat_room_ts", columnList = "room_id, `timestamp`, id")
+})
 public class ChatMessage {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @TimeOrderedId
     private Long id;
 
     @Column(nullable = false)
     private String content;
 
+    // Reserved word on H2 and in standard SQL; quoted explicitly rather than via auto_quote_keyword,
+    // which does nothing for the JDBC statements (see SqlIdentifiers)
+    @Column(name = "`timestamp`")
     private LocalDateTime timestamp;
 
     // The user who sent the message
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "sender_id")
     @JsonIgnoreProperties({"password", "thoughts", "joinedRooms", "ownedRooms", "assignedTasks"}) 
     private User sender;
 
     // The room this message belongs to
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "room_id")
     @JsonIgnoreProperties("members") // Prevent recursion
     private Room room;
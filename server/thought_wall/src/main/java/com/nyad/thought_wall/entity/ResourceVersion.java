@@ -0,0 +1,30 @@
+package com.nyad.thought_wall.entity;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+
+/**
+ * Change counter for a non-board resource (a user's room list, a room's members, ...),
+ * bumped by ResourceVersionService after every write to it and used for ETags.
+ */
+@Entity
+@Table(name = "resource_versions")
+public class ResourceVersion {
+
+    @EmbeddedId
+    private Key key;
+
+    @Column(nullable = false)
+    private long version;
+
+    public ResourceVersion() {}
+
+    public Key getKey() { return key; }
+    public long getVersion() { return version; }
+
+    @Embeddable
+    public record Key(
+            @Column(name = "kind", length = 16) String kind,
+            @Column(name = "resource_id") long resourceId
+    ) implements Serializable {}
+}
@@ -1,16 +1,25 @@
 package com.nyad.thought_wall.entity;
 
+import com.nyad.thought_wall.config.SecondLevelCacheConfig;
+import com.nyad.thought_wall.util.TimeOrderedId;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
 
 @Entity
 @Table(name = "rooms")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.ROOMS)
+// Lazy proxies that do get serialized must not expose Hibernate's internals
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Room {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @TimeOrderedId
     private Long id;
 
     @Column(nullable = false)
@@ -19,7 +28,7 @@ public class Room {
     @Column(unique = true, nullable = false)
     private String code;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "owner_id")
     private User owner;
 
@@ -30,10 +39,11 @@ public class Room {
         inverseJoinColumns = @JoinColumn(name = "user_id")
     )
     @JsonIgnore
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.ROOM_MEMBERS)
     private Set<User> members = new HashSet<>();
 
-    // Cascade: If Room is deleted, delete all Thoughts inside it
-    @OneToMany(mappedBy = "room", cascade = CascadeType.ALL, orphanRemoval = true)
+    // Deleted with the room by DeletionService, in bulk rather than through a cascade
+    @OneToMany(mappedBy = "room")
     @JsonIgnore
     private Set<Thought> thoughts = new HashSet<>();
 
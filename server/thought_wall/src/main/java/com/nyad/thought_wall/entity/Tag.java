@@ -0,0 +1,24 @@
+package com.nyad.thought_wall.entity;
+
+import jakarta.persistence.*;
+
+// Dictionary of tag names; thoughts and tag_counts refer to tags by this small id
+@Entity
+@Table(name = "tags")
+public class Tag {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(unique = true, nullable = false, length = 20)
+    private String name;
+
+    public Tag() {}
+
+    public Tag(String name) {
+        this.name = name;
+    }
+
+    public Integer getId() { return id; }
+    public String getName() { return name; }
+}
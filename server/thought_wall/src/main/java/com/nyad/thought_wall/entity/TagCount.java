@@ -0,0 +1,37 @@
+package com.nyad.thought_wall.entity;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+
+/**
+ * Open/completed thought counts per tag and board, kept up to date by TagCountService on
+ * every thought write. A room board is (roomId, 0), a personal board is (0, userId).
+ */
+@Entity
+@Table(name = "tag_counts", indexes = {
+    @Index(name = "idx_tag_counts_board", columnList = "room_id, user_id")
+})
+public class TagCount {
+
+    @EmbeddedId
+    private Key key;
+
+    @Column(name = "open_count", nullable = false)
+    private long openCount;
+
+    @Column(name = "completed_count", nullable = false)
+    private long completedCount;
+
+    public TagCount() {}
+
+    public Key getKey() { return key; }
+    public long getOpenCount() { return openCount; }
+    public long getCompletedCount() { return completedCount; }
+
+    @Embeddable
+    public record Key(
+            @Column(name = "room_id") long roomId,
+            @Column(name = "user_id") long userId,
+            @Column(name = "tag_id") int tagId
+    ) implements Serializable {}
+}
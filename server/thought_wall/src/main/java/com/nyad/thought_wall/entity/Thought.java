@@ -1,21 +1,46 @@
 package com.nyad.thought_wall.entity;
 
+import com.nyad.thought_wall.util.TimeOrderedId;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 @Entity
-@Table(name = "thoughts")
+// Board indexes follow ThoughtSpecs.BOARD_ORDER so keyset pages are plain index range scans
+@Table(name = "thoughts", indexes = {
+    @Index(name = "idx_thoughts_room_board", columnList = "room_id, completed, due_date, pinned DESC, created_at DESC, id DESC"),
+    @Index(name = "idx_thoughts_room_tag_board", columnList = "room_id, tag_id, completed, due_date, pinned DESC, created_at DESC, id DESC"),
+    @Index(name = "idx_thoughts_user_board", columnList = "user_id, room_id, completed, due_date, pinned DESC, created_at DESC, id DESC"),
+    @Index(name = "idx_thoughts_user_tag_board", columnList = "user_id, room_id, tag_id, completed, due_date, pinned DESC, created_at DESC, id DESC"),
+    // GET /api/thoughts/changes
+    @Index(name = "idx_thoughts_room_changes", columnList = "room_id, change_version"),
+    @Index(name = "idx_thoughts_user_changes", columnList = "user_id, room_id, change_version")
+})
+@NamedEntityGraph(name = Thought.CARD, attributeNodes = {
+    @NamedAttributeNode("tagRef"),
+    @NamedAttributeNode("assignedTo")
+})
 public class Thought {
+    // Fetch plan for anything that returns board cards
+    public static final String CARD = "Thought.card";
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @TimeOrderedId
     private Long id;
 
     @Column(nullable = false, length = 1000) // Increased length for Markdown
     private String content;
 
+    // Stored as a small id into the tags dictionary; the API still shows the name
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "tag_id")
+    @JsonIgnore
+    private Tag tagRef;
+
+    // Name as sent by clients, resolved into tagRef through TagDictionary before saving
+    @Transient
     private String tag;
+
     private boolean pinned;
     private boolean completed;
 
@@ -25,19 +50,26 @@ public class Thought {
     @Column(name = "due_date")
     private LocalDateTime dueDate; // New Field
 
-    @ManyToOne
+    // Associations are lazy; each endpoint's query says what it fetches (see ThoughtRepository)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     @JsonIgnore
     private User user;
 
-    @ManyToOne
+    // Clients get roomId (getRoomId) instead of the whole room with its owner
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "room_id")
+    @JsonIgnore
     private Room room;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "assigned_to")
     private User assignedTo;
 
+    // Board version of the last write (BoardVersionService); 0 for rows older than the counter
+    @Column(name = "change_version", nullable = false)
+    private long changeVersion;
+
     public Thought() {}
 
     @PrePersist
@@ -50,8 +82,10 @@ public class Thought {
     public void setId(Long id) { this.id = id; }
     public String getContent() { return content; }
     public void setContent(String content) { this.content = content; }
-    public String getTag() { return tag; }
+    public String getTag() { return tagRef != null ? tagRef.getName() : tag; }
     public void setTag(String tag) { this.tag = tag; }
+    public Tag getTagRef() { return tagRef; }
+    public void setTagRef(Tag tagRef) { this.tagRef = tagRef; }
     public boolean isPinned() { return pinned; }
     public void setPinned(boolean pinned) { this.pinned = pinned; }
     public boolean isCompleted() { return completed; }
@@ -63,6 +97,10 @@ public class Thought {
     public void setUser(User user) { this.user = user; }
     public Room getRoom() { return room; }
     public void setRoom(Room room) { this.room = room; }
+    // Reading the id of a lazy room does not load it
+    public Long getRoomId() { return room != null ? room.getId() : null; }
     public User getAssignedTo() { return assignedTo; }
     public void setAssignedTo(User assignedTo) { this.assignedTo = assignedTo; }
+    public long getChangeVersion() { return changeVersion; }
+    public void setChangeVersion(long changeVersion) { this.changeVersion = changeVersion; }
 }
\ No newline at end of file
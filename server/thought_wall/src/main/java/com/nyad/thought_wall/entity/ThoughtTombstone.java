@@ -0,0 +1,40 @@
+package com.nyad.thought_wall.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Left behind by a deleted thought so GET /api/thoughts/changes can report the deletion.
+ * Same board columns as {@link BoardVersion}. Purged after app.sync.tombstone-retention.
+ */
+@Entity
+@Table(name = "thought_tombstones", indexes = {
+    @Index(name = "idx_tombstones_board", columnList = "room_id, user_id, version"),
+    @Index(name = "idx_tombstones_deleted_at", columnList = "deleted_at")
+})
+public class ThoughtTombstone {
+
+    @Id
+    @Column(name = "thought_id")
+    private Long thoughtId;
+
+    @Column(name = "room_id", nullable = false)
+    private long roomId;
+
+    @Column(name = "user_id", nullable = false)
+    private long userId;
+
+    @Column(nullable = false)
+    private long version;
+
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt;
+
+    public ThoughtTombstone() {}
+
+    public Long getThoughtId() { return thoughtId; }
+    public long getRoomId() { return roomId; }
+    public long getUserId() { return userId; }
+    public long getVersion() { return version; }
+    public LocalDateTime getDeletedAt() { return deletedAt; }
+}
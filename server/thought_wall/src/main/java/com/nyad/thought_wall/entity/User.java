@@ -1,7 +1,12 @@
 package com.nyad.thought_wall.entity;
 
+import com.nyad.thought_wall.config.SecondLevelCacheConfig;
+import com.nyad.thought_wall.util.TimeOrderedId;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.HashSet;
 import java.util.Objects;
@@ -9,9 +14,12 @@ import java.util.Set;
 
 @Entity
 @Table(name = "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.USERS)
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class User {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @TimeOrderedId
     private Long id;
 
     @Column(unique = true, nullable = false)
@@ -24,13 +32,13 @@ public class User {
     @JsonIgnore
     private Set<Room> joinedRooms = new HashSet<>();
 
-    // Cascade: If User is deleted, delete their Owned Rooms
-    @OneToMany(mappedBy = "owner", cascade = CascadeType.ALL, orphanRemoval = true)
+    // Deleted with the user by DeletionService, in bulk rather than through a cascade
+    @OneToMany(mappedBy = "owner")
     @JsonIgnore
     private Set<Room> ownedRooms = new HashSet<>();
 
-    // Cascade: If User is deleted, delete their Personal Thoughts
-    @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
+    // Likewise deleted by DeletionService
+    @OneToMany(mappedBy = "user")
     @JsonIgnore
     private Set<Thought> thoughts = new HashSet<>();
 
@@ -39,19 +47,6 @@ public class User {
     @JsonIgnore
     private Set<Thought> assignedTasks = new HashSet<>();
 
-    // Cleanup logic before deletion
-    @PreRemove
-    private void preRemove() {
-        // 1. Unassign from tasks (don't delete the task, just remove assignment)
-        for (Thought t : assignedTasks) {
-            t.setAssignedTo(null);
-        }
-        // 2. Remove self from joined rooms (updates Join Table)
-        for (Room r : joinedRooms) {
-            r.getMembers().remove(this);
-        }
-    }
-
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
     public String getEmail() { return email; }
@@ -0,0 +1,105 @@
+package com.nyad.thought_wall.metrics;
+
+import com.nyad.thought_wall.archive.ChatArchive;
+import com.nyad.thought_wall.archive.ChatArchiver;
+import com.nyad.thought_wall.cluster.ClusterFanout;
+import com.nyad.thought_wall.config.SecondLevelCacheConfig;
+import com.nyad.thought_wall.security.JwtUtil;
+import com.nyad.thought_wall.security.LoginThrottle;
+import com.nyad.thought_wall.security.PasswordHashing;
+import com.nyad.thought_wall.service.ChatWriteBehindQueue;
+import com.nyad.thought_wall.service.RateLimiter;
+import com.nyad.thought_wall.service.RoomEventPublisher;
+import com.nyad.thought_wall.service.RoomMembershipService;
+import com.nyad.thought_wall.websocket.StompSessionRegistry;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.cache.CacheManager;
+
+/**
+ * Publishes the counters the components already keep (sessions and send buffers, event and
+ * chat queues, password hashing, login throttling and rate limiting, cluster fan-out, cache
+ * hit rates, second-level cache regions) as meters. Everything is read when the registry
+ * is scraped, so none of it costs anything on the request path.
+ */
+@Component
+public class AppMetrics implements MeterBinder {
+
+    @Autowired private StompSessionRegistry sessions;
+    @Autowired private RoomEventPublisher events;
+    @Autowired private ChatWriteBehindQueue chatQueue;
+    @Autowired private ChatArchive chatArchive;
+    @Autowired private ChatArchiver chatArchiver;
+    @Autowired private RoomMembershipService membership;
+    @Autowired private JwtUtil jwtUtil;
+    @Autowired private PasswordHashing passwordHashing;
+    @Autowired private LoginThrottle loginThrottle;
+    @Autowired private RateLimiter rateLimiter;
+    @Autowired private CacheManager hibernateCacheManager;
+    // Only present with app.cluster.enabled=true
+    @Autowired private ObjectProvider<ClusterFanout> clusterFanout;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("app.stomp.sessions", sessions, s -> s.stats().sessions()).register(registry);
+        Gauge.builder("app.stomp.send.buffer", sessions, s -> s.stats().bufferedBytes())
+                .description("Bytes waiting in all sessions' send buffers").baseUnit("bytes").register(registry);
+        Gauge.builder("app.stomp.send.buffer.max", sessions, s -> s.stats().maxBufferedBytes())
+                .description("Largest single session send buffer").baseUnit("bytes").register(registry);
+        FunctionCounter.builder("app.stomp.slow.consumer.closes", sessions, s -> s.stats().slowConsumerCloses()).register(registry);
+
+        Gauge.builder("app.room.events.pending.rooms", events, RoomEventPublisher::pendingRooms)
+                .description("Rooms with events waiting for the next coalescing flush").register(registry);
+        FunctionCounter.builder("app.room.events.in", events, RoomEventPublisher::eventsIn).register(registry);
+        FunctionCounter.builder("app.room.events.out", events, RoomEventPublisher::messagesOut).register(registry);
+
+        Gauge.builder("app.chat.write.behind.queue", chatQueue, ChatWriteBehindQueue::queueDepth).register(registry);
+        FunctionCounter.builder("app.chat.write.behind.persisted", chatQueue, ChatWriteBehindQueue::persistedCount).register(registry);
+        FunctionCounter.builder("app.chat.write.behind.rejected", chatQueue, ChatWriteBehindQueue::rejectedCount).register(registry);
+        FunctionCounter.builder("app.chat.write.behind.dropped", chatQueue, ChatWriteBehindQueue::droppedCount).register(registry);
+        FunctionCounter.builder("app.chat.archive.archived", chatArchiver, ChatArchiver::archivedCount)
+                .description("Messages moved from chat_messages into segment files").register(registry);
+        FunctionCounter.builder("app.chat.archive.served", chatArchive, ChatArchive::servedCount)
+                .description("History messages read from segment files").register(registry);
+        FunctionCounter.builder("app.chat.archive.corrupt", chatArchive, ChatArchive::corruptCount)
+                .description("Segment reads that failed a checksum or format check").register(registry);
+
+        // executor.* for the pool itself is bound by PasswordHashing (name=hashing)
+        FunctionCounter.builder("app.auth.hashing.rejected", passwordHashing, PasswordHashing::rejectedCount)
+                .description("Hash jobs refused because the queue was full").register(registry);
+        FunctionCounter.builder("app.auth.hashing.timed.out", passwordHashing, PasswordHashing::timedOutCount)
+                .description("Hash jobs that waited longer than app.auth.hashing.timeout").register(registry);
+        FunctionCounter.builder("app.auth.login.throttled", loginThrottle, LoginThrottle::throttledCount).register(registry);
+
+        for (RateLimiter.Limit limit : RateLimiter.Limit.values()) {
+            FunctionCounter.builder("app.rate.limited", rateLimiter, r -> r.throttledCount(limit))
+                    .description("Writes refused by RateLimiter").tag("limit", limit.name().toLowerCase())
+                    .register(registry);
+        }
+
+        clusterFanout.ifAvailable(fanout -> {
+            Gauge.builder("app.cluster.send.queue", fanout, ClusterFanout::queuedCount).register(registry);
+            FunctionCounter.builder("app.cluster.forwarded", fanout, ClusterFanout::forwardedCount).register(registry);
+            FunctionCounter.builder("app.cluster.received", fanout, ClusterFanout::receivedCount).register(registry);
+            FunctionCounter.builder("app.cluster.duplicates", fanout, ClusterFanout::duplicateCount).register(registry);
+        });
+
+        FunctionCounter.builder("app.cache.hits", membership, m -> m.stats().hitCount()).tag("cache", "membership").register(registry);
+        FunctionCounter.builder("app.cache.misses", membership, m -> m.stats().missCount()).tag("cache", "membership").register(registry);
+        FunctionCounter.builder("app.cache.hits", jwtUtil, j -> j.tokenCacheStats().hitCount()).tag("cache", "jwt").register(registry);
+        FunctionCounter.builder("app.cache.misses", jwtUtil, j -> j.tokenCacheStats().missCount()).tag("cache", "jwt").register(registry);
+
+        // cache.gets / cache.puts / cache.evictions per region, tagged cache=<region>
+        for (String region : SecondLevelCacheConfig.REGIONS) {
+            JCacheMetrics.monitor(registry, hibernateCacheManager.getCache(region), Tags.empty());
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.nyad.thought_wall.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every Spring Data repository method and records how many SQL statements it issued
+ * (app.repository.invocations and app.repository.statements, tagged repository + method).
+ *
+ * The statements come from {@link SqlStatementCounter}, so they include the lazy loads and
+ * flushes Hibernate performs inside the call; JdbcTemplate work elsewhere is not counted.
+ * This replaces Spring Boot's spring.data.repository.invocations timer, which is disabled
+ * in application.properties so each call is only timed once.
+ */
+@Component
+public class RepositoryMetrics implements BeanPostProcessor {
+
+    @Autowired private ObjectProvider<MeterRegistry> registry;
+
+    @Value("${app.metrics.repository.enabled:true}")
+    private boolean enabled;
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (enabled && bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+            factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                    (proxy, info) -> proxy.addAdvice(new Interceptor(info.getRepositoryInterface().getSimpleName()))));
+        }
+        return bean;
+    }
+
+    private record Meters(Timer time, DistributionSummary statements, Counter errors) {}
+
+    private final class Interceptor implements MethodInterceptor {
+
+        private final String repository;
+        // Meter lookups are a map probe per call instead of a registry lookup
+        private final Map<Method, Meters> meters = new ConcurrentHashMap<>();
+
+        Interceptor(String repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            long statementsBefore = SqlStatementCounter.current();
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                Object result = invocation.proceed();
+                failed = false;
+                return result;
+            } finally {
+                Meters m = meters.computeIfAbsent(invocation.getMethod(), this::register);
+                m.time().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                m.statements().record(SqlStatementCounter.current() - statementsBefore);
+                if (failed) m.errors().increment();
+            }
+        }
+
+        private Meters register(Method method) {
+            MeterRegistry r = registry.getObject();
+            String name = method.getName();
+            return new Meters(
+                    Timer.builder("app.repository.invocations")
+                            .tag("repository", repository).tag("method", name)
+                            .publishPercentileHistogram()
+                            .register(r),
+                    DistributionSummary.builder("app.repository.statements")
+                            .tag("repository", repository).tag("method", name)
+                            .register(r),
+                    Counter.builder("app.repository.errors")
+                            .tag("repository", repository).tag("method", name)
+                            .register(r));
+        }
+    }
+}
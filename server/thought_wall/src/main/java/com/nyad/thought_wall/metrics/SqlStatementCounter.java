@@ -0,0 +1,28 @@
+package com.nyad.thought_wall.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Hibernate statement inspector that counts prepared statements on the calling thread.
+ * A request (or a benchmark thread) runs on one thread, so the difference between two
+ * readings is exactly what the code in between issued, without any cross-thread contention.
+ * Statements sent through JdbcTemplate bypass Hibernate and are not counted; StatementBudgetTests
+ * and the benchmarks count at the DataSource instead, so their budgets include them.
+ *
+ * Registered with spring.jpa.properties.hibernate.session_factory.statement_inspector;
+ * read by {@link RepositoryMetrics}.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get()[0]++;
+        return sql;
+    }
+
+    public static long current() {
+        return COUNT.get()[0];
+    }
+}
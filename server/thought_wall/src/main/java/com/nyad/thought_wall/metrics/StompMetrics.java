@@ -0,0 +1,112 @@
+package com.nyad.thought_wall.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.annotation.support.SimpAnnotationMethodMessageHandler;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Interceptor on the client inbound channel (WebSocketConfig):
+ * <ul>
+ *   <li>app.stomp.inbound: time spent in @MessageMapping methods, tagged with the destination
+ *       with numeric segments folded ({@code /app/chat/{id}}) and the outcome</li>
+ *   <li>app.stomp.subscriptions: live subscriptions, from SUBSCRIBE / UNSUBSCRIBE / DISCONNECT</li>
+ * </ul>
+ */
+@Component
+public class StompMetrics implements ExecutorChannelInterceptor {
+
+    // WebSocketConfig's application destination prefix
+    private static final String APP_PREFIX = "/app/";
+    private static final Pattern ID_SEGMENT = Pattern.compile("/\\d+(?=/|$)");
+    // Clients pick destinations, so cap how many (destination, outcome) time series there can be
+    private static final int MAX_DESTINATIONS = 100;
+
+    @Autowired private MeterRegistry registry;
+
+    private final Map<String, AtomicInteger> subscriptionsBySession = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriptions = new AtomicInteger();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    // beforeHandle and afterMessageHandled run on the same thread for a given handler
+    private final ThreadLocal<Long> handlingStarted = new ThreadLocal<>();
+
+    @PostConstruct
+    public void register() {
+        Gauge.builder("app.stomp.subscriptions", subscriptions, AtomicInteger::get).register(registry);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        String session = accessor.getSessionId();
+        SimpMessageType type = accessor.getMessageType();
+        if (session == null || type == null) return message;
+
+        switch (type) {
+            case SUBSCRIBE -> {
+                subscriptionsBySession.computeIfAbsent(session, s -> new AtomicInteger()).incrementAndGet();
+                subscriptions.incrementAndGet();
+            }
+            case UNSUBSCRIBE -> {
+                AtomicInteger count = subscriptionsBySession.get(session);
+                if (count != null && count.getAndUpdate(c -> Math.max(0, c - 1)) > 0) subscriptions.decrementAndGet();
+            }
+            // Sent once for the client's DISCONNECT frame and again when the socket closes; the second finds nothing
+            case DISCONNECT -> {
+                AtomicInteger count = subscriptionsBySession.remove(session);
+                if (count != null) subscriptions.addAndGet(-count.get());
+            }
+            default -> { }
+        }
+        return message;
+    }
+
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        // Only SENDs to /app reach a @MessageMapping method; the handler sees (and skips) everything else too
+        if (handler instanceof SimpAnnotationMethodMessageHandler
+                && SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE
+                && String.valueOf(SimpMessageHeaderAccessor.getDestination(message.getHeaders())).startsWith(APP_PREFIX)) {
+            handlingStarted.set(System.nanoTime());
+        }
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        if (!(handler instanceof SimpAnnotationMethodMessageHandler)) return;
+        Long started = handlingStarted.get();
+        if (started == null) return;
+        handlingStarted.remove();
+
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        String template = ID_SEGMENT.matcher(destination).replaceAll("/{id}");
+        String outcome = ex == null ? "success" : "error";
+        String key = template + " " + outcome;
+        Timer timer = timers.get(key);
+        if (timer == null) {
+            if (timers.size() >= MAX_DESTINATIONS) return;
+            timer = timers.computeIfAbsent(key, k -> Timer.builder("app.stomp.inbound")
+                    .tag("destination", template)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+        timer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+}
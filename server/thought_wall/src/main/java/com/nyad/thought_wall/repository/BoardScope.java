@@ -0,0 +1,32 @@
+package com.nyad.thought_wall.repository;
+
+import com.nyad.thought_wall.entity.Thought;
+
+import java.util.Comparator;
+
+/**
+ * A board: either a room or one user's personal thoughts. Stored as (roomId, userId) with
+ * 0 for the part that does not apply, which is how tag_counts keys its rows.
+ */
+public record BoardScope(long roomId, long userId) {
+
+    /** Lock order for writers that take several boards' version rows in one transaction. */
+    public static final Comparator<BoardScope> ORDER =
+            Comparator.comparingLong(BoardScope::roomId).thenComparingLong(BoardScope::userId);
+
+    public static BoardScope room(long roomId) {
+        return new BoardScope(roomId, 0);
+    }
+
+    public static BoardScope personal(long userId) {
+        return new BoardScope(0, userId);
+    }
+
+    public static BoardScope of(Thought thought) {
+        return thought.getRoom() != null ? room(thought.getRoom().getId()) : personal(thought.getUser().getId());
+    }
+
+    public boolean isRoom() {
+        return roomId != 0;
+    }
+}
@@ -1,10 +1,25 @@
 package com.nyad.thought_wall.repository;
 
+import com.nyad.thought_wall.dto.ChatMessageView;
 import com.nyad.thought_wall.entity.ChatMessage;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long> {
-    // Fetch messages for a specific room, ordered by time
-    List<ChatMessage> findByRoomIdOrderByTimestampAsc(Long roomId);
-}
\ No newline at end of file
+
+    // Newest first; both are bounded range scans on idx_chat_room_ts (room_id, timestamp, id)
+    @Query("SELECT new com.nyad.thought_wall.dto.ChatMessageView(m.id, s.email, m.content, m.timestamp) " +
+           "FROM ChatMessage m LEFT JOIN m.sender s " +
+           "WHERE m.room.id = :roomId " +
+           "ORDER BY m.timestamp DESC, m.id DESC")
+    List<ChatMessageView> findLatest(Long roomId, Limit limit);
+
+    @Query("SELECT new com.nyad.thought_wall.dto.ChatMessageView(m.id, s.email, m.content, m.timestamp) " +
+           "FROM ChatMessage m LEFT JOIN m.sender s " +
+           "WHERE m.room.id = :roomId AND (m.timestamp < :timestamp OR (m.timestamp = :timestamp AND m.id < :id)) " +
+           "ORDER BY m.timestamp DESC, m.id DESC")
+    List<ChatMessageView> findLatestBefore(Long roomId, LocalDateTime timestamp, Long id, Limit limit);
+}
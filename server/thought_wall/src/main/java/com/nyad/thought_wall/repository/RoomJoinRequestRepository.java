@@ -1,11 +1,13 @@
 package com.nyad.thought_wall.repository;
 
 import com.nyad.thought_wall.entity.RoomJoinRequest;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import java.util.List;
 import java.util.Optional;
 
 public interface RoomJoinRequestRepository extends JpaRepository<RoomJoinRequest, Long> {
+    @EntityGraph(attributePaths = "user")
     List<RoomJoinRequest> findByRoomId(Long roomId);
     Optional<RoomJoinRequest> findByRoomIdAndUserId(Long roomId, Long userId);
 }
\ No newline at end of file
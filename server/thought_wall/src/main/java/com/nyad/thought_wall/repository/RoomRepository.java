@@ -1,10 +1,42 @@
 package com.nyad.thought_wall.repository;
 
+import com.nyad.thought_wall.dto.RoomSummary;
 import com.nyad.thought_wall.entity.Room;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public interface RoomRepository extends JpaRepository<Room, Long> {
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Room> findByCode(String code);
-    boolean existsByCode(String code);
-}
\ No newline at end of file
+    // The room list shows each owner, so it comes in the same query
+    @EntityGraph(attributePaths = "owner")
+    Set<Room> findByMembersId(Long userId);
+
+    @Query("SELECT r.id FROM Room r JOIN r.members m WHERE m.id = :userId")
+    List<Long> findIdsByMembersId(Long userId);
+
+    // Everyone sharing a room with the user, the user included
+    @Query("SELECT DISTINCT m.id FROM Room r JOIN r.members m WHERE r.owner.id = :userId "
+            + "OR r.id IN (SELECT r2.id FROM Room r2 JOIN r2.members m2 WHERE m2.id = :userId)")
+    List<Long> findRoomMateIds(Long userId);
+
+    // Profile projections: one statement each, members are counted, never loaded
+    @Query("SELECT new com.nyad.thought_wall.dto.RoomSummary(r.id, r.name, r.code, r.owner.id, SIZE(r.members)) "
+            + "FROM Room r WHERE r.owner.id = :userId ORDER BY r.name")
+    List<RoomSummary> findSummariesByOwnerId(Long userId);
+
+    @Query("SELECT new com.nyad.thought_wall.dto.RoomSummary(r.id, r.name, r.code, r.owner.id, SIZE(r.members)) "
+            + "FROM Room r JOIN r.members m WHERE m.id = :userId ORDER BY r.name")
+    List<RoomSummary> findSummariesByMemberId(Long userId);
+
+    // Hits the (room_id, user_id) primary key of room_members, never loads the member set
+    @Query("SELECT CASE WHEN COUNT(m) > 0 THEN true ELSE false END FROM Room r JOIN r.members m WHERE r.id = :roomId AND m.id = :userId")
+    boolean isMember(Long roomId, Long userId);
+}
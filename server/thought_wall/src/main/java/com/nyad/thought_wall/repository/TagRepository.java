@@ -0,0 +1,9 @@
+package com.nyad.thought_wall.repository;
+
+import com.nyad.thought_wall.entity.Tag;
+import org.springframework.data.jpa.repository.JpaRepository;
+import java.util.Optional;
+
+public interface TagRepository extends JpaRepository<Tag, Integer> {
+    Optional<Tag> findByName(String name);
+}
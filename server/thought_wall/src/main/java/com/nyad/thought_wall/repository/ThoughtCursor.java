@@ -0,0 +1,52 @@
+package com.nyad.thought_wall.repository;
+
+import com.nyad.thought_wall.entity.Thought;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Seek position for keyset pagination over a board: the sort key of the last row returned.
+ * Clients only ever see the opaque {@link #encode()} form.
+ */
+public record ThoughtCursor(boolean completed, LocalDateTime dueDate, boolean pinned, LocalDateTime createdAt, long id) {
+
+    private static final String VERSION = "1";
+
+    public static ThoughtCursor of(Thought t) {
+        return new ThoughtCursor(t.isCompleted(), t.getDueDate(), t.isPinned(), t.getCreatedAt(), t.getId());
+    }
+
+    public String encode() {
+        String raw = String.join("|",
+                VERSION,
+                completed ? "1" : "0",
+                dueDate == null ? "" : dueDate.toString(),
+                pinned ? "1" : "0",
+                createdAt.toString(),
+                Long.toString(id));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not produced by {@link #encode()}
+     */
+    public static ThoughtCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 6 || !VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("Unsupported cursor");
+            }
+            return new ThoughtCursor(
+                    "1".equals(parts[1]),
+                    parts[2].isEmpty() ? null : LocalDateTime.parse(parts[2]),
+                    "1".equals(parts[3]),
+                    LocalDateTime.parse(parts[4]),
+                    Long.parseLong(parts[5]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package com.nyad.thought_wall.repository;
 
+import com.nyad.thought_wall.dto.AssignedTask;
+import com.nyad.thought_wall.entity.Tag;
 import com.nyad.thought_wall.entity.Thought;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -11,23 +16,65 @@ import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 
 @Repository
-public interface ThoughtRepository extends JpaRepository<Thought, Long> {
+public interface ThoughtRepository extends JpaRepository<Thought, Long>, JpaSpecificationExecutor<Thought> {
 
-    @Query("SELECT t FROM Thought t WHERE t.user.email = :email AND t.room IS NULL")
-    Page<Thought> findPersonalThoughts(String email, Pageable pageable);
+    // Board listings fetch what a card shows in the same query (Thought.CARD): the tag,
+    // whose name Thought.getTag() reads, and the assignee
 
-    @Query("SELECT t FROM Thought t WHERE t.user.email = :email AND t.tag = :tag AND t.room IS NULL")
-    Page<Thought> findPersonalThoughtsByTag(String email, String tag, Pageable pageable);
+    @EntityGraph(Thought.CARD)
+    @Query("SELECT t FROM Thought t WHERE t.user.id = :userId AND t.room IS NULL")
+    Page<Thought> findPersonalThoughts(Long userId, Pageable pageable);
 
-    Page<Thought> findByRoomId(Long roomId, Pageable pageable);
-    
-    Page<Thought> findByRoomIdAndTag(Long roomId, String tag, Pageable pageable);
+    @EntityGraph(Thought.CARD)
+    @Query("SELECT t FROM Thought t WHERE t.user.id = :userId AND t.tagRef.id = :tagId AND t.room IS NULL")
+    Page<Thought> findPersonalThoughtsByTag(Long userId, Integer tagId, Pageable pageable);
 
-    // NEW: Used for the Profile Page
-    List<Thought> findByAssignedToEmail(String email);
+    // Spelled out: Thought.getRoomId() would make a derived findByRoomId look for a roomId attribute
+
+    @EntityGraph(Thought.CARD)
+    @Query("SELECT t FROM Thought t WHERE t.room.id = :roomId")
+    Page<Thought> findRoomThoughts(Long roomId, Pageable pageable);
+
+    @EntityGraph(Thought.CARD)
+    @Query("SELECT t FROM Thought t WHERE t.room.id = :roomId AND t.tagRef.id = :tagId")
+    Page<Thought> findRoomThoughtsByTag(Long roomId, Integer tagId, Pageable pageable);
+
+    // Incremental sync (BoardVersionService): thoughts written in (since, upTo], oldest change first
+
+    @EntityGraph(Thought.CARD)
+    @Query("SELECT t FROM Thought t WHERE t.room.id = :roomId AND t.changeVersion > :since AND t.changeVersion <= :upTo "
+            + "ORDER BY t.changeVersion, t.id")
+    List<Thought> findRoomChanges(Long roomId, long since, long upTo, Limit limit);
+
+    @EntityGraph(Thought.CARD)
+    @Query("SELECT t FROM Thought t WHERE t.user.id = :userId AND t.room IS NULL AND t.changeVersion > :since AND t.changeVersion <= :upTo "
+            + "ORDER BY t.changeVersion, t.id")
+    List<Thought> findPersonalChanges(Long userId, long since, long upTo, Limit limit);
+
+    // Profile page: the room name comes from the join, not from loading each Room
+    @Query("SELECT new com.nyad.thought_wall.dto.AssignedTask(t.id, t.content, COALESCE(r.name, 'Personal'), t.completed) "
+            + "FROM Thought t LEFT JOIN t.room r WHERE t.assignedTo.id = :userId ORDER BY t.id DESC")
+    List<AssignedTask> findAssignedTasks(Long userId);
+
+    // Assignees whose profile loses a thought when the room is deleted
+    @Query("SELECT DISTINCT t.assignedTo.id FROM Thought t WHERE t.room.id = :roomId AND t.assignedTo IS NOT NULL")
+    List<Long> findAssigneeIdsByRoomId(Long roomId);
+
+    // ... or when the user is deleted: their own thoughts and everything in the rooms they own
+    @Query("SELECT DISTINCT a.id FROM Thought t JOIN t.assignedTo a LEFT JOIN t.room r WHERE t.user.id = :userId OR r.owner.id = :userId")
+    List<Long> findAssigneeIdsDeletedWithUser(Long userId);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Thought t SET t.tagRef = :newTag, t.changeVersion = :version "
+            + "WHERE t.tagRef = :oldTag AND t.user.id = :userId AND t.room IS NULL")
+    int updateTagForUser(Tag oldTag, Tag newTag, Long userId, long version);
+
+    @Query("SELECT t.id FROM Thought t WHERE t.room.id = :roomId AND t.tagRef = :tag")
+    List<Long> findIdsByRoomIdAndTag(Long roomId, Tag tag);
 
     @Modifying
     @Transactional
-    @Query("UPDATE Thought t SET t.tag = :newTag WHERE t.tag = :oldTag AND t.user.email = :email AND t.room IS NULL")
-    void updateTagForUser(String oldTag, String newTag, String email);
+    @Query("UPDATE Thought t SET t.tagRef = :newTag, t.changeVersion = :version WHERE t.tagRef = :oldTag AND t.room.id = :roomId")
+    int updateTagForRoom(Tag oldTag, Tag newTag, Long roomId, long version);
 }
\ No newline at end of file
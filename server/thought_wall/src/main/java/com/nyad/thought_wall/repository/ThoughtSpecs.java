@@ -0,0 +1,75 @@
+package com.nyad.thought_wall.repository;
+
+import com.nyad.thought_wall.entity.Thought;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Criteria for board listings. BOARD_ORDER must stay in sync with the composite
+ * board indexes declared on {@link Thought} and with {@link #after(ThoughtCursor)}.
+ */
+public final class ThoughtSpecs {
+
+    // Same ordering as the offset listing, plus id as a unique tie-breaker for the seek
+    public static final Sort BOARD_ORDER = Sort.by(
+        Sort.Order.asc("completed"),
+        Sort.Order.asc("dueDate"),
+        Sort.Order.desc("pinned"),
+        Sort.Order.desc("createdAt"),
+        Sort.Order.desc("id")
+    );
+
+    private ThoughtSpecs() {}
+
+    public static Specification<Thought> roomBoard(Long roomId, Integer tagId) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            predicates.add(cb.equal(root.get("room").get("id"), roomId));
+            if (tagId != null) predicates.add(cb.equal(root.get("tagRef").get("id"), tagId));
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    public static Specification<Thought> personalBoard(Long userId, Integer tagId) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            predicates.add(cb.equal(root.get("user").get("id"), userId));
+            predicates.add(cb.isNull(root.get("room")));
+            if (tagId != null) predicates.add(cb.equal(root.get("tagRef").get("id"), tagId));
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    /**
+     * Rows strictly after the cursor in BOARD_ORDER. MySQL (and H2) sort NULL due dates
+     * first in ascending order, so "after a NULL due date" means "has a due date".
+     */
+    public static Specification<Thought> after(ThoughtCursor c) {
+        return (root, query, cb) -> {
+            Path<Boolean> completed = root.get("completed");
+            Path<LocalDateTime> dueDate = root.get("dueDate");
+            Path<Boolean> pinned = root.get("pinned");
+            Path<LocalDateTime> createdAt = root.get("createdAt");
+            Path<Long> id = root.get("id");
+
+            Predicate sameCompleted = cb.equal(completed, c.completed());
+            Predicate sameDue = c.dueDate() == null ? cb.isNull(dueDate) : cb.equal(dueDate, c.dueDate());
+            Predicate laterDue = c.dueDate() == null ? cb.isNotNull(dueDate) : cb.greaterThan(dueDate, c.dueDate());
+            Predicate samePinned = cb.equal(pinned, c.pinned());
+
+            return cb.or(
+                cb.greaterThan(completed, c.completed()),
+                cb.and(sameCompleted, laterDue),
+                cb.and(sameCompleted, sameDue, cb.lessThan(pinned, c.pinned())),
+                cb.and(sameCompleted, sameDue, samePinned, cb.lessThan(createdAt, c.createdAt())),
+                cb.and(sameCompleted, sameDue, samePinned, cb.equal(createdAt, c.createdAt()), cb.lessThan(id, c.id()))
+            );
+        };
+    }
+}
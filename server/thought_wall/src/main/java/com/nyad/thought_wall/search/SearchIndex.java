@@ -0,0 +1,351 @@
+package com.nyad.thought_wall.search;
+
+import com.nyad.thought_wall.archive.ChatArchive;
+import com.nyad.thought_wall.cluster.ClusterFanout;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * In-memory inverted index over thought and chat message content, ranked with BM25.
+ *
+ * Writers (create/update/delete in the controllers) update it in place, so searches never
+ * scan the tables. Called inside a transaction, an update waits until it commits, so a rolled
+ * back write is never searchable. The index is rebuilt from the database and the chat archive
+ * on startup and on demand ({@link #rebuild()}); writes that happen during a rebuild are
+ * journaled and replayed onto the fresh index before it replaces the live one.
+ *
+ * Every node keeps its own copy. With clustering each update is also sent to the other nodes
+ * (ClusterFanout). That delivery is at-most-once, so a node that missed updates while it was
+ * cut off catches up with a rebuild, which it also does on every restart.
+ */
+@Service
+public class SearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchIndex.class);
+
+    // BM25 defaults
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int PREVIEW_LENGTH = 160;
+    private static final String DESTINATION = ClusterFanout.CONTROL_PREFIX + "search";
+
+    public enum Kind { THOUGHT, CHAT }
+
+    /**
+     * roomId is null for personal thoughts, which only their author ({@code authorId}) can find.
+     */
+    public record Doc(Kind kind, long id, Long roomId, Long authorId, String preview) {}
+
+    public record Hit(Doc doc, double score) {}
+
+    public record Result(List<Hit> hits, int total) {}
+
+    /** Who may see what: the caller's id and the rooms they belong to. */
+    public record Scope(long userId, Collection<Long> roomIds) {
+        boolean allows(Doc doc) {
+            if (doc.roomId() == null) return doc.kind() == Kind.THOUGHT && doc.authorId() != null && doc.authorId() == userId;
+            return roomIds.contains(doc.roomId());
+        }
+    }
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private ChatArchive chatArchive;
+    // Only present with app.cluster.enabled=true
+    @Autowired private ObjectProvider<ClusterFanout> clusterFanout;
+
+    @Value("${app.search.rebuild-on-startup:true}")
+    private boolean rebuildOnStartup;
+
+    @Value("${app.search.max-hits:1000}")
+    private int maxHits;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private IndexData live = new IndexData();
+    // Non-null while a rebuild is running; guarded by lock
+    private List<Runnable> journal;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    @PostConstruct
+    public void listen() {
+        clusterFanout.ifAvailable(fanout -> fanout.onControl(DESTINATION, this::received));
+    }
+
+    // --- updates ---
+    // Each one is a notice, "kind;id[;roomId;authorId;content]" with content last since it may
+    // contain anything, applied here and sent as-is to the other nodes
+
+    public void indexThought(long id, Long roomId, long authorId, String content) {
+        publish("thought;" + id + ";" + (roomId != null ? roomId : "") + ";" + authorId + ";" + nonNull(content));
+    }
+
+    public void indexChat(long id, long roomId, Long senderId, String content) {
+        publish("chat;" + id + ";" + roomId + ";" + (senderId != null ? senderId : "") + ";" + nonNull(content));
+    }
+
+    public void removeThought(long id) {
+        publish("remove-thought;" + id);
+    }
+
+    /** Drops everything that lived in the room (its thoughts and chat are deleted with it). */
+    public void removeRoom(long roomId) {
+        publish("remove-room;" + roomId);
+    }
+
+    /** Drops the thoughts and chat messages the user wrote (they are deleted with the account). */
+    public void removeAuthor(long userId) {
+        publish("remove-author;" + userId);
+    }
+
+    private void publish(String notice) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            publishNow(notice);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publishNow(notice);
+            }
+        });
+    }
+
+    private void publishNow(String notice) {
+        apply(notice);
+        clusterFanout.ifAvailable(fanout -> fanout.broadcast(DESTINATION, notice.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private void received(byte[] payload) {
+        apply(new String(payload, StandardCharsets.UTF_8));
+    }
+
+    private void apply(String notice) {
+        String[] f = notice.split(";", 5);
+        long id = Long.parseLong(f[1]);
+        switch (f[0]) {
+            case "thought" -> put(new Doc(Kind.THOUGHT, id, optionalId(f[2]), Long.valueOf(f[3]), preview(f[4])), f[4]);
+            case "chat" -> put(new Doc(Kind.CHAT, id, Long.valueOf(f[2]), optionalId(f[3]), preview(f[4])), f[4]);
+            case "remove-thought" -> write(data -> data.remove(new DocKey(Kind.THOUGHT, id)));
+            case "remove-room" -> write(data -> data.removeIf(doc -> doc.roomId() != null && doc.roomId() == id));
+            case "remove-author" -> write(data -> data.removeIf(doc -> doc.authorId() != null && doc.authorId() == id));
+            default -> log.warn("Unknown search index notice {}", f[0]);
+        }
+    }
+
+    private static Long optionalId(String field) {
+        return field.isEmpty() ? null : Long.valueOf(field);
+    }
+
+    private static String nonNull(String content) {
+        return content != null ? content : "";
+    }
+
+    private void put(Doc doc, String content) {
+        List<String> terms = Tokenizer.tokenize(content);
+        write(data -> data.put(doc, terms));
+    }
+
+    private void write(Consumer<IndexData> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(live);
+            if (journal != null) journal.add(() -> change.accept(live));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // --- queries ---
+
+    public Result search(String query, Scope scope, int offset, int limit) {
+        List<String> terms = Tokenizer.tokenize(query).stream().distinct().toList();
+        if (terms.isEmpty()) return new Result(List.of(), 0);
+
+        lock.readLock().lock();
+        try {
+            IndexData data = live;
+            double avgLength = data.docs.isEmpty() ? 1 : (double) data.totalLength / data.docs.size();
+            Map<DocKey, Double> scores = new HashMap<>();
+            for (String term : terms) {
+                Map<DocKey, Integer> postings = data.postings.get(term);
+                if (postings == null) continue;
+                double idf = Math.log(1 + (data.docs.size() - postings.size() + 0.5) / (postings.size() + 0.5));
+                for (Map.Entry<DocKey, Integer> posting : postings.entrySet()) {
+                    Entry entry = data.docs.get(posting.getKey());
+                    if (!scope.allows(entry.doc)) continue;
+                    int tf = posting.getValue();
+                    double norm = tf + K1 * (1 - B + B * entry.length / avgLength);
+                    scores.merge(posting.getKey(), idf * tf * (K1 + 1) / norm, Double::sum);
+                }
+            }
+
+            // Keep only the best maxHits; deeper pages than that are not worth serving
+            Comparator<Hit> byScore = Comparator.comparingDouble(Hit::score)
+                    .thenComparingLong(h -> h.doc().id());
+            PriorityQueue<Hit> top = new PriorityQueue<>(byScore);
+            for (Map.Entry<DocKey, Double> scored : scores.entrySet()) {
+                top.offer(new Hit(data.docs.get(scored.getKey()).doc, scored.getValue()));
+                if (top.size() > maxHits) top.poll();
+            }
+            List<Hit> ranked = new ArrayList<>(top);
+            ranked.sort(byScore.reversed());
+
+            int from = Math.min(offset, ranked.size());
+            int to = Math.min(from + limit, ranked.size());
+            return new Result(List.copyOf(ranked.subList(from, to)), ranked.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return live.docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- rebuild ---
+
+    // In the background: searches just return fewer hits until the first load is done
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (rebuildOnStartup) Thread.ofVirtual().name("search-rebuild").start(this::rebuild);
+    }
+
+    /** Reloads the whole index from the database. Returns false if a rebuild is already running. */
+    public boolean rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) return false;
+        try {
+            lock.writeLock().lock();
+            try {
+                journal = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            long start = System.currentTimeMillis();
+            IndexData fresh = new IndexData();
+            jdbcTemplate.query("SELECT id, room_id, user_id, content FROM thoughts", rs -> {
+                String content = rs.getString("content");
+                Long roomId = rs.getObject("room_id", Long.class);
+                fresh.put(new Doc(Kind.THOUGHT, rs.getLong("id"), roomId, rs.getLong("user_id"), preview(content)),
+                        Tokenizer.tokenize(content));
+            });
+            jdbcTemplate.query("SELECT id, room_id, sender_id, content FROM chat_messages", rs -> {
+                String content = rs.getString("content");
+                fresh.put(new Doc(Kind.CHAT, rs.getLong("id"), rs.getLong("room_id"), rs.getObject("sender_id", Long.class), preview(content)),
+                        Tokenizer.tokenize(content));
+            });
+            // Chat moved out of the table stays searchable; a message in both is indexed once
+            chatArchive.forEach((roomId, m) -> fresh.put(
+                    new Doc(Kind.CHAT, m.id(), roomId, m.senderId(), preview(m.content())), Tokenizer.tokenize(m.content())));
+
+            lock.writeLock().lock();
+            try {
+                // Replay what changed while we were reading, then swap
+                live = fresh;
+                journal.forEach(Runnable::run);
+                journal = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Search index rebuilt: {} documents in {} ms", size(), System.currentTimeMillis() - start);
+            return true;
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                journal = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    private static String preview(String content) {
+        if (content == null) return "";
+        return content.length() <= PREVIEW_LENGTH ? content : content.substring(0, PREVIEW_LENGTH) + "…";
+    }
+
+    // --- storage ---
+
+    private record DocKey(Kind kind, long id) {}
+
+    private static final class Entry {
+        final Doc doc;
+        final Map<String, Integer> termFrequencies;
+        final int length;
+
+        Entry(Doc doc, Map<String, Integer> termFrequencies, int length) {
+            this.doc = doc;
+            this.termFrequencies = termFrequencies;
+            this.length = length;
+        }
+    }
+
+    /** Not thread-safe on its own; SearchIndex guards it with its lock. */
+    private static final class IndexData {
+        final Map<DocKey, Entry> docs = new HashMap<>();
+        final Map<String, Map<DocKey, Integer>> postings = new HashMap<>();
+        long totalLength;
+
+        void put(Doc doc, List<String> terms) {
+            DocKey key = new DocKey(doc.kind(), doc.id());
+            remove(key);
+            Map<String, Integer> tf = new HashMap<>();
+            for (String term : terms) tf.merge(term, 1, Integer::sum);
+            for (Map.Entry<String, Integer> e : tf.entrySet()) {
+                postings.computeIfAbsent(e.getKey(), t -> new HashMap<>()).put(key, e.getValue());
+            }
+            docs.put(key, new Entry(doc, tf, terms.size()));
+            totalLength += terms.size();
+        }
+
+        void remove(DocKey key) {
+            Entry old = docs.remove(key);
+            if (old == null) return;
+            totalLength -= old.length;
+            for (String term : old.termFrequencies.keySet()) {
+                Map<DocKey, Integer> list = postings.get(term);
+                if (list == null) continue;
+                list.remove(key);
+                if (list.isEmpty()) postings.remove(term);
+            }
+        }
+
+        void removeIf(Predicate<Doc> match) {
+            List<DocKey> doomed = new ArrayList<>();
+            for (Map.Entry<DocKey, Entry> e : docs.entrySet()) {
+                if (match.test(e.getValue().doc)) doomed.add(e.getKey());
+            }
+            doomed.forEach(this::remove);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.nyad.thought_wall.security;
+
+import java.security.Principal;
+
+/**
+ * Principal placed in the SecurityContext by JwtFilter. Carries the user id from the
+ * token so controllers can work with id references instead of loading the User row.
+ * getName() stays the email, so existing Principal#getName() callers are unaffected.
+ */
+public record AuthenticatedUser(Long id, String email) implements Principal {
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
@@ -1,5 +1,6 @@
 package com.nyad.thought_wall.security;
 
+import com.nyad.thought_wall.repository.UserRepository;
 import jakarta.servlet.*;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -14,6 +15,7 @@ import java.util.Collections;
 @Component
 public class JwtFilter extends OncePerRequestFilter {
     @Autowired private JwtUtil jwtUtil;
+    @Autowired private UserRepository userRepository;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
@@ -22,11 +24,14 @@ public class JwtFilter extends OncePerRequestFilter {
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.substring(7);
             try {
-                String email = jwtUtil.validateTokenAndGetEmail(token);
-                if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                    // Simple auth object with email as principal
+                // One lookup per token, then cached: old tokens without a uid claim resolve their
+                // id by email, newer ones check the uid still exists (second-level cache)
+                AuthenticatedUser user = jwtUtil.validateToken(token, userRepository::findIdByEmail,
+                        id -> userRepository.findById(id).isPresent());
+                if (user != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                    // Principal carries id + email, no users lookup needed downstream
                     UsernamePasswordAuthenticationToken auth = 
-                        new UsernamePasswordAuthenticationToken(email, null, Collections.emptyList());
+                        new UsernamePasswordAuthenticationToken(user, null, Collections.emptyList());
                     SecurityContextHolder.getContext().setAuthentication(auth);
                 }
             } catch (Exception e) {
@@ -35,4 +40,4 @@ public class JwtFilter extends OncePerRequestFilter {
         }
         chain.doFilter(request, response);
     }
-}
\ No newline at end of file
+}
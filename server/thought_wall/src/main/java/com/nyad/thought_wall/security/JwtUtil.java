@@ -1,5 +1,11 @@
 package com.nyad.thought_wall.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import jakarta.annotation.PostConstruct;
@@ -8,7 +14,15 @@ import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.Date;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.LongPredicate;
 
 @Component
 public class JwtUtil {
@@ -16,31 +30,119 @@ public class JwtUtil {
     @Value("${jwt.secret}")
     private String secretString;
 
+    @Value("${app.jwt.cache.max-size:50000}")
+    private long cacheMaxSize;
+
     private SecretKey key;
 
+    // Thread-safe and immutable, so one instance serves every request
+    private JwtParser parser;
+
+    // Tokens whose signature we already checked, keyed by SHA-256 of the token.
+    // Each entry expires exactly when the token itself does.
+    private Cache<String, VerifiedToken> verifiedTokens;
+
     private final long EXPIRATION = 86400000; // 1 day
 
+    // Tokens without a "ver" claim predate the uid claim and are treated as version 1
+    static final int TOKEN_VERSION = 2;
+    static final String CLAIM_USER_ID = "uid";
+    static final String CLAIM_VERSION = "ver";
+
+    record VerifiedToken(AuthenticatedUser user, Instant expiresAt) {}
+
     @PostConstruct
     public void init() {
         // Create the key from the configured secret string
         this.key = Keys.hmacShaKeyFor(secretString.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser().verifyWith(key).build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String k, VerifiedToken v, long currentTime) {
+                        return Math.max(0, v.expiresAt().toEpochMilli() - System.currentTimeMillis()) * 1_000_000;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String k, VerifiedToken v, long currentTime, long currentDuration) {
+                        return expireAfterCreate(k, v, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String k, VerifiedToken v, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
     }
 
-    public String generateToken(String email) {
+    public String generateToken(Long userId, String email) {
         return Jwts.builder()
                 .subject(email)
+                .claim(CLAIM_USER_ID, userId)
+                .claim(CLAIM_VERSION, TOKEN_VERSION)
                 .issuedAt(new Date())
                 .expiration(new Date(System.currentTimeMillis() + EXPIRATION))
                 .signWith(key)
                 .compact();
     }
 
-    public String validateTokenAndGetEmail(String token) {
-        return Jwts.parser()
-                .verifyWith(key)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload()
-                .getSubject();
+    /**
+     * Verifies the token and returns its principal. For tokens issued before the uid claim
+     * existed, {@code idLookup} resolves the id from the email once; newer tokens have their uid
+     * checked with {@code userExists}. Either result is cached with the token so the lookup is
+     * not repeated, until {@link #forget} drops it. Returns null for an unknown version or a user
+     * that no longer exists.
+     */
+    public AuthenticatedUser validateToken(String token, Function<String, Optional<Long>> idLookup, LongPredicate userExists) {
+        String digest = digest(token);
+        VerifiedToken cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null && cached.expiresAt().isAfter(Instant.now())) {
+            return cached.user();
+        }
+
+        // Throws on a bad signature, malformed token or past exp
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        String email = claims.getSubject();
+        Integer version = claims.get(CLAIM_VERSION, Integer.class);
+        int ver = version == null ? 1 : version;
+        Long userId;
+        if (ver == 1) {
+            userId = idLookup.apply(email).orElse(null);
+            if (userId == null) return null;
+        } else if (ver == TOKEN_VERSION) {
+            userId = claims.get(CLAIM_USER_ID, Long.class);
+            // A deleted account's tokens stop working instead of failing every write on its foreign keys
+            if (userId == null || !userExists.test(userId)) return null;
+        } else {
+            return null;
+        }
+
+        AuthenticatedUser user = new AuthenticatedUser(userId, email);
+        if (claims.getExpiration() != null) {
+            verifiedTokens.put(digest, new VerifiedToken(user, claims.getExpiration().toInstant()));
+        }
+        return user;
+    }
+
+    /** Drops cached verifications of these users' tokens, so the next request checks them again. */
+    public void forget(Collection<Long> userIds) {
+        if (userIds.isEmpty()) return;
+        verifiedTokens.asMap().values().removeIf(v -> userIds.contains(v.user().id()));
+    }
+
+    public CacheStats tokenCacheStats() {
+        return verifiedTokens.stats();
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
-}
\ No newline at end of file
+}
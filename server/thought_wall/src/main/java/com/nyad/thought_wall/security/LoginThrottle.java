@@ -0,0 +1,87 @@
+package com.nyad.thought_wall.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits sign-in attempts per (account, client IP) pair and per client IP. Each attempt takes a
+ * slot in one atomic step before any lookup or hashing, so a burst of parallel guesses cannot
+ * all slip past the check before the first failure is recorded. Once a key has no slot left,
+ * attempts are refused with 429 until window has passed since its first attempt. A successful
+ * login gives its slots back.
+ *
+ * The account is only limited together with the IP, so someone guessing from one address cannot
+ * lock the owner out from another; the per-IP limit caps how many accounts one address tries.
+ * Counts are per node, so with several nodes the effective limit is up to nodes x the limit.
+ */
+@Component
+public class LoginThrottle {
+
+    @Value("${app.auth.throttle.max-failures-per-account-and-ip:5}")
+    private int maxPerAccountAndIp;
+
+    @Value("${app.auth.throttle.max-failures-per-ip:50}")
+    private int maxPerIp;
+
+    @Value("${app.auth.throttle.window:15m}")
+    private Duration window;
+
+    @Value("${app.auth.throttle.max-keys:100000}")
+    private long maxKeys;
+
+    // Written once per key, so each window runs from the first attempt
+    private Cache<String, AtomicInteger> accountFailures;
+    private Cache<String, AtomicInteger> ipFailures;
+
+    private final LongAdder throttled = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        this.accountFailures = Caffeine.newBuilder().maximumSize(maxKeys).expireAfterWrite(window).build();
+        this.ipFailures = Caffeine.newBuilder().maximumSize(maxKeys).expireAfterWrite(window).build();
+    }
+
+    /**
+     * Takes a slot for this attempt or refuses it with 429. The attempt counts as failed unless
+     * {@link #succeeded} is called for it.
+     */
+    public void acquire(String email, String ip) {
+        AtomicInteger account = accountFailures.get(account(email, ip), k -> new AtomicInteger());
+        if (take(account, maxPerAccountAndIp)) {
+            AtomicInteger address = ipFailures.get(ip, k -> new AtomicInteger());
+            if (take(address, maxPerIp)) return;
+            account.decrementAndGet(); // not attempted after all
+        }
+        throttled.increment();
+        throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many failed sign-ins, try again later");
+    }
+
+    public void succeeded(String email, String ip) {
+        accountFailures.invalidate(account(email, ip));
+        AtomicInteger address = ipFailures.getIfPresent(ip);
+        if (address != null) address.updateAndGet(c -> Math.max(0, c - 1));
+    }
+
+    public long throttledCount() {
+        return throttled.sum();
+    }
+
+    // Compare-and-set, so two attempts can never both take the last slot
+    private static boolean take(AtomicInteger count, int max) {
+        return count.getAndUpdate(c -> c < max ? c + 1 : c) < max;
+    }
+
+    private static String account(String email, String ip) {
+        return (email == null ? "" : email.toLowerCase(Locale.ROOT)) + "|" + ip;
+    }
+}
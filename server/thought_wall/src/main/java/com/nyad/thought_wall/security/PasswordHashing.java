@@ -0,0 +1,125 @@
+package com.nyad.thought_wall.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs BCrypt on its own small pool so a burst of logins cannot occupy the servlet threads.
+ *
+ * The pool has a bounded queue. When it is full, or a job has waited longer than timeout,
+ * the returned future fails with 503 straight away instead of the caller queueing behind
+ * seconds of hashing. Jobs that time out while still queued are skipped when their turn comes.
+ */
+@Component
+public class PasswordHashing {
+
+    // $2a$10$...: version, then the two-digit cost
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[abxy]?\\$(\\d{2})\\$");
+
+    @Autowired private PasswordEncoder passwordEncoder;
+    @Autowired private ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Value("${app.auth.bcrypt.strength:10}")
+    private int strength;
+
+    // BCrypt is CPU bound; by default leave half the cores to everything else
+    @Value("${app.auth.hashing.threads:0}")
+    private int threads;
+
+    @Value("${app.auth.hashing.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${app.auth.hashing.timeout:2s}")
+    private Duration timeout;
+
+    private ThreadPoolTaskExecutor executor;
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("hashing-");
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        // Default AbortPolicy: a full queue rejects instead of making the caller hash
+        executor.initialize();
+        meterRegistry.ifAvailable(registry -> new ExecutorServiceMetrics(executor.getThreadPoolExecutor(),
+                "hashing", Tags.empty()).bindTo(registry));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public CompletableFuture<String> encode(CharSequence rawPassword) {
+        return submit(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    public CompletableFuture<Boolean> matches(CharSequence rawPassword, String hash) {
+        return submit(() -> passwordEncoder.matches(rawPassword, hash));
+    }
+
+    /** True when the hash was made with a different cost than the configured strength (up or down). */
+    public boolean needsRehash(String hash) {
+        Matcher m = BCRYPT_COST.matcher(hash);
+        return m.find() && Integer.parseInt(m.group(1)) != strength;
+    }
+
+    public int queueDepth() {
+        return executor.getThreadPoolExecutor().getQueue().size();
+    }
+
+    public long rejectedCount() { return rejected.sum(); }
+    public long timedOutCount() { return timedOut.sum(); }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> work) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                // Timed out while queued: the caller already has its 503
+                if (result.isDone()) return;
+                try {
+                    result.complete(work.get());
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(busy());
+        }
+        CompletableFuture.delayedExecutor(timeout.toMillis(), TimeUnit.MILLISECONDS).execute(() -> {
+            if (result.completeExceptionally(busy())) timedOut.increment();
+        });
+        return result;
+    }
+
+    private static ResponseStatusException busy() {
+        return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many sign-ins in progress, try again shortly");
+    }
+}
@@ -0,0 +1,231 @@
+package com.nyad.thought_wall.service;
+
+import com.nyad.thought_wall.dto.BoardChanges;
+import com.nyad.thought_wall.entity.Thought;
+import com.nyad.thought_wall.repository.BoardScope;
+import com.nyad.thought_wall.repository.ThoughtRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-board change versions for incremental sync.
+ *
+ * Every thought write takes the next version of its board ({@link #next}) in the same
+ * transaction and stamps it on the row (thoughts.change_version) or, for deletes, on a
+ * tombstone. The increment locks the board's counter row until commit, so versions become
+ * visible in order and a client that has seen version N never misses a later change with a
+ * smaller one. {@link #changes} then answers "what changed since N" from two index ranges.
+ */
+@Service
+public class BoardVersionService {
+
+    private static final Logger log = LoggerFactory.getLogger(BoardVersionService.class);
+
+    private static final String BUMP =
+            "INSERT INTO board_versions (room_id, user_id, version, pruned_version) VALUES (?, ?, 1, 0) "
+            + "ON DUPLICATE KEY UPDATE version = version + 1";
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private ThoughtRepository thoughtRepository;
+
+    @Value("${app.sync.tombstone-retention:30d}")
+    private Duration tombstoneRetention;
+
+    @Value("${app.sync.max-changes:500}")
+    private int maxChanges;
+
+    private ScheduledExecutorService pruner;
+
+    @PostConstruct
+    public void start() {
+        pruner = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("tombstone-pruner").daemon().factory());
+        pruner.scheduleWithFixedDelay(this::pruneSafely, 1, 60, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void stop() {
+        pruner.shutdownNow();
+    }
+
+    /** Takes the board's next version. The row lock is held until the caller's transaction ends. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long next(BoardScope scope) {
+        jdbcTemplate.update(BUMP, scope.roomId(), scope.userId());
+        return current(scope);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void tombstones(BoardScope scope, long version, Collection<Long> thoughtIds) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(thoughtIds.size());
+        for (Long id : thoughtIds) rows.add(new Object[]{id, scope.roomId(), scope.userId(), version, now});
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO thought_tombstones (thought_id, room_id, user_id, version, deleted_at) VALUES (?, ?, ?, ?, ?)",
+                rows);
+    }
+
+    public long current(BoardScope scope) {
+        List<Long> version = jdbcTemplate.queryForList(
+                "SELECT version FROM board_versions WHERE room_id = ? AND user_id = ?", Long.class,
+                scope.roomId(), scope.userId());
+        return version.isEmpty() ? 0 : version.get(0);
+    }
+
+    public BoardChanges changes(BoardScope scope, long since) {
+        List<long[]> board = jdbcTemplate.query(
+                "SELECT version, pruned_version FROM board_versions WHERE room_id = ? AND user_id = ?",
+                (rs, i) -> new long[]{rs.getLong(1), rs.getLong(2)},
+                scope.roomId(), scope.userId());
+        long current = board.isEmpty() ? 0 : board.get(0)[0];
+        long pruned = board.isEmpty() ? 0 : board.get(0)[1];
+
+        // The common case: one primary-key read and nothing else
+        if (since == current) return BoardChanges.none(current);
+        if (since > current || since < pruned) return BoardChanges.reset(current);
+
+        // Updates and deletes share one page of max-changes rows, taken in version order
+        List<Thought> changed = find(scope, since, current, Limit.of(maxChanges + 1));
+        List<long[]> deleted = deletedBetween(scope, since, current, maxChanges + 1);
+        long upTo = current;
+        if (changed.size() + deleted.size() > maxChanges) {
+            // End the page on a whole version, so since=upTo next time skips nothing
+            upTo = nthVersion(changed, deleted, maxChanges);
+            long last = upTo;
+            changed = new ArrayList<>(changed);
+            changed.removeIf(t -> t.getChangeVersion() >= last);
+            changed.addAll(find(scope, last - 1, last, Limit.unlimited()));
+            deleted = new ArrayList<>(deleted);
+            deleted.removeIf(d -> d[0] >= last);
+            deleted.addAll(deletedBetween(scope, last - 1, last, Integer.MAX_VALUE));
+        }
+
+        // The pruner may have run since the watermark was read: if it purged tombstones this
+        // page should have listed, the page is incomplete
+        if (since < prunedVersion(scope)) return BoardChanges.reset(current);
+        return new BoardChanges(upTo, false, upTo < current, changed, deleted.stream().map(d -> d[1]).toList());
+    }
+
+    // (version, thought id) of the board's tombstones in (since, upTo], oldest first
+    private List<long[]> deletedBetween(BoardScope scope, long since, long upTo, int limit) {
+        return jdbcTemplate.query(
+                "SELECT version, thought_id FROM thought_tombstones WHERE room_id = ? AND user_id = ? "
+                + "AND version > ? AND version <= ? ORDER BY version, thought_id LIMIT ?",
+                (rs, i) -> new long[]{rs.getLong(1), rs.getLong(2)},
+                scope.roomId(), scope.userId(), since, upTo, limit);
+    }
+
+    // Version of the n-th row (1-based) of both lists merged in version order
+    private static long nthVersion(List<Thought> changed, List<long[]> deleted, int n) {
+        int c = 0;
+        int d = 0;
+        long version = 0;
+        for (int taken = 0; taken < n; taken++) {
+            boolean fromChanged = d >= deleted.size()
+                    || (c < changed.size() && changed.get(c).getChangeVersion() <= deleted.get(d)[0]);
+            version = fromChanged ? changed.get(c++).getChangeVersion() : deleted.get(d++)[0];
+        }
+        return version;
+    }
+
+    private long prunedVersion(BoardScope scope) {
+        List<Long> pruned = jdbcTemplate.queryForList(
+                "SELECT pruned_version FROM board_versions WHERE room_id = ? AND user_id = ?", Long.class,
+                scope.roomId(), scope.userId());
+        return pruned.isEmpty() ? 0 : pruned.get(0);
+    }
+
+    private List<Thought> find(BoardScope scope, long since, long upTo, Limit limit) {
+        return scope.isRoom()
+                ? thoughtRepository.findRoomChanges(scope.roomId(), since, upTo, limit)
+                : thoughtRepository.findPersonalChanges(scope.userId(), since, upTo, limit);
+    }
+
+    public void roomDeleted(long roomId) {
+        jdbcTemplate.update("DELETE FROM thought_tombstones WHERE room_id = ? AND user_id = 0", roomId);
+        jdbcTemplate.update("DELETE FROM board_versions WHERE room_id = ? AND user_id = 0", roomId);
+    }
+
+    /**
+     * Call in a transaction before DeletionService removes the account's rows: its thoughts in
+     * other people's rooms go with it, so those rooms get tombstones, and thoughts assigned to it
+     * are unassigned here so the change carries a version.
+     * Its own board's rows are dropped.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void userDeleted(long userId) {
+        Map<BoardScope, List<Long>> doomed = byBoard(
+                "SELECT room_id, 0, id FROM thoughts WHERE user_id = ? AND room_id IS NOT NULL", userId);
+        Map<BoardScope, List<Long>> unassigned = byBoard(
+                "SELECT COALESCE(room_id, 0), CASE WHEN room_id IS NULL THEN user_id ELSE 0 END, id "
+                + "FROM thoughts WHERE assigned_to = ? AND user_id <> ?", userId, userId);
+
+        // One version per board, all taken in lock order
+        Map<BoardScope, Long> versions = new TreeMap<>(BoardScope.ORDER);
+        doomed.keySet().forEach(board -> versions.put(board, 0L));
+        unassigned.keySet().forEach(board -> versions.put(board, 0L));
+        versions.replaceAll((board, unused) -> next(board));
+
+        doomed.forEach((room, ids) -> tombstones(room, versions.get(room), ids));
+        unassigned.forEach((board, ids) -> jdbcTemplate.batchUpdate(
+                "UPDATE thoughts SET assigned_to = NULL, change_version = ? WHERE id = ?",
+                ids.stream().map(id -> new Object[]{versions.get(board), id}).toList()));
+
+        jdbcTemplate.update("DELETE FROM thought_tombstones WHERE room_id = 0 AND user_id = ?", userId);
+        jdbcTemplate.update("DELETE FROM board_versions WHERE room_id = 0 AND user_id = ?", userId);
+    }
+
+    // Rows of (room_id, user_id, thought id) grouped by board, boards in a fixed order so the
+    // counter rows are always locked in the same sequence
+    private Map<BoardScope, List<Long>> byBoard(String sql, Object... args) {
+        Map<BoardScope, List<Long>> boards = new TreeMap<>(BoardScope.ORDER);
+        jdbcTemplate.query(sql, rs -> {
+            boards.computeIfAbsent(new BoardScope(rs.getLong(1), rs.getLong(2)), b -> new ArrayList<>()).add(rs.getLong(3));
+        }, args);
+        return boards;
+    }
+
+    private void pruneSafely() {
+        try {
+            prune();
+        } catch (RuntimeException e) {
+            // An exception would cancel the scheduled task for good
+            log.warn("Pruning tombstones failed: {}", e.getMessage());
+        }
+    }
+
+    // No transaction needed: the watermark goes up before the rows go, so a crash in between only over-reports
+    public void prune() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minus(tombstoneRetention));
+        // Raise each board's watermark first, so no client is told "nothing deleted" for a range we purge
+        jdbcTemplate.update(
+                "UPDATE board_versions b SET pruned_version = (SELECT MAX(t.version) FROM thought_tombstones t "
+                + "WHERE t.room_id = b.room_id AND t.user_id = b.user_id AND t.deleted_at < ?) "
+                + "WHERE EXISTS (SELECT 1 FROM thought_tombstones t "
+                + "WHERE t.room_id = b.room_id AND t.user_id = b.user_id AND t.deleted_at < ?)",
+                cutoff, cutoff);
+        int purged = jdbcTemplate.update("DELETE FROM thought_tombstones WHERE deleted_at < ?", cutoff);
+        if (purged > 0) log.info("Purged {} thought tombstones older than {}", purged, tombstoneRetention);
+    }
+}
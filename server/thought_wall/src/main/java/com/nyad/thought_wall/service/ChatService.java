@@ -0,0 +1,72 @@
+package com.nyad.thought_wall.service;
+
+import com.nyad.thought_wall.dto.ChatMessageView;
+import com.nyad.thought_wall.entity.ChatMessage;
+import com.nyad.thought_wall.repository.ChatMessageRepository;
+import com.nyad.thought_wall.repository.RoomRepository;
+import com.nyad.thought_wall.repository.UserRepository;
+import com.nyad.thought_wall.search.SearchIndex;
+import com.nyad.thought_wall.security.AuthenticatedUser;
+import com.nyad.thought_wall.util.TimeOrderedIdGenerator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Chat send path. With app.chat.write-behind.enabled the message is validated against
+ * in-memory caches, given its id and timestamp here and handed to {@link ChatWriteBehindQueue};
+ * otherwise it is saved synchronously as before.
+ */
+@Service
+public class ChatService {
+
+    private static final int MAX_CONTENT_LENGTH = 255; // chat_messages.content column size
+
+    @Autowired private ChatMessageRepository chatRepository;
+    @Autowired private RoomRepository roomRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private RoomMembershipService membershipService;
+    @Autowired private ChatWriteBehindQueue writeBehind;
+    @Autowired private TimeOrderedIdGenerator idGenerator;
+    @Autowired private SearchIndex searchIndex;
+    @Autowired private RateLimiter rateLimiter;
+
+    /** sender is the STOMP session's authenticated principal. */
+    public ChatMessageView send(Long roomId, AuthenticatedUser sender, String content) {
+        if (content == null || content.isBlank()) {
+            throw new IllegalArgumentException("Message cannot be empty");
+        }
+        if (content.length() > MAX_CONTENT_LENGTH) {
+            throw new IllegalArgumentException("Message too long");
+        }
+
+        // A deleted account is rejected here too: its memberships are gone
+        Long senderId = sender == null ? null : sender.id();
+        String senderEmail = sender == null ? null : sender.email();
+        if (senderId == null || !membershipService.isMember(roomId, senderId)) {
+            throw new IllegalStateException("Not a member of room " + roomId);
+        }
+        // Before any write or broadcast; refused messages go back to the sender only (ChatController)
+        rateLimiter.acquireChat(senderId, roomId);
+
+        if (writeBehind.isEnabled()) {
+            long id = idGenerator.nextId();
+            LocalDateTime now = LocalDateTime.now();
+            if (!writeBehind.offer(new ChatWriteBehindQueue.PendingMessage(id, content, now, senderId, roomId))) {
+                throw new IllegalStateException("Chat is overloaded, message not sent");
+            }
+            searchIndex.indexChat(id, roomId, senderId, content);
+            return new ChatMessageView(id, senderEmail, content, now);
+        }
+
+        ChatMessage message = new ChatMessage();
+        message.setContent(content);
+        message.setRoom(roomRepository.getReferenceById(roomId));
+        message.setSender(userRepository.getReferenceById(senderId));
+
+        ChatMessage saved = chatRepository.save(message);
+        searchIndex.indexChat(saved.getId(), roomId, senderId, content);
+        return new ChatMessageView(saved.getId(), senderEmail, saved.getContent(), saved.getTimestamp());
+    }
+}
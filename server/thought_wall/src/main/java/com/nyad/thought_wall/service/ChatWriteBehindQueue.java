@@ -0,0 +1,205 @@
+package com.nyad.thought_wall.service;
+
+import com.nyad.thought_wall.util.SqlIdentifiers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Persists chat messages in the background so the STOMP send path does not wait on MySQL.
+ *
+ * Messages already have their id and timestamp when they are queued. A single writer thread
+ * drains the queue in JDBC batches. The queue is bounded: when it is full, {@link #offer} waits
+ * up to offer-timeout and then refuses, which slows the inbound channel instead of growing the
+ * heap. On shutdown the queue stops accepting and is drained completely before the
+ * DataSource goes away.
+ */
+@Service
+public class ChatWriteBehindQueue implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatWriteBehindQueue.class);
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private TransactionTemplate transactionTemplate;
+
+    @Value("${app.chat.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.chat.write-behind.capacity:10000}")
+    private int capacity;
+
+    @Value("${app.chat.write-behind.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.chat.write-behind.flush-interval:50ms}")
+    private Duration flushInterval;
+
+    @Value("${app.chat.write-behind.offer-timeout:100ms}")
+    private Duration offerTimeout;
+
+    @Value("${app.chat.write-behind.max-retries:5}")
+    private int maxRetries;
+
+    public record PendingMessage(long id, String content, LocalDateTime timestamp, long senderId, long roomId) {}
+
+    private String insert;
+    private BlockingQueue<PendingMessage> queue;
+    private Thread writer;
+    private volatile boolean accepting;
+    private volatile boolean running;
+
+    private final LongAdder persisted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return false if the queue stayed full for offer-timeout or is shutting down;
+     *         the caller must then not broadcast the message
+     */
+    public boolean offer(PendingMessage message) {
+        if (!accepting) {
+            rejected.increment();
+            return false;
+        }
+        try {
+            if (queue.offer(message, offerTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rejected.increment();
+        return false;
+    }
+
+    public int queueDepth() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    public long persistedCount() { return persisted.sum(); }
+    public long rejectedCount() { return rejected.sum(); }
+    public long droppedCount() { return dropped.sum(); }
+
+    private void runWriter() {
+        List<PendingMessage> batch = new ArrayList<>(batchSize);
+        // Keep going after stop() until everything accepted so far is written
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingMessage first = queue.poll(flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<PendingMessage> batch) {
+        for (int attempt = 1; attempt <= maxRetries; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> insert(batch));
+                persisted.add(batch.size());
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Chat batch of {} failed (attempt {}/{}): {}", batch.size(), attempt, maxRetries, e.getMessage());
+                sleepQuietly(Math.min(50L << attempt, 2000));
+            }
+        }
+
+        // The batch keeps failing: write row by row so one bad row (e.g. a room deleted
+        // meanwhile) does not take the others down with it
+        for (PendingMessage message : batch) {
+            try {
+                insert(List.of(message));
+                persisted.increment();
+            } catch (RuntimeException e) {
+                dropped.increment();
+                log.error("Dropping chat message {} for room {}: {}", message.id(), message.roomId(), e.getMessage());
+            }
+        }
+    }
+
+    private void insert(List<PendingMessage> batch) {
+        jdbcTemplate.batchUpdate(insert, batch, batch.size(), (ps, m) -> {
+            ps.setLong(1, m.id());
+            ps.setString(2, m.content());
+            ps.setTimestamp(3, Timestamp.valueOf(m.timestamp()));
+            ps.setLong(4, m.senderId());
+            ps.setLong(5, m.roomId());
+        });
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) return;
+        insert = "INSERT INTO chat_messages (id, content, " + SqlIdentifiers.quote(jdbcTemplate, "timestamp")
+                + ", sender_id, room_id) VALUES (?, ?, ?, ?, ?)";
+        queue = new ArrayBlockingQueue<>(capacity);
+        running = true;
+        accepting = true;
+        writer = Thread.ofPlatform().name("chat-write-behind").start(this::runWriter);
+    }
+
+    @Override
+    public void stop() {
+        if (!running) return;
+        accepting = false;
+        running = false;
+        // The writer notices within one flush interval and exits once the queue is empty
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // An offer that was already waiting for space may have landed after the writer's last poll
+        List<PendingMessage> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) write(rest);
+        log.info("Chat write-behind drained: {} persisted, {} rejected, {} dropped",
+                persisted.sum(), rejected.sum(), dropped.sum());
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Stop after the web server and the STOMP broker (both stop in higher phases),
+    // so nothing is offered once we start draining
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+}
@@ -0,0 +1,257 @@
+package com.nyad.thought_wall.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nyad.thought_wall.archive.ChatArchive;
+import com.nyad.thought_wall.repository.RoomRepository;
+import com.nyad.thought_wall.repository.ThoughtRepository;
+import com.nyad.thought_wall.search.SearchIndex;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+
+/**
+ * Deletes rooms and accounts with set-based SQL instead of JPA cascades, so nothing is loaded
+ * into the persistence context and no statement touches more than chunk-size rows.
+ *
+ * Each chunk commits on its own, keeping lock times short however much data there is. A
+ * deletion is therefore not atomic: memberships go first (so nobody can write into a room
+ * being deleted), then thoughts and chat in chunks, then the room or user row. Board versions,
+ * tombstones and tag counts are settled before the rows go, in one transaction, as before.
+ *
+ * Runs on the caller's thread, or as a background job whose progress GET /api/deletions/{id}
+ * reports. A request for something already being deleted gets the running job back, still
+ * RUNNING, whichever way it asked. Rows are changed behind Hibernate's back, so the second-level
+ * cache is evicted here as well as on the other nodes.
+ */
+@Service
+public class DeletionService {
+
+    private static final Logger log = LoggerFactory.getLogger(DeletionService.class);
+
+    public enum State { QUEUED, RUNNING, DONE, FAILED }
+
+    /** Progress of one deletion; rows counts are per table and grow as chunks commit. */
+    public static class Job {
+        public final String id = UUID.randomUUID().toString();
+        public final String kind; // "room" or "account"
+        public final long targetId;
+        public volatile State state = State.QUEUED;
+        public final Map<String, Long> rows = new ConcurrentHashMap<>();
+        public volatile String error;
+        final long requestedBy;
+
+        Job(String kind, long targetId, long requestedBy) {
+            this.kind = kind;
+            this.targetId = targetId;
+            this.requestedBy = requestedBy;
+        }
+
+        void deleted(String table, long count) {
+            if (count > 0) rows.merge(table, count, Long::sum);
+        }
+    }
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private TransactionTemplate transactionTemplate;
+    @Autowired private RoomRepository roomRepository;
+    @Autowired private ThoughtRepository thoughtRepository;
+    @Autowired private RoomMembershipService membershipService;
+    @Autowired private RoomEventPublisher events;
+    @Autowired private SearchIndex searchIndex;
+    @Autowired private TagCountService tagCounts;
+    @Autowired private BoardVersionService versions;
+    @Autowired private ResourceVersionService resourceVersions;
+    @Autowired private EntityCacheInvalidator cacheInvalidator;
+    @Autowired private ChatArchive chatArchive;
+
+    @Value("${app.deletion.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${app.deletion.threads:1}")
+    private int threads;
+
+    @Value("${app.deletion.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${app.deletion.job-retention:1h}")
+    private Duration jobRetention;
+
+    private ThreadPoolTaskExecutor executor;
+    private Cache<String, Job> jobs;
+    // "room:12" -> its running job, so a repeated request joins it instead of racing it;
+    // the caller tells from the job's state whether it is done (200) or still running (202)
+    private final Map<String, Job> active = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("deletion-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.initialize();
+        jobs = Caffeine.newBuilder().maximumSize(10_000).expireAfterWrite(jobRetention).build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public Job deleteRoom(long roomId, long requestedBy, boolean async) {
+        return start(new Job("room", roomId, requestedBy), async, this::runRoom);
+    }
+
+    public Job deleteAccount(long userId, boolean async) {
+        return start(new Job("account", userId, userId), async, this::runAccount);
+    }
+
+    /** The job, if it exists and belongs to the user asking. */
+    public Job job(String id, long userId) {
+        Job job = jobs.getIfPresent(id);
+        return job != null && job.requestedBy == userId ? job : null;
+    }
+
+    private interface Steps {
+        void run(Job job);
+    }
+
+    private Job start(Job job, boolean async, Steps steps) {
+        Job running = active.putIfAbsent(job.kind + ":" + job.targetId, job);
+        if (running != null) return running;
+        jobs.put(job.id, job);
+
+        if (!async) {
+            execute(job, steps);
+            if (job.state == State.FAILED) {
+                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Deletion failed, try again");
+            }
+            return job;
+        }
+        try {
+            executor.execute(() -> execute(job, steps));
+        } catch (RejectedExecutionException e) {
+            active.remove(job.kind + ":" + job.targetId);
+            jobs.invalidate(job.id);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many deletions in progress, try again later");
+        }
+        return job;
+    }
+
+    private void execute(Job job, Steps steps) {
+        job.state = State.RUNNING;
+        try {
+            steps.run(job);
+            job.state = State.DONE;
+        } catch (RuntimeException e) {
+            // Everything committed so far stays deleted; running it again picks up the rest
+            log.warn("Deleting {} {} failed", job.kind, job.targetId, e);
+            job.error = e.getMessage();
+            job.state = State.FAILED;
+        } finally {
+            active.remove(job.kind + ":" + job.targetId);
+            jobs.put(job.id, job); // retention counts from the end
+        }
+    }
+
+    private void runRoom(Job job) {
+        long roomId = job.targetId;
+        List<Long> memberIds = jdbcTemplate.queryForList("SELECT user_id FROM room_members WHERE room_id = ?", Long.class, roomId);
+        List<Long> assigneeIds = thoughtRepository.findAssigneeIdsByRoomId(roomId);
+
+        removeRoomRows(job, roomId);
+        job.deleted("rooms", jdbcTemplate.update("DELETE FROM rooms WHERE id = ?", roomId));
+
+        cacheInvalidator.changedOutsideHibernate(List.of(), List.of(roomId));
+        events.roomDeleted(roomId);
+        searchIndex.removeRoom(roomId);
+        resourceVersions.bump(ResourceVersionService.Kind.USER_ROOMS, memberIds);
+        resourceVersions.bump(ResourceVersionService.Kind.ROOM_MEMBERS, roomId);
+        resourceVersions.bump(ResourceVersionService.Kind.USER_ASSIGNED, assigneeIds);
+    }
+
+    private void runAccount(Job job) {
+        long userId = job.targetId;
+        List<Long> ownedRoomIds = jdbcTemplate.queryForList("SELECT id FROM rooms WHERE owner_id = ?", Long.class, userId);
+        // Whose room lists, member lists and profiles change with this account
+        List<Long> joinedRoomIds = roomRepository.findIdsByMembersId(userId);
+        List<Long> roomMates = roomRepository.findRoomMateIds(userId);
+        List<Long> assignees = thoughtRepository.findAssigneeIdsDeletedWithUser(userId);
+
+        // Tombstones for its thoughts in other people's rooms, versioned unassignment of tasks
+        // assigned to it, its own board's counts; both read the thoughts, so they go before any
+        // thought does, the owned rooms' included
+        transactionTemplate.executeWithoutResult(status -> {
+            tagCounts.userDeleted(userId);
+            versions.userDeleted(userId);
+        });
+
+        // Their counters and tombstones, including any the pass above wrote, go with them
+        for (long roomId : ownedRoomIds) {
+            removeRoomRows(job, roomId);
+            job.deleted("rooms", jdbcTemplate.update("DELETE FROM rooms WHERE id = ?", roomId));
+            events.roomDeleted(roomId);
+            searchIndex.removeRoom(roomId);
+        }
+
+        membershipService.userDeleted(userId);
+        job.deleted("room_members", chunked("DELETE FROM room_members WHERE user_id = ?", userId));
+        job.deleted("room_requests", chunked("DELETE FROM room_requests WHERE user_id = ?", userId));
+        job.deleted("thoughts", chunked("DELETE FROM thoughts WHERE user_id = ?", userId));
+        // Anything assigned after the versioned pass above
+        job.deleted("assignments", chunked("UPDATE thoughts SET assigned_to = NULL WHERE assigned_to = ?", userId));
+        job.deleted("chat_messages", chunked("DELETE FROM chat_messages WHERE sender_id = ?", userId));
+        job.deleted("chat_archive", chatArchive.removeSender(userId));
+        job.deleted("users", jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId));
+
+        cacheInvalidator.changedOutsideHibernate(List.of(userId),
+                Stream.concat(ownedRoomIds.stream(), joinedRoomIds.stream()).distinct().toList());
+        searchIndex.removeAuthor(userId);
+        resourceVersions.bump(ResourceVersionService.Kind.ROOM_MEMBERS, joinedRoomIds);
+        resourceVersions.bump(ResourceVersionService.Kind.USER_ROOMS, roomMates);
+        resourceVersions.bump(ResourceVersionService.Kind.USER_ASSIGNED, assignees);
+    }
+
+    // Everything that belongs to the room except its own row
+    private void removeRoomRows(Job job, long roomId) {
+        // Memberships first: from here on nobody can post into the room
+        job.deleted("room_members", chunked("DELETE FROM room_members WHERE room_id = ?", roomId));
+        membershipService.roomDeleted(roomId);
+        job.deleted("room_requests", chunked("DELETE FROM room_requests WHERE room_id = ?", roomId));
+        job.deleted("thoughts", chunked("DELETE FROM thoughts WHERE room_id = ?", roomId));
+        job.deleted("chat_messages", chunked("DELETE FROM chat_messages WHERE room_id = ?", roomId));
+        job.deleted("chat_archive", chatArchive.deleteRoom(roomId));
+        tagCounts.roomDeleted(roomId);
+        versions.roomDeleted(roomId);
+    }
+
+    // Repeats the statement with LIMIT chunk-size until it affects fewer rows; each run is its own transaction
+    private long chunked(String sql, long id) {
+        String limited = sql + " LIMIT " + chunkSize;
+        long total = 0;
+        int affected;
+        do {
+            affected = jdbcTemplate.update(limited, id);
+            total += affected;
+        } while (affected == chunkSize);
+        return total;
+    }
+}
@@ -0,0 +1,90 @@
+package com.nyad.thought_wall.service;
+
+import com.nyad.thought_wall.cluster.ClusterFanout;
+import com.nyad.thought_wall.entity.Room;
+import com.nyad.thought_wall.entity.User;
+import com.nyad.thought_wall.security.JwtUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps other nodes' second-level caches (SecondLevelCacheConfig) in step with writes made here.
+ *
+ * Hibernate already updates this node's cache on every write it performs, so the controllers
+ * only call in after a change to users or rooms has committed. The notice names the changed
+ * ids; receivers evict those entities (and room member sets) plus all cached query results,
+ * since a new email or room code can turn a cached "not found" into a stale answer. Changed
+ * users' tokens are also verified again (JwtUtil), so a deleted account's tokens stop working.
+ * Without clustering this does nothing.
+ */
+@Service
+public class EntityCacheInvalidator {
+
+    private static final String DESTINATION = ClusterFanout.CONTROL_PREFIX + "entity-cache";
+    private static final String ROOM_MEMBERS_ROLE = Room.class.getName() + ".members";
+
+    @Autowired private EntityManagerFactory entityManagerFactory;
+    @Autowired private JwtUtil jwtUtil;
+    // Only present with app.cluster.enabled=true
+    @Autowired private ObjectProvider<ClusterFanout> clusterFanout;
+
+    @PostConstruct
+    public void listen() {
+        clusterFanout.ifAvailable(fanout -> fanout.onControl(DESTINATION, this::received));
+    }
+
+    public void userChanged(long userId) {
+        changed(List.of(userId), List.of());
+    }
+
+    public void roomChanged(long roomId) {
+        changed(List.of(), List.of(roomId));
+    }
+
+    public void changed(Collection<Long> userIds, Collection<Long> roomIds) {
+        clusterFanout.ifAvailable(fanout -> fanout.broadcast(DESTINATION, encode(userIds, roomIds)));
+    }
+
+    /** For rows written with plain SQL (DeletionService): Hibernate never saw it, so evict here too. */
+    public void changedOutsideHibernate(Collection<Long> userIds, Collection<Long> roomIds) {
+        evict(userIds, roomIds);
+        changed(userIds, roomIds);
+    }
+
+    // "users;rooms", each a comma-separated id list, e.g. "7;12,13"
+    private static byte[] encode(Collection<Long> userIds, Collection<Long> roomIds) {
+        String users = userIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+        String rooms = roomIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+        return (users + ";" + rooms).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private void received(byte[] payload) {
+        String[] parts = new String(payload, StandardCharsets.US_ASCII).split(";", -1);
+        evict(ids(parts[0]), ids(parts[1]));
+    }
+
+    private static List<Long> ids(String list) {
+        return list.isEmpty() ? List.of() : Arrays.stream(list.split(",")).map(Long::valueOf).toList();
+    }
+
+    private void evict(Collection<Long> userIds, Collection<Long> roomIds) {
+        Cache cache = entityManagerFactory.getCache().unwrap(Cache.class);
+        userIds.forEach(id -> cache.evictEntityData(User.class, id));
+        for (Long id : roomIds) {
+            cache.evictEntityData(Room.class, id);
+            cache.evictCollectionData(ROOM_MEMBERS_ROLE, id);
+        }
+        cache.evictDefaultQueryRegion();
+        jwtUtil.forget(userIds);
+    }
+}
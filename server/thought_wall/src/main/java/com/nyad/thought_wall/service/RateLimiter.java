@@ -0,0 +1,153 @@
+package com.nyad.thought_wall.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token buckets for write paths, one per (limit, key): chat messages per sender and per room,
+ * thought writes per user.
+ *
+ * Each bucket is a single AtomicLong updated by compare-and-set (GCRA: the bucket stores the
+ * time at which it will be full again instead of a token count), so concurrent callers never
+ * block each other. Buckets live in bounded Caffeine caches and are dropped after being idle
+ * long enough to have refilled, which is indistinguishable from a new one.
+ *
+ * Limits are per node: with N nodes behind a load balancer a client can get up to N x rate.
+ */
+@Service
+public class RateLimiter {
+
+    public enum Limit { CHAT_USER, CHAT_ROOM, THOUGHT_WRITE }
+
+    /** 429 over HTTP; sent to the sender's /user/queue/errors over STOMP (ChatController). */
+    public static class RateLimitedException extends ResponseStatusException {
+        public RateLimitedException(Limit limit) {
+            super(HttpStatus.TOO_MANY_REQUESTS, limit == Limit.CHAT_ROOM
+                    ? "This room is receiving too many messages, slow down"
+                    : "Too many requests, slow down");
+        }
+    }
+
+    @Value("${app.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.rate-limit.max-keys:100000}")
+    private long maxKeys;
+
+    @Value("${app.rate-limit.chat.user.rate:5}")
+    private double chatUserRate;
+    @Value("${app.rate-limit.chat.user.burst:10}")
+    private int chatUserBurst;
+
+    @Value("${app.rate-limit.chat.room.rate:50}")
+    private double chatRoomRate;
+    @Value("${app.rate-limit.chat.room.burst:100}")
+    private int chatRoomBurst;
+
+    @Value("${app.rate-limit.thoughts.user.rate:10}")
+    private double thoughtRate;
+    @Value("${app.rate-limit.thoughts.user.burst:30}")
+    private int thoughtBurst;
+
+    private final Map<Limit, Buckets> buckets = new EnumMap<>(Limit.class);
+    private final Map<Limit, LongAdder> throttled = new EnumMap<>(Limit.class);
+
+    @PostConstruct
+    public void init() {
+        buckets.put(Limit.CHAT_USER, new Buckets(chatUserRate, chatUserBurst));
+        buckets.put(Limit.CHAT_ROOM, new Buckets(chatRoomRate, chatRoomBurst));
+        buckets.put(Limit.THOUGHT_WRITE, new Buckets(thoughtRate, thoughtBurst));
+        for (Limit limit : Limit.values()) throttled.put(limit, new LongAdder());
+    }
+
+    /**
+     * One chat message from sender to room; throws if either the sender or the room is over its
+     * rate. Both buckets are checked before either is charged, so a message the room refuses
+     * does not cost the sender a token.
+     */
+    public void acquireChat(long senderId, long roomId) {
+        if (!enabled) return;
+        Buckets users = buckets.get(Limit.CHAT_USER);
+        Buckets rooms = buckets.get(Limit.CHAT_ROOM);
+        if (!users.hasRoom(senderId, 1)) throw refused(Limit.CHAT_USER);
+        if (!rooms.hasRoom(roomId, 1)) throw refused(Limit.CHAT_ROOM);
+        if (!users.tryAcquire(senderId, 1)) throw refused(Limit.CHAT_USER);
+        if (!rooms.tryAcquire(roomId, 1)) {
+            // Another sender took the room's last token in between
+            users.refund(senderId, 1);
+            throw refused(Limit.CHAT_ROOM);
+        }
+    }
+
+    public void acquireThoughtWrites(long userId, int operations) {
+        // A batch larger than the burst could never pass, so it costs a full bucket instead
+        acquire(Limit.THOUGHT_WRITE, userId, Math.clamp(operations, 1, thoughtBurst));
+    }
+
+    public long throttledCount(Limit limit) {
+        return throttled.get(limit).sum();
+    }
+
+    private void acquire(Limit limit, long key, int permits) {
+        if (!enabled) return;
+        if (!buckets.get(limit).tryAcquire(key, permits)) throw refused(limit);
+    }
+
+    private RateLimitedException refused(Limit limit) {
+        throttled.get(limit).increment();
+        return new RateLimitedException(limit);
+    }
+
+    private final class Buckets {
+
+        private final long intervalNanos; // time for one token to come back
+        private final long burstNanos;    // how far ahead of now a full bucket may be drained
+        private final Cache<Long, AtomicLong> fullAt;
+
+        Buckets(double ratePerSecond, int burst) {
+            this.intervalNanos = (long) (1_000_000_000L / ratePerSecond);
+            this.burstNanos = intervalNanos * burst;
+            this.fullAt = Caffeine.newBuilder()
+                    .maximumSize(maxKeys)
+                    .expireAfterAccess(Duration.ofNanos(burstNanos))
+                    .build();
+        }
+
+        // Whether tryAcquire would pass right now, without taking anything
+        boolean hasRoom(long key, int permits) {
+            AtomicLong bucket = fullAt.getIfPresent(key);
+            if (bucket == null) return true;
+            long now = System.nanoTime();
+            return Math.max(bucket.get(), now) + permits * intervalNanos - now <= burstNanos;
+        }
+
+        // Gives back what tryAcquire took
+        void refund(long key, int permits) {
+            AtomicLong bucket = fullAt.getIfPresent(key);
+            if (bucket != null) bucket.addAndGet(-permits * intervalNanos);
+        }
+
+        boolean tryAcquire(long key, int permits) {
+            AtomicLong bucket = fullAt.get(key, k -> new AtomicLong(Long.MIN_VALUE));
+            long cost = permits * intervalNanos;
+            while (true) {
+                long now = System.nanoTime();
+                long current = bucket.get();
+                long next = Math.max(current, now) + cost;
+                if (next - now > burstNanos) return false;
+                if (bucket.compareAndSet(current, next)) return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.nyad.thought_wall.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Version counters behind the ETags of the room list, room members and profile endpoints
+ * (boards use {@link BoardVersionService}). Writers bump after their change has committed:
+ * bumping first would let a reader cache the old data under the new version.
+ */
+@Service
+public class ResourceVersionService {
+
+    public enum Kind {
+        USER_ROOMS,     // rooms a user owns or belongs to
+        USER_ASSIGNED,  // thoughts assigned to a user (profile page)
+        ROOM_MEMBERS
+    }
+
+    private static final String BUMP =
+            "INSERT INTO resource_versions (kind, resource_id, version) VALUES (?, ?, 1) "
+            + "ON DUPLICATE KEY UPDATE version = version + 1";
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    public long get(Kind kind, long id) {
+        List<Long> version = jdbcTemplate.queryForList(
+                "SELECT version FROM resource_versions WHERE kind = ? AND resource_id = ?", Long.class, kind.name(), id);
+        return version.isEmpty() ? 0 : version.get(0);
+    }
+
+    public void bump(Kind kind, long id) {
+        jdbcTemplate.update(BUMP, kind.name(), id);
+    }
+
+    public void bump(Kind kind, Collection<Long> ids) {
+        if (ids.isEmpty()) return;
+        List<Object[]> rows = new ArrayList<>(ids.size());
+        // Sorted, so concurrent bumps of overlapping sets lock rows in the same order
+        ids.stream().distinct().sorted().forEach(id -> rows.add(new Object[]{kind.name(), id}));
+        jdbcTemplate.batchUpdate(BUMP, rows);
+    }
+}
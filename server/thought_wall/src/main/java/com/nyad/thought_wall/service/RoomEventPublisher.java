@@ -0,0 +1,207 @@
+package com.nyad.thought_wall.service;
+
+import com.nyad.thought_wall.dto.RoomEvents;
+import com.nyad.thought_wall.dto.ThoughtEvent;
+import com.nyad.thought_wall.dto.ThoughtView;
+import com.nyad.thought_wall.entity.Thought;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Publishes typed thought events to /topic/room/{roomId}/events so clients can patch their
+ * board instead of refetching it. The bare "UPDATE" string on /topic/room/{roomId} is still
+ * sent when app.events.legacy-update-signal is on, for clients that only understand that.
+ *
+ * Events are coalesced per room: request threads only enqueue (no locks), and a single
+ * flusher thread sends at most one {@link RoomEvents} message per room every
+ * app.events.coalesce-window. Several writes to the same thought inside one window collapse
+ * into its latest state. A window of 0 sends every event immediately.
+ */
+@Service
+public class RoomEventPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(RoomEventPublisher.class);
+
+    @Autowired private SimpMessagingTemplate messagingTemplate;
+
+    @Value("${app.node-id:0}")
+    private int nodeId;
+
+    @Value("${app.events.legacy-update-signal:false}")
+    private boolean legacyUpdateSignal;
+
+    @Value("${app.events.coalesce-window:50ms}")
+    private Duration coalesceWindow;
+
+    private record Pending(ThoughtEvent.Type type, Long thoughtId, ThoughtView thought) {}
+
+    private static final class RoomState {
+        // Grouped as published, so a batch request never straddles two flushes
+        final Queue<List<Pending>> pending = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean dirty = new AtomicBoolean();
+        // Only the flusher (or the synchronized direct path) assigns versions, so they go out in order.
+        // In memory only: they restart at 1 with the server, which clients answer with a refetch.
+        final AtomicLong version = new AtomicLong();
+    }
+
+    private final ConcurrentMap<Long, RoomState> rooms = new ConcurrentHashMap<>();
+    private final Queue<Long> dirtyRooms = new ConcurrentLinkedQueue<>();
+    private ScheduledExecutorService flusher;
+
+    private final LongAdder eventsIn = new LongAdder();
+    private final LongAdder messagesOut = new LongAdder();
+
+    @PostConstruct
+    public void start() {
+        if (coalesceWindow.isZero()) return;
+        flusher = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("room-events").daemon().factory());
+        long window = coalesceWindow.toMillis();
+        flusher.scheduleAtFixedRate(this::flushSafely, window, window, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (flusher == null) return;
+        flusher.shutdown();
+        flusher.awaitTermination(1, TimeUnit.SECONDS);
+        flushSafely(); // whatever arrived during the last window
+    }
+
+    public void thoughtCreated(Thought thought) {
+        publish(thought.getRoom().getId(), List.of(created(thought)));
+    }
+
+    public void thoughtUpdated(Thought thought) {
+        publish(thought.getRoom().getId(), List.of(updated(thought)));
+    }
+
+    public void thoughtDeleted(Long roomId, Long thoughtId) {
+        publish(roomId, List.of(deleted(thoughtId)));
+    }
+
+    /** Everything one batch request changed in a room; always sent as a single message. */
+    public void thoughtsChanged(Long roomId, List<Thought> createdThoughts, List<Thought> updatedThoughts, List<Long> deletedIds) {
+        List<Pending> group = new ArrayList<>(createdThoughts.size() + updatedThoughts.size() + deletedIds.size());
+        createdThoughts.forEach(t -> group.add(created(t)));
+        updatedThoughts.forEach(t -> group.add(updated(t)));
+        deletedIds.forEach(id -> group.add(deleted(id)));
+        if (!group.isEmpty()) publish(roomId, group);
+    }
+
+    private static Pending created(Thought thought) {
+        return new Pending(ThoughtEvent.Type.CREATED, thought.getId(), ThoughtView.of(thought));
+    }
+
+    private static Pending updated(Thought thought) {
+        return new Pending(ThoughtEvent.Type.UPDATED, thought.getId(), ThoughtView.of(thought));
+    }
+
+    private static Pending deleted(Long thoughtId) {
+        return new Pending(ThoughtEvent.Type.DELETED, thoughtId, null);
+    }
+
+    public void roomDeleted(Long roomId) {
+        rooms.remove(roomId);
+    }
+
+    public long eventsIn() { return eventsIn.sum(); }
+    public long messagesOut() { return messagesOut.sum(); }
+    // Walks the queue, so for metrics scrapes rather than hot paths
+    public int pendingRooms() { return dirtyRooms.size(); }
+
+    private void publish(Long roomId, List<Pending> events) {
+        eventsIn.add(events.size());
+        RoomState state = rooms.get(roomId);
+        if (state == null) state = rooms.computeIfAbsent(roomId, id -> new RoomState());
+
+        if (flusher == null) {
+            synchronized (state) {
+                send(roomId, state, events);
+            }
+            return;
+        }
+
+        state.pending.offer(events);
+        // First event since the last flush puts the room on the flusher's list
+        if (state.dirty.compareAndSet(false, true)) {
+            dirtyRooms.offer(roomId);
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // An exception would cancel the scheduled task for good
+            log.warn("Flushing room events failed: {}", e.getMessage());
+        }
+    }
+
+    private void flush() {
+        Long roomId;
+        while ((roomId = dirtyRooms.poll()) != null) {
+            RoomState state = rooms.get(roomId);
+            if (state == null) continue; // room deleted meanwhile
+
+            // Clear the flag before draining: an event offered from here on re-queues the room
+            state.dirty.set(false);
+            Map<Long, Pending> latest = new LinkedHashMap<>();
+            List<Pending> group;
+            while ((group = state.pending.poll()) != null) {
+                for (Pending event : group) {
+                    latest.merge(event.thoughtId(), event, RoomEventPublisher::coalesce);
+                }
+            }
+            latest.values().removeIf(p -> p.type() == null);
+            if (!latest.isEmpty()) {
+                send(roomId, state, new ArrayList<>(latest.values()));
+            }
+        }
+    }
+
+    // Later state wins, but a thought created in this window is still news to clients,
+    // and one created and deleted in the same window never reaches them at all
+    private static Pending coalesce(Pending earlier, Pending later) {
+        if (earlier.type() == ThoughtEvent.Type.CREATED) {
+            if (later.type() == ThoughtEvent.Type.DELETED) return new Pending(null, later.thoughtId(), null);
+            return new Pending(ThoughtEvent.Type.CREATED, later.thoughtId(), later.thought());
+        }
+        return later;
+    }
+
+    private void send(Long roomId, RoomState state, List<Pending> events) {
+        List<ThoughtEvent> out = new ArrayList<>(events.size());
+        for (Pending p : events) {
+            out.add(new ThoughtEvent(p.type(), roomId, state.version.incrementAndGet(), p.thoughtId(), p.thought()));
+        }
+        messagingTemplate.convertAndSend("/topic/room/" + roomId + "/events", new RoomEvents(roomId, nodeId, out));
+        messagesOut.increment();
+
+        if (legacyUpdateSignal) {
+            messagingTemplate.convertAndSend("/topic/room/" + roomId, "UPDATE");
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.nyad.thought_wall.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.nyad.thought_wall.cluster.ClusterFanout;
+import com.nyad.thought_wall.repository.RoomRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Answers "is user X a member of room Y" without loading Room.members.
+ * Misses go to a single primary-key lookup on room_members; answers are cached
+ * (both yes and no) and invalidated by whatever changes membership. With clustering each
+ * invalidation is also sent to the other nodes (ClusterFanout), so a removed member or a
+ * deleted room or account stops passing there too; the TTL only covers a lost notice.
+ */
+@Service
+public class RoomMembershipService {
+
+    private static final String DESTINATION = ClusterFanout.CONTROL_PREFIX + "membership";
+
+    @Autowired private RoomRepository roomRepository;
+    // Only present with app.cluster.enabled=true
+    @Autowired private ObjectProvider<ClusterFanout> clusterFanout;
+
+    @Value("${app.membership.cache.max-size:100000}")
+    private long maxSize;
+
+    @Value("${app.membership.cache.ttl:10m}")
+    private Duration ttl;
+
+    private Cache<MembershipKey, Boolean> cache;
+
+    private record MembershipKey(long roomId, long userId) {}
+
+    @PostConstruct
+    public void init() {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        clusterFanout.ifAvailable(fanout -> fanout.onControl(DESTINATION, this::received));
+    }
+
+    public boolean isMember(Long roomId, Long userId) {
+        if (roomId == null || userId == null) return false;
+        return cache.get(new MembershipKey(roomId, userId), k -> roomRepository.isMember(k.roomId(), k.userId()));
+    }
+
+    public void memberAdded(Long roomId, Long userId) {
+        evictAll(roomId + ":" + userId);
+    }
+
+    public void memberRemoved(Long roomId, Long userId) {
+        evictAll(roomId + ":" + userId);
+    }
+
+    public void roomDeleted(Long roomId) {
+        evictAll(roomId + ":");
+    }
+
+    public void userDeleted(Long userId) {
+        evictAll(":" + userId);
+    }
+
+    // "room:user", "room:" (whole room) or ":user" (whole account)
+    private void evictAll(String notice) {
+        evict(notice);
+        clusterFanout.ifAvailable(fanout -> fanout.broadcast(DESTINATION, notice.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private void received(byte[] payload) {
+        evict(new String(payload, StandardCharsets.US_ASCII));
+    }
+
+    private void evict(String notice) {
+        int colon = notice.indexOf(':');
+        String room = notice.substring(0, colon);
+        String user = notice.substring(colon + 1);
+        if (user.isEmpty()) {
+            long roomId = Long.parseLong(room);
+            cache.asMap().keySet().removeIf(k -> k.roomId() == roomId);
+        } else if (room.isEmpty()) {
+            long userId = Long.parseLong(user);
+            cache.asMap().keySet().removeIf(k -> k.userId() == userId);
+        } else {
+            cache.invalidate(new MembershipKey(Long.parseLong(room), Long.parseLong(user)));
+        }
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
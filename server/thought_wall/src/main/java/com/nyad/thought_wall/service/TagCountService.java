@@ -0,0 +1,150 @@
+package com.nyad.thought_wall.service;
+
+import com.nyad.thought_wall.entity.Thought;
+import com.nyad.thought_wall.repository.BoardScope;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Maintains tag_counts: open/completed thoughts per tag on every board, adjusted by +-1 on
+ * each thought write so the facets endpoint reads a handful of rows instead of grouping
+ * the thoughts table. Increments are atomic upserts, so concurrent writers never lose counts.
+ * Call these inside the transaction that writes the thoughts: they join it, so the counts
+ * commit or roll back together with the rows they count.
+ */
+@Service
+public class TagCountService {
+
+    private static final String UPSERT =
+            "INSERT INTO tag_counts (room_id, user_id, tag_id, open_count, completed_count) VALUES (?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE open_count = open_count + VALUES(open_count), "
+            + "completed_count = completed_count + VALUES(completed_count)";
+
+    // Adds the from-tag's row onto the to-tag's in one statement; the derived table renames the
+    // columns so the UPDATE clause can tell them from the target's
+    private static final String MOVE =
+            "INSERT INTO tag_counts (room_id, user_id, tag_id, open_count, completed_count) "
+            + "SELECT * FROM (SELECT room_id, user_id, ? AS tag_id, open_count AS moved_open, completed_count AS moved_completed "
+            + "FROM tag_counts WHERE room_id = ? AND user_id = ? AND tag_id = ?) AS moved "
+            + "ON DUPLICATE KEY UPDATE open_count = open_count + moved_open, "
+            + "completed_count = completed_count + moved_completed";
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    public record Facet(String tag, long open, long completed) {}
+
+    @Transactional
+    public void thoughtCreated(Thought thought) {
+        adjust(BoardScope.of(thought), thought.getTagRef().getId(), thought.isCompleted(), 1);
+    }
+
+    @Transactional
+    public void thoughtDeleted(BoardScope scope, Integer tagId, boolean completed) {
+        adjust(scope, tagId, completed, -1);
+    }
+
+    @Transactional
+    public void thoughtChanged(BoardScope scope, Integer oldTagId, boolean wasCompleted, Integer newTagId, boolean completed) {
+        if (Objects.equals(oldTagId, newTagId) && wasCompleted == completed) return;
+        adjust(scope, oldTagId, wasCompleted, -1);
+        adjust(scope, newTagId, completed, 1);
+    }
+
+    /**
+     * Net changes from several writes (a batch request), applied with one JDBC batch.
+     * Changes that cancel out, like moving a card away and back, write nothing.
+     */
+    public static final class Deltas {
+        private record Key(BoardScope scope, int tagId) {}
+        private final Map<Key, long[]> changes = new HashMap<>();
+
+        public void created(BoardScope scope, Integer tagId, boolean completed) { add(scope, tagId, completed, 1); }
+        public void deleted(BoardScope scope, Integer tagId, boolean completed) { add(scope, tagId, completed, -1); }
+
+        public void changed(BoardScope scope, Integer oldTagId, boolean wasCompleted, Integer newTagId, boolean completed) {
+            add(scope, oldTagId, wasCompleted, -1);
+            add(scope, newTagId, completed, 1);
+        }
+
+        private void add(BoardScope scope, Integer tagId, boolean completed, long delta) {
+            if (tagId == null) return;
+            changes.computeIfAbsent(new Key(scope, tagId), k -> new long[2])[completed ? 1 : 0] += delta;
+        }
+    }
+
+    @Transactional
+    public void apply(Deltas deltas) {
+        List<Object[]> rows = new ArrayList<>();
+        deltas.changes.forEach((key, counts) -> {
+            if (counts[0] != 0 || counts[1] != 0) {
+                rows.add(new Object[]{key.scope().roomId(), key.scope().userId(), key.tagId(), counts[0], counts[1]});
+            }
+        });
+        if (!rows.isEmpty()) jdbcTemplate.batchUpdate(UPSERT, rows);
+    }
+
+    /**
+     * After every thought on the board with {@code fromTagId} was retagged to {@code toTagId},
+     * in the same transaction as the retagging.
+     */
+    @Transactional
+    public void tagMoved(BoardScope scope, int fromTagId, int toTagId) {
+        if (fromTagId == toTagId) return;
+        jdbcTemplate.update(MOVE, toTagId, scope.roomId(), scope.userId(), fromTagId);
+        jdbcTemplate.update("DELETE FROM tag_counts WHERE room_id = ? AND user_id = ? AND tag_id = ?",
+                scope.roomId(), scope.userId(), fromTagId);
+    }
+
+    public void roomDeleted(long roomId) {
+        jdbcTemplate.update("DELETE FROM tag_counts WHERE room_id = ? AND user_id = 0", roomId);
+    }
+
+    /**
+     * Call before deleting the account: its personal board goes away, and its thoughts in
+     * other people's rooms are deleted by DeletionService, so those rooms' counts drop.
+     */
+    @Transactional
+    public void userDeleted(long userId) {
+        jdbcTemplate.query(
+                "SELECT room_id, tag_id, completed, COUNT(*) FROM thoughts "
+                + "WHERE user_id = ? AND room_id IS NOT NULL AND tag_id IS NOT NULL GROUP BY room_id, tag_id, completed",
+                rs -> {
+                    adjust(BoardScope.room(rs.getLong(1)), rs.getInt(2), rs.getBoolean(3), -rs.getLong(4));
+                }, userId);
+        jdbcTemplate.update("DELETE FROM tag_counts WHERE room_id = 0 AND user_id = ?", userId);
+    }
+
+    public List<Facet> facets(BoardScope scope) {
+        return jdbcTemplate.query(
+                "SELECT g.name, c.open_count, c.completed_count FROM tag_counts c JOIN tags g ON g.id = c.tag_id "
+                + "WHERE c.room_id = ? AND c.user_id = ? AND (c.open_count > 0 OR c.completed_count > 0) ORDER BY g.name",
+                (rs, i) -> new Facet(rs.getString(1), rs.getLong(2), rs.getLong(3)),
+                scope.roomId(), scope.userId());
+    }
+
+    /** Recomputes every count from the thoughts table. Only for migration and repair. */
+    @Transactional
+    public void rebuild() {
+        jdbcTemplate.update("DELETE FROM tag_counts");
+        jdbcTemplate.update(
+                "INSERT INTO tag_counts (room_id, user_id, tag_id, open_count, completed_count) "
+                + "SELECT COALESCE(room_id, 0), CASE WHEN room_id IS NULL THEN user_id ELSE 0 END, tag_id, "
+                + "SUM(CASE WHEN completed THEN 0 ELSE 1 END), SUM(CASE WHEN completed THEN 1 ELSE 0 END) "
+                + "FROM thoughts WHERE tag_id IS NOT NULL "
+                + "GROUP BY COALESCE(room_id, 0), CASE WHEN room_id IS NULL THEN user_id ELSE 0 END, tag_id");
+    }
+
+    private void adjust(BoardScope scope, Integer tagId, boolean completed, long delta) {
+        if (tagId == null) return; // rows from before the dictionary that the backfill has not reached
+        jdbcTemplate.update(UPSERT, scope.roomId(), scope.userId(), tagId,
+                completed ? 0 : delta, completed ? delta : 0);
+    }
+}
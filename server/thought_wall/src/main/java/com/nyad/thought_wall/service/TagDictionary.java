@@ -0,0 +1,55 @@
+package com.nyad.thought_wall.service;
+
+import com.nyad.thought_wall.entity.Tag;
+import com.nyad.thought_wall.repository.TagRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Name -> {@link Tag} lookups for the tags dictionary. The table is small and only grows,
+ * so every name is read from the database once and then served from memory.
+ */
+@Service
+public class TagDictionary {
+
+    public static final String DEFAULT_TAG = "General";
+
+    @Autowired private TagRepository tagRepository;
+
+    private final ConcurrentMap<String, Tag> byName = new ConcurrentHashMap<>();
+
+    /** The tag with this name, created if it does not exist yet. Blank means the default tag. */
+    public Tag resolve(String name) {
+        String key = name == null || name.isBlank() ? DEFAULT_TAG : name.trim();
+        Tag cached = byName.get(key);
+        if (cached != null) return cached;
+
+        Tag tag = tagRepository.findByName(key).orElseGet(() -> {
+            try {
+                return tagRepository.save(new Tag(key));
+            } catch (DataIntegrityViolationException e) {
+                // Another request created it first
+                return tagRepository.findByName(key).orElseThrow(() -> e);
+            }
+        });
+        byName.putIfAbsent(key, tag);
+        return tag;
+    }
+
+    /** Lookup only, for filters: an unknown name simply matches nothing. */
+    public Optional<Tag> find(String name) {
+        if (name == null || name.isBlank()) return Optional.empty();
+        String key = name.trim(); // as resolve stores it
+        Tag cached = byName.get(key);
+        if (cached != null) return Optional.of(cached);
+
+        Optional<Tag> tag = tagRepository.findByName(key);
+        tag.ifPresent(t -> byName.putIfAbsent(key, t));
+        return tag;
+    }
+}
@@ -0,0 +1,317 @@
+package com.nyad.thought_wall.service;
+
+import com.nyad.thought_wall.dto.ThoughtBatch;
+import com.nyad.thought_wall.dto.ThoughtBatch.Op;
+import com.nyad.thought_wall.dto.ThoughtBatch.Result;
+import com.nyad.thought_wall.dto.ThoughtView;
+import com.nyad.thought_wall.entity.Room;
+import com.nyad.thought_wall.entity.Tag;
+import com.nyad.thought_wall.entity.Thought;
+import com.nyad.thought_wall.entity.User;
+import com.nyad.thought_wall.repository.BoardScope;
+import com.nyad.thought_wall.repository.RoomRepository;
+import com.nyad.thought_wall.repository.ThoughtRepository;
+import com.nyad.thought_wall.repository.UserRepository;
+import com.nyad.thought_wall.search.SearchIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Applies a list of mixed create/update/delete operations for POST /api/thoughts/batch.
+ *
+ * Every referenced thought, room and assignee is loaded with one query per kind, membership
+ * is checked once per room, and the writes go out in a single transaction (updates as JDBC
+ * batches, deletes as one statement, tag counts as one upsert batch). Operations that fail
+ * validation are reported in their result and skipped; the rest still apply. Search, room
+ * events and ETag versions are updated after the commit, with one event message per room.
+ *
+ * A tag name nobody has used yet is only created for an operation that passes every check,
+ * so a rejected batch leaves nothing behind in the tags dictionary.
+ */
+@Service
+public class ThoughtBatchService {
+
+    @Autowired private ThoughtRepository repository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private RoomRepository roomRepository;
+    @Autowired private RoomMembershipService membershipService;
+    @Autowired private TagDictionary tags;
+    @Autowired private TagCountService tagCounts;
+    @Autowired private SearchIndex searchIndex;
+    @Autowired private RoomEventPublisher events;
+    @Autowired private BoardVersionService versions;
+    @Autowired private ResourceVersionService resourceVersions;
+    @Autowired private TransactionTemplate transactionTemplate;
+
+    // What the transaction changed, for the after-commit side effects
+    private record Deleted(Long id, Long roomId, BoardScope board) {}
+
+    private static final class Applied {
+        final List<Thought> created = new ArrayList<>();
+        final List<Thought> updated = new ArrayList<>();
+        final List<Deleted> deleted = new ArrayList<>();
+        final Set<Long> assignees = new HashSet<>(); // whose profile lists a changed thought
+    }
+
+    public List<Result> apply(List<Op> ops, long userId) {
+        // Known tags come from the dictionary's cache. New ones are created before the write
+        // transaction, in their own, so a concurrent insert of the same name cannot roll back
+        // the batch; the operations are checked first so that only ones that apply create any
+        Map<String, Tag> tagRefs = new HashMap<>();
+        Set<String> unknown = new HashSet<>();
+        for (Op op : ops) {
+            if (!needsTag(op) || validate(op) != null) continue;
+            String name = tagName(op.tag());
+            if (tagRefs.containsKey(name) || unknown.contains(name)) continue;
+            tags.find(name).ifPresentOrElse(tag -> tagRefs.put(name, tag), () -> unknown.add(name));
+        }
+        if (!unknown.isEmpty()) {
+            Checks checks = new Checks(ops, userId);
+            for (int i = 0; i < ops.size(); i++) {
+                Op op = ops.get(i);
+                if (checks.reject(i, op) == null && needsTag(op) && unknown.contains(tagName(op.tag()))) {
+                    tagRefs.computeIfAbsent(tagName(op.tag()), tags::resolve);
+                }
+            }
+        }
+
+        Result[] results = new Result[ops.size()];
+        Applied applied = transactionTemplate.execute(status -> write(ops, userId, tagRefs, results));
+
+        for (Thought t : applied.created) index(t);
+        for (Thought t : applied.updated) index(t);
+        for (Deleted d : applied.deleted) searchIndex.removeThought(d.id());
+        resourceVersions.bump(ResourceVersionService.Kind.USER_ASSIGNED, applied.assignees);
+        publish(applied);
+        return Arrays.asList(results);
+    }
+
+    private Applied write(List<Op> ops, long userId, Map<String, Tag> tagRefs, Result[] results) {
+        Checks checks = new Checks(ops, userId);
+
+        Applied applied = new Applied();
+        TagCountService.Deltas deltas = new TagCountService.Deltas();
+        // Request index of each created/updated thought, to fill in its result after the flush
+        List<Integer> createdAt = new ArrayList<>();
+        List<Integer> updatedAt = new ArrayList<>();
+        List<Long> deleteIds = new ArrayList<>();
+
+        for (int i = 0; i < ops.size(); i++) {
+            Op op = ops.get(i);
+            Result rejected = checks.reject(i, op);
+            if (rejected == null && needsTag(op) && !tagRefs.containsKey(tagName(op.tag()))) {
+                // Failed the checks before the transaction, passes them now
+                rejected = Result.failed(i, 409, op.id(), "Changed during the batch, try again");
+            }
+            if (rejected != null) {
+                results[i] = rejected;
+                continue;
+            }
+
+            if (op.op() == ThoughtBatch.Action.CREATE) {
+                Thought thought = new Thought();
+                thought.setContent(op.content());
+                thought.setTagRef(tagRefs.get(tagName(op.tag())));
+                thought.setUser(userRepository.getReferenceById(userId));
+                thought.setDueDate(op.dueDate());
+                thought.setCompleted(false);
+                thought.setRoom(op.roomId() != null ? checks.room(op.roomId()).orElseThrow() : null);
+                applied.created.add(thought);
+                createdAt.add(i);
+                continue;
+            }
+
+            Thought thought = checks.thoughts.get(op.id());
+            if (op.op() == ThoughtBatch.Action.DELETE) {
+                Long roomId = thought.getRoom() != null ? thought.getRoom().getId() : null;
+                if (thought.getAssignedTo() != null) applied.assignees.add(thought.getAssignedTo().getId());
+                deltas.deleted(BoardScope.of(thought), tagId(thought), thought.isCompleted());
+                applied.deleted.add(new Deleted(thought.getId(), roomId, BoardScope.of(thought)));
+                deleteIds.add(thought.getId());
+                results[i] = Result.ok(i, thought.getId(), null);
+                continue;
+            }
+
+            Integer oldTagId = tagId(thought);
+            boolean wasCompleted = thought.isCompleted();
+            if (thought.getAssignedTo() != null) applied.assignees.add(thought.getAssignedTo().getId());
+            if (op.content() != null && !op.content().isBlank()) thought.setContent(op.content());
+            if (op.tag() != null) thought.setTagRef(tagRefs.get(tagName(op.tag())));
+            thought.setPinned(op.pinned());
+            thought.setCompleted(op.completed());
+            thought.setDueDate(op.dueDate());
+            thought.setAssignedTo(op.assignedTo() != null ? checks.assignees.get(op.assignedTo()) : null);
+            if (thought.getAssignedTo() != null) applied.assignees.add(thought.getAssignedTo().getId());
+            deltas.changed(BoardScope.of(thought), oldTagId, wasCompleted, tagId(thought), thought.isCompleted());
+            applied.updated.add(thought);
+            updatedAt.add(i);
+        }
+
+        // One version per board for the whole batch, taken in a fixed order so that two
+        // batches touching the same boards cannot deadlock on the counter rows
+        Map<BoardScope, Long> boardVersions = new TreeMap<>(BoardScope.ORDER);
+        applied.created.forEach(t -> boardVersions.put(BoardScope.of(t), 0L));
+        applied.updated.forEach(t -> boardVersions.put(BoardScope.of(t), 0L));
+        applied.deleted.forEach(d -> boardVersions.put(d.board(), 0L));
+        boardVersions.replaceAll((board, unused) -> versions.next(board));
+        applied.created.forEach(t -> t.setChangeVersion(boardVersions.get(BoardScope.of(t))));
+        applied.updated.forEach(t -> t.setChangeVersion(boardVersions.get(BoardScope.of(t))));
+        applied.deleted.stream()
+                .collect(Collectors.groupingBy(Deleted::board, Collectors.mapping(Deleted::id, Collectors.toList())))
+                .forEach((board, ids) -> versions.tombstones(board, boardVersions.get(board), ids));
+
+        // Updates are flushed as JDBC batches (hibernate.jdbc.batch_size) before the delete runs
+        if (!deleteIds.isEmpty()) repository.deleteAllByIdInBatch(deleteIds);
+        if (!applied.created.isEmpty()) repository.saveAll(applied.created);
+        repository.flush();
+        for (Thought t : applied.created) deltas.created(BoardScope.of(t), tagId(t), t.isCompleted());
+        tagCounts.apply(deltas);
+
+        fill(results, createdAt, applied.created);
+        fill(results, updatedAt, applied.updated);
+        return applied;
+    }
+
+    private static void fill(Result[] results, List<Integer> indexes, List<Thought> thoughts) {
+        for (int j = 0; j < thoughts.size(); j++) {
+            Thought t = thoughts.get(j);
+            int i = indexes.get(j);
+            results[i] = Result.ok(i, t.getId(), ThoughtView.of(t));
+        }
+    }
+
+    // Everything the operations are checked against, loaded with one query per kind
+    private final class Checks {
+        final Map<Long, Thought> thoughts;
+        final Map<Long, User> assignees;
+        private final long userId;
+        private final Map<Long, Boolean> access = new HashMap<>();
+        private final Map<Long, Optional<Room>> rooms = new HashMap<>();
+        private final Set<Long> touched = new HashSet<>();
+
+        Checks(List<Op> ops, long userId) {
+            this.userId = userId;
+            this.thoughts = loadThoughts(ops);
+            this.assignees = userRepository.findAllById(ops.stream()
+                            .filter(op -> op != null && op.op() == ThoughtBatch.Action.UPDATE && op.assignedTo() != null)
+                            .map(Op::assignedTo).collect(Collectors.toSet()))
+                    .stream().collect(Collectors.toMap(User::getId, Function.identity()));
+        }
+
+        // The failed result for an operation that cannot apply, null if it can
+        Result reject(int i, Op op) {
+            if (op == null || op.op() == null) return Result.failed(i, 400, null, "Unknown operation");
+            String invalid = validate(op);
+            if (invalid != null) return Result.failed(i, 400, op.id(), invalid);
+
+            if (op.op() == ThoughtBatch.Action.CREATE) {
+                if (op.roomId() == null) return null;
+                if (room(op.roomId()).isEmpty()) return Result.failed(i, 404, null, "Room not found");
+                return canWrite(op.roomId()) ? null : Result.failed(i, 403, null, null);
+            }
+
+            Thought thought = thoughts.get(op.id());
+            if (thought == null) return Result.failed(i, 404, op.id(), "Thought not found");
+            if (!touched.add(op.id())) return Result.failed(i, 409, op.id(), "Thought already changed in this batch");
+            boolean isOwner = thought.getUser().getId().equals(userId);
+            // Same rule as DELETE /api/thoughts/{id}: only the author
+            if (op.op() == ThoughtBatch.Action.DELETE) return isOwner ? null : Result.failed(i, 403, op.id(), null);
+
+            // UPDATE: the author, or anyone in the thought's room
+            Long roomId = thought.getRoom() != null ? thought.getRoom().getId() : null;
+            if (!isOwner && (roomId == null || !canWrite(roomId))) return Result.failed(i, 403, op.id(), null);
+            if (op.assignedTo() != null) {
+                if (!assignees.containsKey(op.assignedTo())) return Result.failed(i, 400, op.id(), "Unknown assignee");
+                // A room card goes to a member of the room, a personal one only to its author
+                boolean onBoard = roomId != null
+                        ? membershipService.isMember(roomId, op.assignedTo())
+                        : op.assignedTo().equals(thought.getUser().getId());
+                if (!onBoard) return Result.failed(i, 400, op.id(), "Assignee is not a member of the board");
+            }
+            return null;
+        }
+
+        Optional<Room> room(Long roomId) {
+            return rooms.computeIfAbsent(roomId, roomRepository::findById);
+        }
+
+        private boolean canWrite(Long roomId) {
+            return access.computeIfAbsent(roomId, r -> membershipService.isMember(r, userId));
+        }
+    }
+
+    private Map<Long, Thought> loadThoughts(List<Op> ops) {
+        Set<Long> ids = ops.stream()
+                .filter(op -> op != null && op.op() != ThoughtBatch.Action.CREATE && op.id() != null)
+                .map(Op::id)
+                .collect(Collectors.toSet());
+        if (ids.isEmpty()) return Map.of();
+        return repository.findAllById(ids).stream().collect(Collectors.toMap(Thought::getId, Function.identity()));
+    }
+
+    // The same limits ThoughtController.ThoughtRequest enforces on single writes
+    private static String validate(Op op) {
+        if (op.op() != ThoughtBatch.Action.CREATE && op.id() == null) return "id is required";
+        if (op.op() == ThoughtBatch.Action.CREATE && (op.content() == null || op.content().isBlank())) return "Content cannot be empty";
+        if (op.content() != null && op.content().length() > 1000) return "Content too long";
+        if (op.tag() != null && op.tag().length() > 20) return "Tag too long";
+        return null;
+    }
+
+    // A create always gets a tag (the default one if none is given); an update only if it sets one
+    private static boolean needsTag(Op op) {
+        return op != null && (op.op() == ThoughtBatch.Action.CREATE || (op.op() == ThoughtBatch.Action.UPDATE && op.tag() != null));
+    }
+
+    // TagDictionary.resolve maps null and blank to the default tag
+    private static String tagName(String tag) {
+        return tag == null || tag.isBlank() ? TagDictionary.DEFAULT_TAG : tag.trim();
+    }
+
+    private static Integer tagId(Thought thought) {
+        return thought.getTagRef() != null ? thought.getTagRef().getId() : null;
+    }
+
+    private void index(Thought t) {
+        searchIndex.indexThought(t.getId(), t.getRoom() != null ? t.getRoom().getId() : null, t.getUser().getId(), t.getContent());
+    }
+
+    private void publish(Applied applied) {
+        Map<Long, List<Thought>> created = new LinkedHashMap<>();
+        Map<Long, List<Thought>> updated = new LinkedHashMap<>();
+        Map<Long, List<Long>> deleted = new LinkedHashMap<>();
+        for (Thought t : applied.created) {
+            if (t.getRoom() != null) created.computeIfAbsent(t.getRoom().getId(), r -> new ArrayList<>()).add(t);
+        }
+        for (Thought t : applied.updated) {
+            if (t.getRoom() != null) updated.computeIfAbsent(t.getRoom().getId(), r -> new ArrayList<>()).add(t);
+        }
+        for (Deleted d : applied.deleted) {
+            if (d.roomId() != null) deleted.computeIfAbsent(d.roomId(), r -> new ArrayList<>()).add(d.id());
+        }
+
+        Set<Long> roomIds = new HashSet<>(created.keySet());
+        roomIds.addAll(updated.keySet());
+        roomIds.addAll(deleted.keySet());
+        for (Long roomId : roomIds) {
+            events.thoughtsChanged(roomId,
+                    created.getOrDefault(roomId, List.of()),
+                    updated.getOrDefault(roomId, List.of()),
+                    deleted.getOrDefault(roomId, List.of()));
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.nyad.thought_wall.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Room join codes without a uniqueness check against the database.
+ *
+ * Each code is a fresh value from {@link TimeOrderedIdGenerator} (unique across nodes), passed
+ * through a keyed 4-round Feistel permutation of 54 bits and written as 11 Crockford base32
+ * characters. A permutation never maps two inputs to one output, so codes cannot collide,
+ * and without the key consecutive rooms get unrelated codes.
+ */
+public class RoomCodeGenerator {
+
+    // Crockford's alphabet: no I, L, O or U, so codes survive being read out loud
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int HALF_BITS = 27;
+    private static final long HALF_MASK = (1L << HALF_BITS) - 1;
+    private static final int LENGTH = 11; // 55 bits >= 54
+    private static final int ROUNDS = 4;
+
+    private final TimeOrderedIdGenerator ids;
+    private final long[] roundKeys = new long[ROUNDS];
+
+    public RoomCodeGenerator(TimeOrderedIdGenerator ids, String key) {
+        this.ids = ids;
+        try {
+            ByteBuffer digest = ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8)));
+            for (int i = 0; i < ROUNDS; i++) roundKeys[i] = digest.getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JDK has SHA-256
+        }
+    }
+
+    public String next() {
+        return encode(permute(ids.nextId()));
+    }
+
+    long permute(long value) {
+        long left = (value >>> HALF_BITS) & HALF_MASK;
+        long right = value & HALF_MASK;
+        for (long key : roundKeys) {
+            long mixed = left ^ round(right, key);
+            left = right;
+            right = mixed;
+        }
+        return (left << HALF_BITS) | right;
+    }
+
+    // The rounds run backwards; only the tests need it, to show permute loses nothing
+    long invert(long value) {
+        long left = (value >>> HALF_BITS) & HALF_MASK;
+        long right = value & HALF_MASK;
+        for (int i = ROUNDS - 1; i >= 0; i--) {
+            long mixed = right ^ round(left, roundKeys[i]);
+            right = left;
+            left = mixed;
+        }
+        return (left << HALF_BITS) | right;
+    }
+
+    // Any function works for a Feistel round; this one is the murmur3 finalizer
+    private static long round(long half, long key) {
+        long x = half ^ key;
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        x *= 0xc4ceb9fe1a85ec53L;
+        x ^= x >>> 33;
+        return x & HALF_MASK;
+    }
+
+    static String encode(long value) {
+        char[] out = new char[LENGTH];
+        for (int i = LENGTH - 1; i >= 0; i--) {
+            out[i] = ALPHABET[(int) (value & 31)];
+            value >>>= 5;
+        }
+        return new String(out);
+    }
+}
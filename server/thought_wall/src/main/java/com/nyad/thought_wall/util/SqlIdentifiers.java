@@ -0,0 +1,20 @@
+package com.nyad.thought_wall.util;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+
+/**
+ * Quoting for column names in hand-written JDBC SQL. Entities quote reserved words such as
+ * chat_messages.timestamp with backticks, which Hibernate turns into the dialect's quote;
+ * plain SQL has to do the same itself: a backtick on MySQL, a double quote on H2.
+ */
+public final class SqlIdentifiers {
+
+    private SqlIdentifiers() {}
+
+    public static String quote(JdbcTemplate jdbcTemplate, String name) {
+        String quote = jdbcTemplate.execute((Connection c) -> c.getMetaData().getIdentifierQuoteString());
+        return quote == null || quote.isBlank() ? name : quote + name + quote;
+    }
+}
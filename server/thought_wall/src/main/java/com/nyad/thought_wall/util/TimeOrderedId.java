@@ -0,0 +1,18 @@
+package com.nyad.thought_wall.util;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Entity id assigned from {@link TimeOrderedIdGenerator} when the entity is persisted.
+ * Unlike IDENTITY, Hibernate knows the id before the INSERT, so inserts go out in JDBC batches.
+ */
+@IdGeneratorType(TimeOrderedIdentifierGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface TimeOrderedId {
+}
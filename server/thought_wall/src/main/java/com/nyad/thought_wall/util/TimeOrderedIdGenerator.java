@@ -0,0 +1,77 @@
+package com.nyad.thought_wall.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 53-bit ids that sort by creation time: 41 bits of milliseconds since 2025-01-01,
+ * 6 bits of node id and a 6-bit per-millisecond sequence. Lock-free and strictly
+ * monotonic per node, even if the wall clock steps backwards (the last timestamp is reused).
+ *
+ * 53 bits so every id is exact as a JavaScript number in the JSON the client reads.
+ * Used for all entity ids (see {@link TimeOrderedId}), write-behind chat messages and room codes.
+ *
+ * A node issues at most 64 ids per millisecond (64,000/s). Past that it takes the next
+ * millisecond early: ids stay unique and ordered, but their timestamps run ahead of the clock
+ * until the burst is over.
+ */
+public class TimeOrderedIdGenerator {
+
+    static final long EPOCH = 1735689600000L; // 2025-01-01T00:00:00Z
+
+    private static final int NODE_BITS = 6;
+    private static final int SEQUENCE_BITS = 6;
+    private static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int TIMESTAMP_SHIFT = NODE_BITS + SEQUENCE_BITS;
+
+    public static final long MAX_ID = (1L << 53) - 1;
+
+    private final long nodeBits;
+    private final AtomicLong last = new AtomicLong();
+
+    public TimeOrderedIdGenerator(long nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE);
+        }
+        this.nodeBits = nodeId << SEQUENCE_BITS;
+    }
+
+    public long nextId() {
+        while (true) {
+            long prev = last.get();
+            long prevTimestamp = prev >>> TIMESTAMP_SHIFT;
+            long now = System.currentTimeMillis() - EPOCH;
+
+            long timestamp;
+            long sequence;
+            if (now > prevTimestamp) {
+                timestamp = now;
+                sequence = 0;
+            } else {
+                // Same millisecond or clock went back: continue from the last id
+                timestamp = prevTimestamp;
+                sequence = (prev & SEQUENCE_MASK) + 1;
+                if (sequence > SEQUENCE_MASK) {
+                    // 64 ids in one millisecond, borrow the next one
+                    timestamp++;
+                    sequence = 0;
+                }
+            }
+
+            long id = (timestamp << TIMESTAMP_SHIFT) | nodeBits | sequence;
+            if (last.compareAndSet(prev, id)) {
+                return id;
+            }
+        }
+    }
+
+    /** The smallest id any node can issue in the given epoch millisecond. */
+    public static long firstIdAt(long epochMillis) {
+        return (epochMillis - EPOCH) << TIMESTAMP_SHIFT;
+    }
+
+    /** Creation time encoded in an id, as epoch milliseconds. */
+    public static long timestampOf(long id) {
+        return (id >>> TIMESTAMP_SHIFT) + EPOCH;
+    }
+}
@@ -0,0 +1,42 @@
+package com.nyad.thought_wall.util;
+
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+import org.hibernate.generator.GeneratorCreationContext;
+
+import java.lang.reflect.Member;
+import java.util.EnumSet;
+
+/**
+ * Hibernate side of {@link TimeOrderedId}. Hibernate creates this class itself, so the
+ * application's {@link TimeOrderedIdGenerator} (one per node, shared with the chat write-behind
+ * path) is handed over through the Hibernate settings; see IdGeneratorConfig.
+ */
+public class TimeOrderedIdentifierGenerator implements BeforeExecutionGenerator {
+
+    public static final String GENERATOR_SETTING = "thought_wall.id_generator";
+
+    private final TimeOrderedIdGenerator generator;
+
+    public TimeOrderedIdentifierGenerator(TimeOrderedId config, Member member, GeneratorCreationContext context) {
+        Object generator = context.getServiceRegistry().requireService(ConfigurationService.class)
+                .getSettings().get(GENERATOR_SETTING);
+        if (!(generator instanceof TimeOrderedIdGenerator g)) {
+            throw new IllegalStateException(GENERATOR_SETTING + " is not set; @TimeOrderedId needs IdGeneratorConfig");
+        }
+        this.generator = g;
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
+        return generator.nextId();
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
@@ -0,0 +1,88 @@
+package com.nyad.thought_wall.websocket;
+
+import com.nyad.thought_wall.repository.UserRepository;
+import com.nyad.thought_wall.security.AuthenticatedUser;
+import com.nyad.thought_wall.security.JwtUtil;
+import com.nyad.thought_wall.service.RoomMembershipService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Interceptor on the client inbound channel (WebSocketConfig) that authenticates STOMP sessions
+ * and authorizes what they subscribe and send to.
+ * <ul>
+ *   <li>CONNECT must carry the login JWT as an Authorization: Bearer header; the session's
+ *       principal is then the {@link AuthenticatedUser}, which @MessageMapping methods take
+ *       instead of trusting anything in the payload</li>
+ *   <li>SUBSCRIBE: /user/queue/** (the session's own replies), or /topic/room/{id}/** for
+ *       members of that room. Everything else, direct /queue/** included, is refused</li>
+ *   <li>SEND: only to /app/**, so clients cannot publish to the broker's topics themselves</li>
+ * </ul>
+ * A refused frame fails with an ERROR frame and the connection is closed.
+ */
+@Component
+public class StompAuthorization implements ChannelInterceptor {
+
+    private static final Pattern ROOM_TOPIC = Pattern.compile("^/topic/room/(\\d{1,18})(/.*)?$");
+
+    @Autowired private JwtUtil jwtUtil;
+    @Autowired private UserRepository userRepository;
+    @Autowired private RoomMembershipService membershipService;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) return message;
+        switch (accessor.getCommand()) {
+            case CONNECT -> accessor.setUser(authenticate(message, accessor.getFirstNativeHeader("Authorization")));
+            case SUBSCRIBE -> checkSubscribe(message, user(message, accessor), accessor.getDestination());
+            case SEND -> {
+                user(message, accessor);
+                String destination = accessor.getDestination();
+                if (destination == null || !destination.startsWith("/app/")) throw refused(message, "Cannot send to " + destination);
+            }
+            default -> { }
+        }
+        return message;
+    }
+
+    private AuthenticatedUser authenticate(Message<?> message, String header) {
+        if (header == null || !header.startsWith("Bearer ")) throw refused(message, "Missing token");
+        AuthenticatedUser user;
+        try {
+            // Same checks as JwtFilter
+            user = jwtUtil.validateToken(header.substring(7), userRepository::findIdByEmail,
+                    id -> userRepository.findById(id).isPresent());
+        } catch (RuntimeException e) {
+            user = null;
+        }
+        if (user == null) throw refused(message, "Invalid token");
+        return user;
+    }
+
+    private void checkSubscribe(Message<?> message, AuthenticatedUser user, String destination) {
+        if (destination == null) throw refused(message, "No destination");
+        if (destination.startsWith("/user/queue/")) return;
+        Matcher room = ROOM_TOPIC.matcher(destination);
+        if (room.matches() && membershipService.isMember(Long.parseLong(room.group(1)), user.id())) return;
+        throw refused(message, "Cannot subscribe to " + destination);
+    }
+
+    private AuthenticatedUser user(Message<?> message, StompHeaderAccessor accessor) {
+        if (accessor.getUser() instanceof AuthenticatedUser user) return user;
+        throw refused(message, "Not authenticated");
+    }
+
+    private static MessageDeliveryException refused(Message<?> message, String reason) {
+        return new MessageDeliveryException(message, reason);
+    }
+}
@@ -0,0 +1,41 @@
+package com.nyad.thought_wall.websocket;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.config.annotation.DelegatingWebSocketMessageBrokerConfiguration;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+/**
+ * Same as @EnableWebSocketMessageBroker (WebSocketConfig still supplies the settings), except
+ * that sessions are decorated by {@link StompSessionRegistry} so the slow-consumer policy
+ * and the per-session buffer metrics apply to the buffer Spring actually sends through.
+ */
+@Configuration
+public class StompBrokerConfig extends DelegatingWebSocketMessageBrokerConfiguration {
+
+    @Autowired private StompSessionRegistry sessionRegistry;
+
+    @Bean
+    @Override
+    public WebSocketHandler subProtocolWebSocketHandler(
+            AbstractSubscribableChannel clientInboundChannel, AbstractSubscribableChannel clientOutboundChannel) {
+
+        return new SubProtocolWebSocketHandler(clientInboundChannel, clientOutboundChannel) {
+            @Override
+            protected WebSocketSession decorateSession(WebSocketSession session) {
+                return sessionRegistry.register(session);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                sessionRegistry.unregister(session, closeStatus);
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+}
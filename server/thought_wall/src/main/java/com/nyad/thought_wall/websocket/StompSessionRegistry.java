@@ -0,0 +1,296 @@
+package com.nyad.thought_wall.websocket;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator.OverflowStrategy;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Owns the send buffer of every STOMP session, keeps each session's messages in publish order
+ * and applies the slow-consumer policy.
+ *
+ * The outbound channel hands messages to a thread pool, so two messages for one session can
+ * reach its socket in either order. As the registry is an interceptor on that channel, it
+ * numbers each session's messages when they are published (preSend, still on the publishing
+ * thread) and the session's decorator sends them strictly by number: a message that gets there
+ * early waits in the session's buffer until the ones before it have gone out. One thread writes
+ * to the socket at a time; the others leave their message in the buffer and return.
+ *
+ * Once the buffer passes send-buffer-size-limit the policy applies:
+ * <ul>
+ *   <li>disconnect: the session is closed (1011 SESSION_NOT_RELIABLE); the client reconnects and refetches</li>
+ *   <li>drop: the oldest buffered messages are discarded; the client misses them and resyncs on the next version gap</li>
+ * </ul>
+ * A single write that takes longer than send-time-limit closes the session under both policies.
+ * Either way a session never holds more than roughly the buffer limit, which keeps memory
+ * predictable with many connections.
+ */
+@Component
+public class StompSessionRegistry implements ExecutorChannelInterceptor {
+
+    public enum SlowConsumerPolicy { DROP, DISCONNECT }
+
+    private static final String SEQUENCE_HEADER = "stompSessionSequence";
+
+    @Value("${app.stomp.slow-consumer-policy:disconnect}")
+    private SlowConsumerPolicy policy;
+
+    @Value("${app.stomp.send-time-limit:10s}")
+    private Duration sendTimeLimit;
+
+    @Value("${app.stomp.send-buffer-size-limit:128KB}")
+    private DataSize sendBufferSizeLimit;
+
+    private final Map<String, OrderedSession> sessions = new ConcurrentHashMap<>();
+    private final LongAdder slowConsumerCloses = new LongAdder();
+    // The outbound message this thread is handling, while the handler runs
+    private final ThreadLocal<Handling> handling = new ThreadLocal<>();
+
+    public record Stats(int sessions, long bufferedBytes, long maxBufferedBytes, long slowConsumerCloses) {}
+
+    public int sendTimeLimitMillis() {
+        return (int) sendTimeLimit.toMillis();
+    }
+
+    public int sendBufferSizeLimitBytes() {
+        return (int) sendBufferSizeLimit.toBytes();
+    }
+
+    WebSocketSession register(WebSocketSession session) {
+        OrderedSession decorated = new OrderedSession(session);
+        sessions.put(session.getId(), decorated);
+        return decorated;
+    }
+
+    void unregister(WebSocketSession session, CloseStatus status) {
+        sessions.remove(session.getId());
+        if (CloseStatus.SESSION_NOT_RELIABLE.equalsCode(status)) {
+            slowConsumerCloses.increment();
+        }
+    }
+
+    /** Bytes waiting in each open session's send buffer, by session id. */
+    public Map<String, Integer> bufferSizes() {
+        Map<String, Integer> sizes = new HashMap<>();
+        sessions.forEach((id, s) -> sizes.put(id, s.bufferedBytes()));
+        return sizes;
+    }
+
+    public Stats stats() {
+        long total = 0;
+        long max = 0;
+        int count = 0;
+        for (OrderedSession s : sessions.values()) {
+            int size = s.bufferedBytes();
+            total += size;
+            max = Math.max(max, size);
+            count++;
+        }
+        return new Stats(count, total, max, slowConsumerCloses.sum());
+    }
+
+    // Publishing thread: number the message in its session's order
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        OrderedSession session = sessionId == null ? null : sessions.get(sessionId);
+        if (session == null) return message;
+        MessageHeaderAccessor accessor = MessageHeaderAccessor.getMutableAccessor(message);
+        accessor.setHeader(SEQUENCE_HEADER, session.issue());
+        return MessageBuilder.createMessage(message.getPayload(), accessor.getMessageHeaders());
+    }
+
+    // Never reached the pool (rejected on shutdown): let the messages after it through
+    @Override
+    public void afterSendCompletion(Message<?> message, MessageChannel channel, boolean sent, Exception ex) {
+        if (ex == null) return;
+        OrderedSession session = sessionOf(message);
+        Long sequence = message.getHeaders().get(SEQUENCE_HEADER, Long.class);
+        if (session != null && sequence != null) session.release(sequence, List.of());
+    }
+
+    // Pool thread: what the handler sends for this message is collected, then released in order
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        OrderedSession session = sessionOf(message);
+        Long sequence = message.getHeaders().get(SEQUENCE_HEADER, Long.class);
+        if (session != null && sequence != null) handling.set(new Handling(session, sequence));
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        Handling current = handling.get();
+        if (current == null) return;
+        handling.remove();
+        // Released even if the handler sent nothing or failed, or the session would wait for it forever
+        current.session.release(current.sequence, current.messages);
+    }
+
+    private OrderedSession sessionOf(Message<?> message) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        return sessionId == null ? null : sessions.get(sessionId);
+    }
+
+    private record Handling(OrderedSession session, long sequence, List<WebSocketMessage<?>> messages) {
+        Handling(OrderedSession session, long sequence) {
+            this(session, sequence, new ArrayList<>(1));
+        }
+    }
+
+    /**
+     * Sends released messages by sequence number. Whoever finds the session idle sends the next
+     * ones until none is ready; the rest only queue. Frames sent outside the outbound channel
+     * (the STOMP ERROR reply to a bad client frame) have no number and go straight through.
+     */
+    private class OrderedSession extends ConcurrentWebSocketSessionDecorator {
+
+        private final AtomicLong issued = new AtomicLong();
+        // Guarded by itself: sequence -> what that message sent
+        private final TreeMap<Long, List<WebSocketMessage<?>>> waiting = new TreeMap<>();
+        private long next;
+        private int waitingBytes;
+        private boolean sending;
+
+        OrderedSession(WebSocketSession delegate) {
+            super(delegate, sendTimeLimitMillis(), sendBufferSizeLimitBytes(),
+                    policy == SlowConsumerPolicy.DROP ? OverflowStrategy.DROP : OverflowStrategy.TERMINATE);
+        }
+
+        long issue() {
+            return issued.getAndIncrement();
+        }
+
+        int bufferedBytes() {
+            synchronized (waiting) {
+                return waitingBytes + getBufferSize();
+            }
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            Handling current = handling.get();
+            if (current != null && current.session == this) {
+                current.messages.add(message);
+            } else {
+                super.sendMessage(message);
+            }
+        }
+
+        void release(long sequence, List<WebSocketMessage<?>> messages) {
+            boolean stuck = false;
+            synchronized (waiting) {
+                // Below next: dropped by the policy while it was on its way
+                if (sequence < next || waiting.containsKey(sequence)) return;
+                waiting.put(sequence, messages);
+                waitingBytes += bytes(messages);
+                if (sending) {
+                    // Another thread is writing and sends this one after its own
+                    if (getTimeSinceSendStarted() > sendTimeLimitMillis()) {
+                        stuck = true;
+                    } else if (waitingBytes > sendBufferSizeLimitBytes()) {
+                        if (policy == SlowConsumerPolicy.DROP) dropOldest();
+                        else stuck = true;
+                    }
+                    if (!stuck) return;
+                } else {
+                    sending = true;
+                }
+            }
+            if (stuck) {
+                closeSlowConsumer();
+                return;
+            }
+            sendReady();
+        }
+
+        // The normal exit hands off sending under the lock; a later sender may already have taken
+        // it over by the time this returns, so only the exception paths clear it here
+        private void sendReady() {
+            try {
+                while (true) {
+                    List<WebSocketMessage<?>> ready;
+                    synchronized (waiting) {
+                        ready = waiting.remove(next);
+                        if (ready == null) {
+                            sending = false;
+                            return;
+                        }
+                        next++;
+                        waitingBytes -= bytes(ready);
+                    }
+                    for (WebSocketMessage<?> message : ready) super.sendMessage(message);
+                }
+            } catch (SessionLimitExceededException e) {
+                stopSending();
+                closeQuietly(e.getStatus());
+            } catch (IOException ignored) {
+                // The socket is gone; its close callback cleans up
+                stopSending();
+            } catch (RuntimeException e) {
+                stopSending();
+                throw e;
+            }
+        }
+
+        private void stopSending() {
+            synchronized (waiting) {
+                sending = false;
+            }
+        }
+
+        // Caller holds the lock; next moves past whatever is dropped, so nothing older is sent later
+        private void dropOldest() {
+            while (waitingBytes > sendBufferSizeLimitBytes() && !waiting.isEmpty()) {
+                Map.Entry<Long, List<WebSocketMessage<?>>> oldest = waiting.pollFirstEntry();
+                waitingBytes -= bytes(oldest.getValue());
+                next = Math.max(next, oldest.getKey() + 1);
+            }
+        }
+
+        private void closeSlowConsumer() {
+            synchronized (waiting) {
+                waiting.clear();
+                waitingBytes = 0;
+            }
+            closeQuietly(CloseStatus.SESSION_NOT_RELIABLE);
+        }
+
+        private void closeQuietly(CloseStatus status) {
+            try {
+                close(status);
+            } catch (IOException ignored) {
+                // Already closing
+            }
+        }
+
+        private static int bytes(List<WebSocketMessage<?>> messages) {
+            int total = 0;
+            for (WebSocketMessage<?> message : messages) total += message.getPayloadLength();
+            return total;
+        }
+    }
+}
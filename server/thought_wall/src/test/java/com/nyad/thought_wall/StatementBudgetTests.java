@@ -0,0 +1,169 @@
+package com.nyad.thought_wall;
+
+import com.nyad.thought_wall.security.JwtUtil;
+import com.nyad.thought_wall.util.TimeOrderedIdGenerator;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * SQL statements per request for the hot read endpoints, counted at the DataSource so that
+ * JdbcTemplate statements count as well as Hibernate's. Each request runs once to warm the
+ * token, membership and entity caches, then the second run is measured: a lazy association
+ * that starts loading per row, or a lookup that stops being cached, fails here.
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:statements;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=create",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.properties.hibernate.auto_quote_keyword=true",
+		"app.rooms.code-key=statement-budget-tests-room-code-key",
+		"app.chat.archive.enabled=false",
+		"app.rate-limit.enabled=false"
+})
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class StatementBudgetTests {
+
+	@Autowired private MockMvc mvc;
+	@Autowired private JdbcTemplate jdbc;
+	@Autowired private JwtUtil jwtUtil;
+	@Autowired private TimeOrderedIdGenerator ids;
+
+	private long roomId;
+	private String token;
+
+	@BeforeAll
+	void seed() {
+		long userId = ids.nextId();
+		String email = "budget@example.com";
+		jdbc.update("INSERT INTO users (id, email, password) VALUES (?, ?, ?)", userId, email, "unused");
+		roomId = ids.nextId();
+		jdbc.update("INSERT INTO rooms (id, name, code, owner_id) VALUES (?, ?, ?, ?)", roomId, "Budget", "BUDGET", userId);
+		jdbc.update("INSERT INTO room_members (room_id, user_id) VALUES (?, ?)", roomId, userId);
+		jdbc.update("INSERT INTO tags (name) VALUES (?)", "General");
+		int tagId = jdbc.queryForObject("SELECT id FROM tags WHERE name = ?", Integer.class, "General");
+
+		// More rows than one page of each, so pages need their count and history stays in the table
+		LocalDateTime now = LocalDateTime.now();
+		for (int i = 0; i < 30; i++) {
+			jdbc.update("INSERT INTO thoughts (id, content, tag_id, pinned, completed, created_at, user_id, room_id, assigned_to, change_version) "
+							+ "VALUES (?, ?, ?, false, false, ?, ?, ?, ?, 0)",
+					ids.nextId(), "Thought " + i, tagId, Timestamp.valueOf(now.minusMinutes(i)), userId, roomId,
+					i % 3 == 0 ? userId : null);
+		}
+		for (int i = 0; i < 60; i++) {
+			jdbc.update("INSERT INTO chat_messages (id, content, \"timestamp\", sender_id, room_id) VALUES (?, ?, ?, ?, ?)",
+					ids.nextId(), "Message " + i, Timestamp.valueOf(now.minusSeconds(i)), userId, roomId);
+		}
+		token = "Bearer " + jwtUtil.generateToken(userId, email);
+	}
+
+	@Test
+	void roomBoardPage() throws Exception {
+		// Board version (ETag), page, count
+		assertThat(statements(get("/api/thoughts").param("roomId", String.valueOf(roomId)).param("size", "20"))).isLessThanOrEqualTo(3);
+	}
+
+	@Test
+	void roomBoardScroll() throws Exception {
+		assertThat(statements(get("/api/thoughts/scroll").param("roomId", String.valueOf(roomId)))).isLessThanOrEqualTo(1);
+	}
+
+	@Test
+	void boardChangesWhenUpToDate() throws Exception {
+		assertThat(statements(get("/api/thoughts/changes").param("roomId", String.valueOf(roomId)).param("since", "0")))
+				.isLessThanOrEqualTo(1);
+	}
+
+	@Test
+	void chatHistory() throws Exception {
+		assertThat(statements(get("/api/rooms/{roomId}/messages", roomId).param("limit", "50"))).isLessThanOrEqualTo(1);
+	}
+
+	private long statements(MockHttpServletRequestBuilder request) throws Exception {
+		request.header("Authorization", token);
+		mvc.perform(request).andExpect(status().isOk());
+		long before = StatementCounter.current();
+		mvc.perform(request).andExpect(status().isOk());
+		return StatementCounter.current() - before;
+	}
+
+	/** Statements prepared on the calling thread; MockMvc runs the whole request on it. */
+	static final class StatementCounter {
+
+		private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+
+		static long current() {
+			return COUNT.get()[0];
+		}
+
+		static DataSource wrap(DataSource target) {
+			return new DelegatingDataSource(target) {
+				@Override
+				public Connection getConnection() throws SQLException {
+					return counting(super.getConnection());
+				}
+
+				@Override
+				public Connection getConnection(String username, String password) throws SQLException {
+					return counting(super.getConnection(username, password));
+				}
+			};
+		}
+
+		private static Connection counting(Connection connection) {
+			return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+					(proxy, method, args) -> {
+						String name = method.getName();
+						if (name.equals("createStatement") || name.equals("prepareStatement") || name.equals("prepareCall")) {
+							COUNT.get()[0]++;
+						}
+						try {
+							return method.invoke(connection, args);
+						} catch (InvocationTargetException e) {
+							throw e.getTargetException();
+						}
+					});
+		}
+	}
+
+	@TestConfiguration
+	static class CountingDataSource {
+
+		@Bean
+		static BeanPostProcessor countStatements() {
+			return new BeanPostProcessor() {
+				@Override
+				public Object postProcessAfterInitialization(Object bean, String beanName) {
+					return bean instanceof DataSource dataSource ? StatementCounter.wrap(dataSource) : bean;
+				}
+			};
+		}
+	}
+}
@@ -0,0 +1,237 @@
+package com.nyad.thought_wall.archive;
+
+import com.nyad.thought_wall.dto.ChatMessageView;
+import com.nyad.thought_wall.repository.ChatCursor;
+import com.nyad.thought_wall.repository.UserRepository;
+import com.nyad.thought_wall.util.TimeOrderedIdGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The segment file format: what is written reads back, history pages cross block and segment
+ * boundaries, and damaged or foreign files are rejected instead of being served.
+ */
+class ChatSegmentTests {
+
+	private static final long ROOM = 42;
+	private static final LocalDateTime START = LocalDateTime.of(2025, 3, 1, 12, 0);
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void readsBackWhatWasWritten() throws IOException {
+		List<ArchivedMessage> messages = messages(0, 10);
+		ChatSegment segment = write("a.seg", messages, 4);
+
+		assertThat(segment.roomId()).isEqualTo(ROOM);
+		assertThat(segment.messageCount()).isEqualTo(10);
+		assertThat(segment.firstKey()).isEqualTo(messages.get(0).key());
+		assertThat(segment.lastKey()).isEqualTo(messages.get(9).key());
+		segment.verify();
+
+		List<ArchivedMessage> read = new ArrayList<>();
+		segment.forEach(read::add);
+		assertThat(read).isEqualTo(messages);
+	}
+
+	@Test
+	void listsItsSenders() throws IOException {
+		ChatSegment segment = write("a.seg", messages(0, 10), 4);
+
+		assertThat(segment.hasSender(100)).isTrue();
+		assertThat(segment.hasSender(102)).isTrue();
+		assertThat(segment.hasSender(103)).isFalse();
+	}
+
+	@Test
+	void keepsContentAndMissingSenders() throws IOException {
+		List<ArchivedMessage> messages = List.of(
+				new ArchivedMessage(1, START, null, "sender gone"),
+				new ArchivedMessage(2, START, 7L, "same second, next id"),
+				new ArchivedMessage(3, START.plusNanos(1_500), 7L, "héllo ✓"));
+		ChatSegment segment = write("a.seg", messages, 256);
+
+		assertThat(segment.latestBefore(null, 10)).containsExactly(messages.get(2), messages.get(1), messages.get(0));
+	}
+
+	@Test
+	void latestBeforeCrossesBlocks() throws IOException {
+		List<ArchivedMessage> messages = messages(0, 10);
+		ChatSegment segment = write("a.seg", messages, 4); // blocks of 0-3, 4-7, 8-9
+
+		// Starts in the middle block and continues into the first
+		assertThat(segment.latestBefore(messages.get(5).key(), 4))
+				.containsExactly(messages.get(4), messages.get(3), messages.get(2), messages.get(1));
+		// A cursor on a block's first message starts from the block before
+		assertThat(segment.latestBefore(messages.get(8).key(), 2)).containsExactly(messages.get(7), messages.get(6));
+		assertThat(segment.latestBefore(null, 3)).containsExactly(messages.get(9), messages.get(8), messages.get(7));
+		assertThat(segment.latestBefore(messages.get(0).key(), 5)).isEmpty();
+		assertThat(segment.latestBefore(messages.get(3).key(), 10)).hasSize(3);
+	}
+
+	@Test
+	void latestBeforeCrossesSegments() throws IOException {
+		ChatArchive archive = archive();
+		List<ArchivedMessage> messages = messages(0, 12);
+		for (int from = 0; from < 12; from += 5) {
+			ChatSegment.Writer writer = archive.begin(ROOM);
+			for (ArchivedMessage message : messages.subList(from, Math.min(from + 5, 12))) writer.add(message);
+			archive.commit(writer);
+		}
+
+		assertThat(ids(archive.latestBefore(ROOM, messages.get(7).key(), 4))).containsExactly(6L, 5L, 4L, 3L);
+		assertThat(ids(archive.latestBefore(ROOM, null, 3))).containsExactly(11L, 10L, 9L);
+		assertThat(ids(archive.latestBefore(ROOM, messages.get(10).key(), 100))).hasSize(10).startsWith(9L).endsWith(0L);
+		assertThat(archive.lastKey(ROOM)).isEqualTo(messages.get(11).key());
+	}
+
+	@Test
+	void rejectsATruncatedFooter() throws IOException {
+		ChatSegment segment = write("a.seg", messages(0, 10), 4);
+		byte[] bytes = Files.readAllBytes(segment.file());
+		Files.write(segment.file(), Arrays.copyOf(bytes, bytes.length - 20));
+
+		assertThatThrownBy(() -> ChatSegment.open(segment.file()))
+				.isInstanceOf(ChatSegment.CorruptSegmentException.class)
+				.hasMessageContaining("no footer");
+	}
+
+	@Test
+	void rejectsAnUnfinishedWrite() throws IOException {
+		Path file = dir.resolve("unfinished.seg");
+		ChatSegment.Writer writer = ChatSegment.writer(file, ROOM, 4);
+		for (ArchivedMessage message : messages(0, 10)) writer.add(message);
+
+		assertThatThrownBy(() -> ChatSegment.open(file)).isInstanceOf(ChatSegment.CorruptSegmentException.class);
+		writer.abort();
+		assertThat(file).doesNotExist();
+	}
+
+	@Test
+	void rejectsAnUnknownVersion() throws IOException {
+		ChatSegment segment = write("a.seg", messages(0, 10), 4);
+		patch(segment.file(), 4, ByteBuffer.allocate(2).putShort((short) (ChatSegment.VERSION + 1)).array());
+
+		assertThatThrownBy(() -> ChatSegment.open(segment.file()))
+				.isInstanceOf(ChatSegment.CorruptSegmentException.class)
+				.hasMessageContaining("unsupported version");
+	}
+
+	@Test
+	void rejectsABadHeaderChecksum() throws IOException {
+		ChatSegment segment = write("a.seg", messages(0, 10), 4);
+		flip(segment.file(), 8); // room id
+
+		assertThatThrownBy(() -> ChatSegment.open(segment.file()))
+				.isInstanceOf(ChatSegment.CorruptSegmentException.class)
+				.hasMessageContaining("header checksum");
+	}
+
+	@Test
+	void rejectsABadFooterChecksum() throws IOException {
+		ChatSegment segment = write("a.seg", messages(0, 10), 4);
+		flip(segment.file(), Files.size(segment.file()) - 64 + 24); // message count
+
+		assertThatThrownBy(() -> ChatSegment.open(segment.file()))
+				.isInstanceOf(ChatSegment.CorruptSegmentException.class)
+				.hasMessageContaining("footer checksum");
+	}
+
+	@Test
+	void rejectsABadIndexChecksum() throws IOException {
+		ChatSegment segment = write("a.seg", messages(0, 10), 4);
+		long footer = Files.size(segment.file()) - 64;
+		long index = ByteBuffer.wrap(Files.readAllBytes(segment.file())).getLong((int) footer);
+		flip(segment.file(), index + 12); // first block's first id
+
+		assertThatThrownBy(() -> ChatSegment.open(segment.file()))
+				.isInstanceOf(ChatSegment.CorruptSegmentException.class)
+				.hasMessageContaining("index checksum");
+	}
+
+	@Test
+	void rejectsABadBlockChecksumOnRead() throws IOException {
+		ChatSegment segment = write("a.seg", messages(0, 10), 4);
+		flip(segment.file(), 32 + 16 + 3); // inside the first block's deflated bytes
+
+		// The index is intact, so the file opens; the block fails once it is read
+		ChatSegment damaged = ChatSegment.open(segment.file());
+		assertThatThrownBy(damaged::verify)
+				.isInstanceOf(ChatSegment.CorruptSegmentException.class)
+				.hasMessageContaining("block 0 checksum mismatch");
+		assertThatThrownBy(() -> damaged.latestBefore(null, 100)).isInstanceOf(ChatSegment.CorruptSegmentException.class);
+		// Newer blocks are still readable
+		assertThat(damaged.latestBefore(null, 6)).hasSize(6);
+	}
+
+	@Test
+	void writerRequiresOldestFirst() throws IOException {
+		ChatSegment.Writer writer = ChatSegment.writer(dir.resolve("a.seg"), ROOM, 4);
+		writer.add(new ArchivedMessage(2, START, 1L, "second"));
+
+		assertThatThrownBy(() -> writer.add(new ArchivedMessage(1, START, 1L, "first")))
+				.isInstanceOf(IllegalArgumentException.class);
+		writer.abort();
+	}
+
+	private ChatSegment write(String name, List<ArchivedMessage> messages, int blockSize) throws IOException {
+		Path file = dir.resolve(name);
+		ChatSegment.Writer writer = ChatSegment.writer(file, ROOM, blockSize);
+		for (ArchivedMessage message : messages) writer.add(message);
+		writer.finish();
+		return ChatSegment.open(file);
+	}
+
+	// Ids from..to-1, a second apart, senders 100-102 in turn
+	private static List<ArchivedMessage> messages(int from, int to) {
+		List<ArchivedMessage> messages = new ArrayList<>();
+		for (int i = from; i < to; i++) {
+			messages.add(new ArchivedMessage(i, START.plusSeconds(i), 100L + i % 3, "message " + i));
+		}
+		return messages;
+	}
+
+	private ChatArchive archive() {
+		ChatArchive archive = new ChatArchive();
+		ReflectionTestUtils.setField(archive, "userRepository", Mockito.mock(UserRepository.class));
+		ReflectionTestUtils.setField(archive, "idGenerator", new TimeOrderedIdGenerator(0));
+		ReflectionTestUtils.setField(archive, "dirSetting", dir.resolve("archive").toString());
+		ReflectionTestUtils.setField(archive, "blockSize", 2);
+		ReflectionTestUtils.setField(archive, "openRooms", 10);
+		ReflectionTestUtils.setField(archive, "refresh", Duration.ofMinutes(1));
+		archive.init();
+		return archive;
+	}
+
+	private static List<Long> ids(List<ChatMessageView> views) {
+		return views.stream().map(ChatMessageView::id).toList();
+	}
+
+	private static void flip(Path file, long offset) throws IOException {
+		byte[] bytes = Files.readAllBytes(file);
+		bytes[(int) offset] ^= 0x5a;
+		Files.write(file, bytes);
+	}
+
+	private static void patch(Path file, int offset, byte[] with) throws IOException {
+		byte[] bytes = Files.readAllBytes(file);
+		System.arraycopy(with, 0, bytes, offset, with.length);
+		Files.write(file, bytes);
+	}
+}
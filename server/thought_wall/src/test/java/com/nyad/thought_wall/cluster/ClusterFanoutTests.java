@@ -0,0 +1,153 @@
+package com.nyad.thought_wall.cluster;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/** Forwarding, control notices and de-duplication between nodes joined by an InProcessTransport. */
+class ClusterFanoutTests {
+
+	private final List<ClusterTransport> transports = new ArrayList<>();
+
+	@AfterEach
+	void tearDown() {
+		transports.forEach(ClusterTransport::close);
+	}
+
+	@Test
+	void forwardsTopicPublicationsToTheOtherBrokers() {
+		Node one = node(1);
+		Node two = node(2);
+		Node three = node(3);
+
+		one.fanout.preSend(topicMessage("/topic/room/12", "{\"id\":1}"), one.broker);
+
+		assertThat(one.delivered).isEmpty();
+		for (Node other : List.of(two, three)) {
+			assertThat(other.delivered).singleElement().satisfies(message -> {
+				SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(message);
+				assertThat(headers.getDestination()).isEqualTo("/topic/room/12");
+				assertThat(headers.getContentType()).isEqualTo(MimeTypeUtils.APPLICATION_JSON);
+				assertThat(headers.getHeader(ClusterFanout.ORIGIN_HEADER)).isEqualTo(1);
+				assertThat(new String((byte[]) message.getPayload(), StandardCharsets.UTF_8)).isEqualTo("{\"id\":1}");
+			});
+		}
+		assertThat(one.fanout.forwardedCount()).isEqualTo(1);
+		assertThat(two.fanout.receivedCount()).isEqualTo(1);
+	}
+
+	@Test
+	void doesNotForwardWhatCameFromAnotherNodeOrIsNotATopic() {
+		Node one = node(1);
+		Node two = node(2);
+
+		// What two's broker got from one goes through two's interceptor too
+		one.fanout.preSend(topicMessage("/topic/room/12", "hello"), one.broker);
+		two.fanout.preSend(two.delivered.getFirst(), two.broker);
+		one.fanout.preSend(topicMessage("/user/queue/errors", "private"), one.broker);
+
+		assertThat(one.delivered).isEmpty();
+		assertThat(two.delivered).hasSize(1);
+		assertThat(two.fanout.forwardedCount()).isZero();
+	}
+
+	@Test
+	void controlNoticesGoToTheirHandlerOnOtherNodesOnly() {
+		Node one = node(1);
+		Node two = node(2);
+		List<String> onOne = new ArrayList<>();
+		List<String> onTwo = new ArrayList<>();
+		one.fanout.onControl("/cluster/test", payload -> onOne.add(new String(payload, StandardCharsets.US_ASCII)));
+		two.fanout.onControl("/cluster/test", payload -> onTwo.add(new String(payload, StandardCharsets.US_ASCII)));
+
+		one.fanout.broadcast("/cluster/test", "7;12".getBytes(StandardCharsets.US_ASCII));
+		one.fanout.broadcast("/cluster/nobody-listens", new byte[0]);
+
+		assertThat(onOne).isEmpty();
+		assertThat(onTwo).containsExactly("7;12");
+		assertThat(two.delivered).isEmpty(); // never handed to the broker
+		assertThatThrownBy(() -> one.fanout.broadcast("/topic/room/12", new byte[0])).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void aFailingHandlerDoesNotStopDelivery() {
+		Node one = node(1);
+		Node two = node(2);
+		List<String> received = new ArrayList<>();
+		two.fanout.onControl("/cluster/test", payload -> {
+			if (payload.length == 0) throw new IllegalStateException("bad notice");
+			received.add(new String(payload, StandardCharsets.US_ASCII));
+		});
+
+		one.fanout.broadcast("/cluster/test", new byte[0]);
+		one.fanout.broadcast("/cluster/test", "next".getBytes(StandardCharsets.US_ASCII));
+
+		assertThat(received).containsExactly("next");
+	}
+
+	@Test
+	void dropsDuplicatesAndItsOwnMessages() {
+		List<Consumer<ClusterMessage>> receiver = new ArrayList<>();
+		ClusterTransport capturing = new ClusterTransport() {
+			@Override
+			public void start(Consumer<ClusterMessage> r) {
+				receiver.add(r);
+			}
+
+			@Override
+			public void publish(ClusterMessage message) {
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+		List<String> handled = new ArrayList<>();
+		ClusterFanout fanout = new ClusterFanout(2, capturing, () -> null);
+		fanout.onControl("/cluster/test", payload -> handled.add(new String(payload, StandardCharsets.US_ASCII)));
+		fanout.start();
+
+		ClusterMessage notice = new ClusterMessage(1, 41, "/cluster/test", null, "a".getBytes(StandardCharsets.US_ASCII));
+		receiver.getFirst().accept(notice);
+		receiver.getFirst().accept(notice);
+		// Same seq from another origin is a different message
+		receiver.getFirst().accept(new ClusterMessage(3, 41, "/cluster/test", null, "b".getBytes(StandardCharsets.US_ASCII)));
+		receiver.getFirst().accept(new ClusterMessage(2, 42, "/cluster/test", null, "own".getBytes(StandardCharsets.US_ASCII)));
+
+		assertThat(handled).containsExactly("a", "b");
+		assertThat(fanout.duplicateCount()).isEqualTo(1);
+		assertThat(fanout.receivedCount()).isEqualTo(2);
+	}
+
+	private Node node(int nodeId) {
+		InProcessTransport transport = new InProcessTransport();
+		transports.add(transport);
+		List<Message<?>> delivered = new ArrayList<>();
+		MessageChannel broker = (message, timeout) -> delivered.add(message);
+		ClusterFanout fanout = new ClusterFanout(nodeId, transport, () -> broker);
+		fanout.start();
+		return new Node(fanout, broker, delivered);
+	}
+
+	private static Message<byte[]> topicMessage(String destination, String json) {
+		SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+		headers.setDestination(destination);
+		headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+		return MessageBuilder.createMessage(json.getBytes(StandardCharsets.UTF_8), headers.getMessageHeaders());
+	}
+
+	private record Node(ClusterFanout fanout, MessageChannel broker, List<Message<?>> delivered) {}
+}
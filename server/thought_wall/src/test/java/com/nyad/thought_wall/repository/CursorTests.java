@@ -0,0 +1,76 @@
+package com.nyad.thought_wall.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/** Opaque page cursors: what encode() hands out decodes to the same key, anything else is refused. */
+class CursorTests {
+
+	private static final LocalDateTime AT = LocalDateTime.of(2025, 6, 30, 23, 59, 58, 123_456_789);
+	// A realistic 53-bit id, well past the int range
+	private static final long ID = 8_123_456_789_012_345L;
+
+	@Test
+	void thoughtCursorRoundTrips() {
+		ThoughtCursor full = new ThoughtCursor(true, AT.plusDays(3), true, AT, ID);
+		ThoughtCursor noDueDate = new ThoughtCursor(false, null, false, AT.withNano(0), 1);
+
+		assertThat(ThoughtCursor.decode(full.encode())).isEqualTo(full);
+		assertThat(ThoughtCursor.decode(noDueDate.encode())).isEqualTo(noDueDate);
+	}
+
+	@Test
+	void thoughtCursorIsUrlSafe() {
+		String token = new ThoughtCursor(true, AT, true, AT, Long.MAX_VALUE).encode();
+		assertThat(token).matches("[A-Za-z0-9_-]+");
+	}
+
+	@Test
+	void thoughtCursorRefusesOtherVersionsAndGarbage() {
+		String otherVersion = base64("2|1||0|" + AT + "|" + ID);
+		String missingField = base64("1|1||0|" + AT);
+
+		assertThatThrownBy(() -> ThoughtCursor.decode(otherVersion)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> ThoughtCursor.decode(missingField)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> ThoughtCursor.decode("not a cursor!")).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> ThoughtCursor.decode(base64("1|1||0|yesterday|" + ID))).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void chatCursorRoundTrips() {
+		ChatCursor cursor = new ChatCursor(AT, ID);
+		ChatCursor wholeSecond = new ChatCursor(AT.withNano(0), 0);
+
+		assertThat(ChatCursor.decode(cursor.encode())).isEqualTo(cursor);
+		assertThat(ChatCursor.decode(wholeSecond.encode())).isEqualTo(wholeSecond);
+		assertThat(cursor.encode()).matches("[A-Za-z0-9_-]+");
+	}
+
+	@Test
+	void chatCursorRefusesGarbage() {
+		assertThatThrownBy(() -> ChatCursor.decode("%%%")).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> ChatCursor.decode(base64("no separator"))).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> ChatCursor.decode(base64(AT + "|twelve"))).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void chatCursorsOrderByTimeThenId() {
+		ChatCursor first = new ChatCursor(AT, ID + 1);
+		ChatCursor sameTimeLaterId = new ChatCursor(AT, ID + 2);
+		ChatCursor laterTimeSmallerId = new ChatCursor(AT.plusNanos(1), 1);
+
+		assertThat(first).isLessThan(sameTimeLaterId);
+		assertThat(sameTimeLaterId).isLessThan(laterTimeSmallerId);
+		assertThat(first.compareTo(new ChatCursor(AT, ID + 1))).isZero();
+	}
+
+	private static String base64(String raw) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+}
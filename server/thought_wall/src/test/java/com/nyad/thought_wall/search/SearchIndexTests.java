@@ -0,0 +1,108 @@
+package com.nyad.thought_wall.search;
+
+import com.nyad.thought_wall.cluster.ClusterFanout;
+import com.nyad.thought_wall.cluster.InProcessTransport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Index updates wait for the writer's commit and reach the other nodes' copies. */
+class SearchIndexTests {
+
+	private static final long ROOM = 12;
+	private static final long USER = 5;
+	private static final SearchIndex.Scope MEMBER = new SearchIndex.Scope(USER, Set.of(ROOM));
+
+	private final List<InProcessTransport> transports = new ArrayList<>();
+
+	@AfterEach
+	void tearDown() {
+		transports.forEach(InProcessTransport::close);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) TransactionSynchronizationManager.clear();
+	}
+
+	@Test
+	void findsWhatItIndexedWithinScope() {
+		SearchIndex index = index(null);
+		index.indexThought(1, ROOM, USER, "Buy oat milk; the café is out");
+		index.indexThought(2, null, USER, "Personal note about milk");
+		index.indexChat(3, ROOM + 1, 9L, "milk in another room");
+
+		assertThat(ids(index.search("milk", MEMBER, 0, 10))).containsExactlyInAnyOrder(1L, 2L);
+		assertThat(ids(index.search("cafe", MEMBER, 0, 10))).containsExactly(1L);
+		assertThat(ids(index.search("milk", new SearchIndex.Scope(7, Set.of(ROOM)), 0, 10))).containsExactly(1L);
+	}
+
+	@Test
+	void waitsForTheCommit() {
+		SearchIndex index = index(null);
+		TransactionSynchronizationManager.initSynchronization();
+		TransactionSynchronizationManager.setActualTransactionActive(true);
+
+		index.indexThought(1, ROOM, USER, "draft");
+		assertThat(index.size()).isZero();
+
+		TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+		assertThat(index.size()).isEqualTo(1);
+	}
+
+	@Test
+	void aRolledBackWriteIsNeverIndexed() {
+		SearchIndex index = index(null);
+		TransactionSynchronizationManager.initSynchronization();
+		TransactionSynchronizationManager.setActualTransactionActive(true);
+
+		index.indexThought(1, ROOM, USER, "draft");
+		TransactionSynchronizationManager.getSynchronizations()
+				.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+		assertThat(index.size()).isZero();
+	}
+
+	@Test
+	void otherNodesFollowUpdatesAndRemovals() {
+		SearchIndex one = index(fanout(1));
+		SearchIndex two = index(fanout(2));
+
+		one.indexThought(1, ROOM, USER, "Ship; the release; on Friday");
+		one.indexChat(2, ROOM, null, "release notes are ready");
+		one.indexThought(3, null, USER, "my own release checklist");
+		assertThat(ids(two.search("release", MEMBER, 0, 10))).containsExactlyInAnyOrder(1L, 2L, 3L);
+		assertThat(two.search("friday", MEMBER, 0, 10).hits().getFirst().doc().preview()).isEqualTo("Ship; the release; on Friday");
+
+		two.removeThought(3);
+		assertThat(ids(one.search("release", MEMBER, 0, 10))).containsExactlyInAnyOrder(1L, 2L);
+		one.removeRoom(ROOM);
+		assertThat(two.size()).isZero();
+	}
+
+	private SearchIndex index(ClusterFanout fanout) {
+		SearchIndex index = new SearchIndex();
+		ReflectionTestUtils.setField(index, "maxHits", 1000);
+		StaticListableBeanFactory beans = new StaticListableBeanFactory(fanout != null ? Map.of("clusterFanout", fanout) : Map.of());
+		ReflectionTestUtils.setField(index, "clusterFanout", beans.getBeanProvider(ClusterFanout.class));
+		index.listen();
+		return index;
+	}
+
+	private ClusterFanout fanout(int nodeId) {
+		InProcessTransport transport = new InProcessTransport();
+		transports.add(transport);
+		ClusterFanout fanout = new ClusterFanout(nodeId, transport, () -> null);
+		fanout.start();
+		return fanout;
+	}
+
+	private static List<Long> ids(SearchIndex.Result result) {
+		return result.hits().stream().map(hit -> hit.doc().id()).toList();
+	}
+}
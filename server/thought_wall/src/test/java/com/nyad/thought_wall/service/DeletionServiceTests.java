@@ -0,0 +1,165 @@
+package com.nyad.thought_wall.service;
+
+import com.nyad.thought_wall.archive.ChatArchive;
+import com.nyad.thought_wall.repository.RoomRepository;
+import com.nyad.thought_wall.repository.ThoughtRepository;
+import com.nyad.thought_wall.search.SearchIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/** The chunked statements of DeletionService against a mocked JdbcTemplate. */
+class DeletionServiceTests {
+
+	private static final long ROOM = 12;
+	private static final long USER = 5;
+
+	private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+	private final TagCountService tagCounts = mock(TagCountService.class);
+	private final BoardVersionService versions = mock(BoardVersionService.class);
+	private final RoomMembershipService membership = mock(RoomMembershipService.class);
+	private final ChatArchive chatArchive = mock(ChatArchive.class);
+	private DeletionService deletions;
+
+	@BeforeEach
+	void setUp() {
+		deletions = new DeletionService();
+		ReflectionTestUtils.setField(deletions, "jdbcTemplate", jdbc);
+		ReflectionTestUtils.setField(deletions, "transactionTemplate", new TransactionTemplate(mock(PlatformTransactionManager.class)));
+		ReflectionTestUtils.setField(deletions, "roomRepository", mock(RoomRepository.class));
+		ReflectionTestUtils.setField(deletions, "thoughtRepository", mock(ThoughtRepository.class));
+		ReflectionTestUtils.setField(deletions, "membershipService", membership);
+		ReflectionTestUtils.setField(deletions, "events", mock(RoomEventPublisher.class));
+		ReflectionTestUtils.setField(deletions, "searchIndex", mock(SearchIndex.class));
+		ReflectionTestUtils.setField(deletions, "tagCounts", tagCounts);
+		ReflectionTestUtils.setField(deletions, "versions", versions);
+		ReflectionTestUtils.setField(deletions, "resourceVersions", mock(ResourceVersionService.class));
+		ReflectionTestUtils.setField(deletions, "cacheInvalidator", mock(EntityCacheInvalidator.class));
+		ReflectionTestUtils.setField(deletions, "chatArchive", chatArchive);
+		ReflectionTestUtils.setField(deletions, "chunkSize", 3);
+		ReflectionTestUtils.setField(deletions, "threads", 1);
+		ReflectionTestUtils.setField(deletions, "queueCapacity", 10);
+		ReflectionTestUtils.setField(deletions, "jobRetention", Duration.ofMinutes(1));
+		deletions.init();
+	}
+
+	@AfterEach
+	void tearDown() {
+		deletions.shutdown();
+	}
+
+	@Test
+	void repeatsAChunkUntilOneComesBackShort() {
+		when(jdbc.update(eq("DELETE FROM thoughts WHERE room_id = ? LIMIT 3"), eq(ROOM))).thenReturn(3, 3, 1);
+		when(jdbc.update(eq("DELETE FROM chat_messages WHERE room_id = ? LIMIT 3"), eq(ROOM))).thenReturn(2);
+		when(jdbc.update(eq("DELETE FROM rooms WHERE id = ?"), eq(ROOM))).thenReturn(1);
+		when(chatArchive.deleteRoom(ROOM)).thenReturn(40L);
+
+		DeletionService.Job job = deletions.deleteRoom(ROOM, USER, false);
+
+		assertThat(job.state).isEqualTo(DeletionService.State.DONE);
+		assertThat(job.rows).containsEntry("thoughts", 7L).containsEntry("chat_messages", 2L)
+				.containsEntry("chat_archive", 40L).containsEntry("rooms", 1L)
+				.doesNotContainKey("room_members"); // nothing deleted, nothing reported
+		verify(jdbc, times(3)).update("DELETE FROM thoughts WHERE room_id = ? LIMIT 3", ROOM);
+		verify(jdbc, times(1)).update("DELETE FROM chat_messages WHERE room_id = ? LIMIT 3", ROOM);
+	}
+
+	@Test
+	void aFullLastChunkNeedsOneMoreEmptyRun() {
+		when(jdbc.update(eq("DELETE FROM thoughts WHERE room_id = ? LIMIT 3"), eq(ROOM))).thenReturn(3, 3, 0);
+
+		DeletionService.Job job = deletions.deleteRoom(ROOM, USER, false);
+
+		assertThat(job.rows).containsEntry("thoughts", 6L);
+		verify(jdbc, times(3)).update("DELETE FROM thoughts WHERE room_id = ? LIMIT 3", ROOM);
+	}
+
+	@Test
+	void membershipsGoFirstAndTheRoomRowLast() {
+		deletions.deleteRoom(ROOM, USER, false);
+
+		InOrder order = inOrder(jdbc, membership, chatArchive);
+		order.verify(jdbc).update("DELETE FROM room_members WHERE room_id = ? LIMIT 3", ROOM);
+		order.verify(membership).roomDeleted(ROOM);
+		order.verify(jdbc).update("DELETE FROM thoughts WHERE room_id = ? LIMIT 3", ROOM);
+		order.verify(jdbc).update("DELETE FROM chat_messages WHERE room_id = ? LIMIT 3", ROOM);
+		order.verify(chatArchive).deleteRoom(ROOM);
+		order.verify(jdbc).update("DELETE FROM rooms WHERE id = ?", ROOM);
+	}
+
+	@Test
+	void accountSettlesVersionsBeforeItsRoomsGo() {
+		when(jdbc.queryForList(eq("SELECT id FROM rooms WHERE owner_id = ?"), eq(Long.class), eq(USER))).thenReturn(List.of(ROOM));
+		when(jdbc.update(eq("DELETE FROM thoughts WHERE user_id = ? LIMIT 3"), eq(USER))).thenReturn(3, 2);
+		when(jdbc.update(eq("DELETE FROM users WHERE id = ?"), eq(USER))).thenReturn(1);
+
+		DeletionService.Job job = deletions.deleteAccount(USER, false);
+
+		InOrder order = inOrder(tagCounts, versions, jdbc, chatArchive);
+		order.verify(tagCounts).userDeleted(USER);
+		order.verify(versions).userDeleted(USER);
+		order.verify(jdbc).update("DELETE FROM room_members WHERE room_id = ? LIMIT 3", ROOM);
+		order.verify(jdbc).update("DELETE FROM rooms WHERE id = ?", ROOM);
+		order.verify(jdbc, times(2)).update("DELETE FROM thoughts WHERE user_id = ? LIMIT 3", USER);
+		order.verify(chatArchive).removeSender(USER);
+		order.verify(jdbc).update("DELETE FROM users WHERE id = ?", USER);
+		assertThat(job.rows).containsEntry("thoughts", 5L).containsEntry("users", 1L);
+	}
+
+	@Test
+	void aFailedSynchronousDeletionIsA500() {
+		when(jdbc.update(eq("DELETE FROM thoughts WHERE room_id = ? LIMIT 3"), eq(ROOM))).thenThrow(new IllegalStateException("lock wait timeout"));
+
+		assertThatThrownBy(() -> deletions.deleteRoom(ROOM, USER, false))
+				.isInstanceOf(ResponseStatusException.class)
+				.hasMessageContaining("Deletion failed");
+		// Not stuck as running: the next request starts over
+		doReturn(1).when(jdbc).update(eq("DELETE FROM thoughts WHERE room_id = ? LIMIT 3"), eq(ROOM));
+		assertThat(deletions.deleteRoom(ROOM, USER, false).state).isEqualTo(DeletionService.State.DONE);
+	}
+
+	@Test
+	void aRepeatedRequestJoinsTheRunningJob() throws InterruptedException {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		when(jdbc.update(eq("DELETE FROM thoughts WHERE room_id = ? LIMIT 3"), eq(ROOM))).thenAnswer(invocation -> {
+			started.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return 0;
+		});
+
+		DeletionService.Job first = deletions.deleteRoom(ROOM, USER, true);
+		assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+		// Synchronous or not, it gets the running job back instead of a second deletion
+		DeletionService.Job second = deletions.deleteRoom(ROOM, USER, false);
+		assertThat(second).isSameAs(first);
+		assertThat(second.state).isEqualTo(DeletionService.State.RUNNING);
+		release.countDown();
+
+		assertThat(deletions.job(first.id, USER)).isSameAs(first);
+		assertThat(deletions.job(first.id, USER + 1)).isNull();
+		verify(jdbc, times(1)).update("DELETE FROM thoughts WHERE room_id = ? LIMIT 3", ROOM);
+	}
+}
@@ -0,0 +1,132 @@
+package com.nyad.thought_wall.service;
+
+import com.nyad.thought_wall.service.RateLimiter.Limit;
+import com.nyad.thought_wall.service.RateLimiter.RateLimitedException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The GCRA buckets behind RateLimiter. Rates are set so slow that nothing refills during a test
+ * unless the test waits for it on purpose.
+ */
+class RateLimiterTests {
+
+	private static final double NEVER = 0.001; // one token per 1000 s
+
+	@Test
+	void allowsTheBurstThenRefuses() {
+		RateLimiter limiter = limiter(NEVER, 10, NEVER, 1000);
+		for (int i = 0; i < 10; i++) limiter.acquireChat(1, i);
+
+		assertThatThrownBy(() -> limiter.acquireChat(1, 99)).isInstanceOfSatisfying(RateLimitedException.class,
+				e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS));
+		assertThat(limiter.throttledCount(Limit.CHAT_USER)).isEqualTo(1);
+	}
+
+	@Test
+	void keepsSendersApart() {
+		RateLimiter limiter = limiter(NEVER, 2, NEVER, 1000);
+		limiter.acquireChat(1, 1);
+		limiter.acquireChat(1, 1);
+		assertThatThrownBy(() -> limiter.acquireChat(1, 1)).isInstanceOf(RateLimitedException.class);
+
+		limiter.acquireChat(2, 1);
+		limiter.acquireChat(2, 1);
+	}
+
+	@Test
+	void roomRefusalDoesNotChargeTheSender() {
+		RateLimiter limiter = limiter(NEVER, 3, NEVER, 1);
+		limiter.acquireChat(1, 7);
+		// The room is empty now; these must not take the sender's two remaining tokens
+		for (int i = 0; i < 5; i++) {
+			assertThatThrownBy(() -> limiter.acquireChat(1, 7))
+					.isInstanceOf(RateLimitedException.class)
+					.hasMessageContaining("This room is receiving too many messages");
+		}
+		assertThat(limiter.throttledCount(Limit.CHAT_ROOM)).isEqualTo(5);
+
+		limiter.acquireChat(1, 8);
+		limiter.acquireChat(1, 9);
+		assertThatThrownBy(() -> limiter.acquireChat(1, 10)).isInstanceOf(RateLimitedException.class);
+		assertThat(limiter.throttledCount(Limit.CHAT_USER)).isEqualTo(1);
+	}
+
+	@Test
+	void roomIsSharedBySenders() {
+		RateLimiter limiter = limiter(NEVER, 10, NEVER, 3);
+		limiter.acquireChat(1, 7);
+		limiter.acquireChat(2, 7);
+		limiter.acquireChat(3, 7);
+		assertThatThrownBy(() -> limiter.acquireChat(4, 7)).isInstanceOf(RateLimitedException.class);
+	}
+
+	@Test
+	void refillsAtTheRate() throws InterruptedException {
+		RateLimiter limiter = limiter(50, 1, NEVER, 1000); // a token every 20 ms
+		limiter.acquireChat(1, 1);
+		assertThatThrownBy(() -> limiter.acquireChat(1, 2)).isInstanceOf(RateLimitedException.class);
+
+		Thread.sleep(60);
+		limiter.acquireChat(1, 3);
+	}
+
+	@Test
+	void aBatchLargerThanTheBurstCostsAFullBucket() {
+		RateLimiter limiter = limiter(NEVER, 10, NEVER, 1000);
+		ReflectionTestUtils.setField(limiter, "thoughtBurst", 5);
+		limiter.init();
+
+		limiter.acquireThoughtWrites(1, 500);
+		assertThatThrownBy(() -> limiter.acquireThoughtWrites(1, 1)).isInstanceOf(RateLimitedException.class);
+		limiter.acquireThoughtWrites(2, 3);
+		limiter.acquireThoughtWrites(2, 2);
+		assertThatThrownBy(() -> limiter.acquireThoughtWrites(2, 1)).isInstanceOf(RateLimitedException.class);
+	}
+
+	@Test
+	void concurrentCallersGetExactlyTheBurst() {
+		RateLimiter limiter = limiter(NEVER, 50, NEVER, 1000);
+		AtomicInteger passed = new AtomicInteger();
+		IntStream.range(0, 1000).parallel().forEach(i -> {
+			try {
+				limiter.acquireChat(1, i % 10);
+				passed.incrementAndGet();
+			} catch (RateLimitedException e) {
+				// expected past the burst
+			}
+		});
+		assertThat(passed).hasValue(50);
+	}
+
+	@Test
+	void disabledNeverRefuses() {
+		RateLimiter limiter = limiter(NEVER, 1, NEVER, 1);
+		ReflectionTestUtils.setField(limiter, "enabled", false);
+		for (int i = 0; i < 100; i++) {
+			limiter.acquireChat(1, 1);
+			limiter.acquireThoughtWrites(1, 1);
+		}
+	}
+
+	private static RateLimiter limiter(double userRate, int userBurst, double roomRate, int roomBurst) {
+		RateLimiter limiter = new RateLimiter();
+		ReflectionTestUtils.setField(limiter, "enabled", true);
+		ReflectionTestUtils.setField(limiter, "maxKeys", 1000L);
+		ReflectionTestUtils.setField(limiter, "chatUserRate", userRate);
+		ReflectionTestUtils.setField(limiter, "chatUserBurst", userBurst);
+		ReflectionTestUtils.setField(limiter, "chatRoomRate", roomRate);
+		ReflectionTestUtils.setField(limiter, "chatRoomBurst", roomBurst);
+		ReflectionTestUtils.setField(limiter, "thoughtRate", NEVER);
+		ReflectionTestUtils.setField(limiter, "thoughtBurst", 30);
+		limiter.init();
+		return limiter;
+	}
+}
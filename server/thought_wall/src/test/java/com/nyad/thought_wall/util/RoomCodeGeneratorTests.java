@@ -0,0 +1,82 @@
+package com.nyad.thought_wall.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** The keyed Feistel permutation behind room codes and their Crockford base32 form. */
+class RoomCodeGeneratorTests {
+
+	private static final String KEY = "room-code-generator-tests-key-0123456789";
+	private static final long MASK = (1L << 54) - 1;
+	private static final String ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+
+	@Test
+	void permutationRoundTrips() {
+		RoomCodeGenerator codes = new RoomCodeGenerator(new TimeOrderedIdGenerator(0), KEY);
+		Random random = new Random(7);
+		long[] edges = {0, 1, MASK, MASK - 1, TimeOrderedIdGenerator.MAX_ID, 1L << 27, (1L << 27) - 1};
+		for (long value : edges) {
+			assertThat(codes.invert(codes.permute(value))).isEqualTo(value);
+		}
+		for (int i = 0; i < 100_000; i++) {
+			long value = random.nextLong() & MASK;
+			long permuted = codes.permute(value);
+			assertThat(permuted).isBetween(0L, MASK);
+			assertThat(codes.invert(permuted)).isEqualTo(value);
+		}
+	}
+
+	@Test
+	void consecutiveValuesGetUnrelatedCodes() {
+		RoomCodeGenerator codes = new RoomCodeGenerator(new TimeOrderedIdGenerator(0), KEY);
+		long base = TimeOrderedIdGenerator.firstIdAt(System.currentTimeMillis());
+		Set<Long> seen = new HashSet<>();
+		for (long i = 0; i < 10_000; i++) {
+			assertThat(seen.add(codes.permute(base + i))).isTrue();
+		}
+		// Neighbours differ in about half of their 54 bits, not just the last few
+		assertThat(Long.bitCount(codes.permute(base) ^ codes.permute(base + 1))).isGreaterThan(10);
+	}
+
+	@Test
+	void dependsOnTheKey() {
+		RoomCodeGenerator one = new RoomCodeGenerator(new TimeOrderedIdGenerator(0), KEY);
+		RoomCodeGenerator other = new RoomCodeGenerator(new TimeOrderedIdGenerator(0), KEY + "!");
+		long value = TimeOrderedIdGenerator.firstIdAt(System.currentTimeMillis());
+
+		assertThat(one.permute(value)).isNotEqualTo(other.permute(value));
+		assertThat(new RoomCodeGenerator(new TimeOrderedIdGenerator(0), KEY).permute(value)).isEqualTo(one.permute(value));
+	}
+
+	@Test
+	void encodesAs11CrockfordCharacters() {
+		Random random = new Random(11);
+		for (int i = 0; i < 10_000; i++) {
+			long value = random.nextLong() & MASK;
+			String code = RoomCodeGenerator.encode(value);
+			assertThat(code).hasSize(11).matches("[0-9A-HJKMNP-TV-Z]+");
+			assertThat(decode(code)).isEqualTo(value);
+		}
+		assertThat(RoomCodeGenerator.encode(0)).isEqualTo("00000000000");
+	}
+
+	@Test
+	void generatedCodesAreDistinct() {
+		RoomCodeGenerator codes = new RoomCodeGenerator(new TimeOrderedIdGenerator(9), KEY);
+		Set<String> seen = new HashSet<>();
+		for (int i = 0; i < 50_000; i++) {
+			assertThat(seen.add(codes.next())).isTrue();
+		}
+	}
+
+	private static long decode(String code) {
+		long value = 0;
+		for (char c : code.toCharArray()) value = (value << 5) | ALPHABET.indexOf(c);
+		return value;
+	}
+}
@@ -0,0 +1,81 @@
+package com.nyad.thought_wall.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/** The 53-bit layout: 41 bits of milliseconds, 6 of node, 6 of sequence. */
+class TimeOrderedIdGeneratorTests {
+
+	@Test
+	void fitsInAJavaScriptNumber() {
+		TimeOrderedIdGenerator ids = new TimeOrderedIdGenerator(63);
+		for (int i = 0; i < 10_000; i++) {
+			long id = ids.nextId();
+			assertThat(id).isPositive().isLessThanOrEqualTo(TimeOrderedIdGenerator.MAX_ID);
+			assertThat((long) (double) id).isEqualTo(id);
+		}
+		assertThat(TimeOrderedIdGenerator.MAX_ID).isEqualTo((1L << 53) - 1);
+	}
+
+	@Test
+	void carriesTheNodeIdInBits6To11() {
+		for (long node : new long[]{0, 1, 37, 63}) {
+			long id = new TimeOrderedIdGenerator(node).nextId();
+			assertThat((id >>> 6) & 63).isEqualTo(node);
+		}
+	}
+
+	@Test
+	void rejectsNodeIdsOutside0To63() {
+		assertThatThrownBy(() -> new TimeOrderedIdGenerator(-1)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new TimeOrderedIdGenerator(64)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void encodesTheCreationTime() {
+		long before = System.currentTimeMillis();
+		long id = new TimeOrderedIdGenerator(5).nextId();
+		long after = System.currentTimeMillis();
+
+		assertThat(TimeOrderedIdGenerator.timestampOf(id)).isBetween(before, after);
+		assertThat(TimeOrderedIdGenerator.firstIdAt(TimeOrderedIdGenerator.timestampOf(id))).isEqualTo(id & ~((1L << 12) - 1));
+		assertThat(TimeOrderedIdGenerator.firstIdAt(TimeOrderedIdGenerator.EPOCH)).isZero();
+	}
+
+	@Test
+	void strictlyIncreasesWithAtMost64IdsPerMillisecond() {
+		TimeOrderedIdGenerator ids = new TimeOrderedIdGenerator(3);
+		Map<Long, Integer> perMillisecond = new HashMap<>();
+		long previous = -1;
+		// Far more than 64 per millisecond, so the sequence wraps into borrowed milliseconds
+		for (int i = 0; i < 100_000; i++) {
+			long id = ids.nextId();
+			assertThat(id).isGreaterThan(previous);
+			perMillisecond.merge(TimeOrderedIdGenerator.timestampOf(id), 1, Integer::sum);
+			previous = id;
+		}
+		assertThat(perMillisecond.values()).allSatisfy(count -> assertThat(count).isLessThanOrEqualTo(64));
+	}
+
+	@Test
+	void staysUniqueAcrossThreadsAndNodes() {
+		TimeOrderedIdGenerator node1 = new TimeOrderedIdGenerator(1);
+		TimeOrderedIdGenerator node2 = new TimeOrderedIdGenerator(2);
+		Set<Long> seen = ConcurrentHashMap.newKeySet();
+		IntStream.range(0, 8).parallel().forEach(thread -> {
+			TimeOrderedIdGenerator ids = thread % 2 == 0 ? node1 : node2;
+			for (int i = 0; i < 20_000; i++) {
+				assertThat(seen.add(ids.nextId())).isTrue();
+			}
+		});
+		assertThat(seen).hasSize(8 * 20_000);
+	}
+}
@@ -0,0 +1,79 @@
+package com.nyad.thought_wall.bench;
+
+import com.nyad.thought_wall.controllers.AuthController;
+import com.nyad.thought_wall.entity.User;
+import com.nyad.thought_wall.security.JwtFilter;
+import com.nyad.thought_wall.security.JwtUtil;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request JWT verification in JwtFilter and the BCrypt-bound login endpoint.
+ * LoginStormBenchmark measures what a burst of logins does to other requests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthBenchmark {
+
+    private BenchmarkApp app;
+    private JwtFilter filter;
+    private AuthController authController;
+    private String authorization;
+    private User loginRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        app = BenchmarkApp.start();
+        Seeder.Dataset data = app.seeder().seed(10, 0, 0);
+        filter = app.bean(JwtFilter.class);
+        authController = app.bean(AuthController.class);
+        authorization = "Bearer " + app.bean(JwtUtil.class).generateToken(data.ownerId(), data.ownerEmail());
+
+        loginRequest = new User();
+        loginRequest.setEmail(data.ownerEmail());
+        loginRequest.setPassword(Seeder.PASSWORD);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        app.close();
+    }
+
+    @Benchmark
+    @StatementBudget(0)
+    public Object jwtFilter(SqlCounters sql) throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/thoughts");
+        request.addHeader("Authorization", authorization);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        sql.begin();
+        try {
+            filter.doFilter(request, response, new MockFilterChain());
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+            sql.end();
+        }
+    }
+
+    @Benchmark
+    @StatementBudget(1) // the user by email, usually answered by the query cache; what follows the hash runs on authExecutor
+    public Map<String, String> login(SqlCounters sql) {
+        sql.begin();
+        Map<String, String> result = app.inRequest(() ->
+                authController.login(loginRequest, new MockHttpServletRequest("POST", "/api/auth/login")).join());
+        sql.end();
+        return result;
+    }
+}
@@ -0,0 +1,80 @@
+package com.nyad.thought_wall.bench;
+
+import com.nyad.thought_wall.ThoughtWallApplication;
+import com.nyad.thought_wall.util.TimeOrderedIdGenerator;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Boots the real application against a fresh in-memory H2 database (MySQL mode)
+ * so benchmarks exercise the same controllers, repositories and filters as production.
+ * Its DataSource counts statements per thread for {@link SqlCounters}.
+ */
+public final class BenchmarkApp implements AutoCloseable {
+
+    private final ConfigurableApplicationContext context;
+    private final EntityManagerFactory emf;
+
+    private BenchmarkApp(ConfigurableApplicationContext context) {
+        this.context = context;
+        this.emf = context.getBean(EntityManagerFactory.class);
+    }
+
+    public static BenchmarkApp start(Map<String, Object> extraProperties) {
+        Map<String, Object> props = new HashMap<>();
+        props.put("spring.datasource.url", "jdbc:h2:mem:bench_" + UUID.randomUUID().toString().replace("-", "")
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        props.putAll(extraProperties);
+
+        ConfigurableApplicationContext ctx = new SpringApplicationBuilder(ThoughtWallApplication.class)
+                .properties(props)
+                .initializers(context -> context.getBeanFactory().addBeanPostProcessor(StatementCounter.postProcessor()))
+                .run();
+        return new BenchmarkApp(ctx);
+    }
+
+    public static BenchmarkApp start() {
+        return start(Map.of());
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public Seeder seeder() {
+        return new Seeder(bean(JdbcTemplate.class), bean(PasswordEncoder.class), bean(TimeOrderedIdGenerator.class));
+    }
+
+    /**
+     * Runs the call with an EntityManager bound to the thread, the same way
+     * OpenEntityManagerInViewInterceptor does for a real HTTP request, so lazy
+     * collections such as Room.members behave as they do in production.
+     */
+    public <T> T inRequest(Supplier<T> call) {
+        EntityManager em = emf.createEntityManager();
+        TransactionSynchronizationManager.bindResource(emf, new EntityManagerHolder(em));
+        try {
+            return call.get();
+        } finally {
+            TransactionSynchronizationManager.unbindResource(emf);
+            EntityManagerFactoryUtils.closeEntityManager(em);
+        }
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
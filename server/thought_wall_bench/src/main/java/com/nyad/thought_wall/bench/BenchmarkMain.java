@@ -0,0 +1,69 @@
+package com.nyad.thought_wall.bench;
+
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Same as org.openjdk.jmh.Main, plus a summary of SQL statements per operation
+ * computed from the {@link SqlCounters} secondary results. Exits with status 1 when a
+ * benchmark goes over its {@link StatementBudget}.
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions options = new CommandLineOptions(args);
+        Collection<RunResult> results = new Runner(options).run();
+
+        System.out.println();
+        System.out.println("SQL statements per operation:");
+        List<String> overBudget = new ArrayList<>();
+        for (RunResult run : results) {
+            Map<String, Result> secondary = run.getAggregatedResult().getSecondaryResults();
+            Result statements = secondary.get("sqlStatements");
+            Result operations = secondary.get("operations");
+            if (statements == null || operations == null || operations.getScore() == 0) continue;
+
+            String benchmark = run.getParams().getBenchmark();
+            String params = run.getParams().getParamsKeys().stream()
+                    .map(k -> k + "=" + run.getParams().getParam(k))
+                    .reduce((a, b) -> a + " " + b).orElse("");
+            double perOp = statements.getScore() / operations.getScore();
+            StatementBudget budget = budgetOf(benchmark);
+            boolean over = budget != null && perOp > budget.value();
+            System.out.printf("  %-60s %-40s %8.2f%s%n", benchmark, params, perOp,
+                    over ? "  OVER BUDGET (" + budget.value() + ")" : "");
+            if (over) overBudget.add(benchmark + " " + params);
+        }
+
+        if (!overBudget.isEmpty()) {
+            System.out.println();
+            System.out.println("Statement budget exceeded by:");
+            overBudget.forEach(b -> System.out.println("  " + b));
+            System.exit(1);
+        }
+    }
+
+    // benchmark is the fully qualified method name, e.g. com.nyad...ThoughtListingBenchmark.roomBoard
+    private static StatementBudget budgetOf(String benchmark) {
+        int dot = benchmark.lastIndexOf('.');
+        try {
+            Class<?> type = Class.forName(benchmark.substring(0, dot));
+            for (Method method : type.getMethods()) {
+                if (method.getName().equals(benchmark.substring(dot + 1))) {
+                    return method.getAnnotation(StatementBudget.class);
+                }
+            }
+        } catch (ClassNotFoundException e) {
+            // Not one of ours
+        }
+        return null;
+    }
+}
@@ -0,0 +1,68 @@
+package com.nyad.thought_wall.bench;
+
+import com.nyad.thought_wall.controllers.ChatController;
+import com.nyad.thought_wall.security.AuthenticatedUser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The STOMP send path (/app/chat/{roomId}) and the history endpoint a chat widget calls on open.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChatBenchmark {
+
+    @Param({"10", "1000"})
+    public int members;
+
+    @Param({"1000", "100000"})
+    public int history;
+
+    // true: sendMessage only enqueues and ChatWriteBehindQueue inserts in the background
+    @Param({"false", "true"})
+    public boolean writeBehind;
+
+    private BenchmarkApp app;
+    private ChatController controller;
+    private Seeder.Dataset data;
+    private Map<String, String> payload;
+    private AuthenticatedUser principal;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        app = BenchmarkApp.start(Map.of("app.chat.write-behind.enabled", writeBehind));
+        data = app.seeder().seed(members, 0, history);
+        controller = app.bean(ChatController.class);
+        payload = Map.of("content", "hello from the benchmark");
+        principal = new AuthenticatedUser(data.ownerId(), data.ownerEmail());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        app.close();
+    }
+
+    @Benchmark
+    @StatementBudget(1) // the insert; none with writeBehind
+    public Object sendMessage(SqlCounters sql) {
+        sql.begin();
+        Object result = app.inRequest(() -> controller.sendMessage(payload, data.roomId(), principal));
+        sql.end();
+        return result;
+    }
+
+    @Benchmark
+    @StatementBudget(1)
+    public Object getChatHistory(SqlCounters sql) {
+        sql.begin();
+        Object result = app.inRequest(() -> controller.getChatHistory(data.roomId(), null, 50, principal));
+        sql.end();
+        return result;
+    }
+}
@@ -0,0 +1,95 @@
+package com.nyad.thought_wall.bench;
+
+import com.nyad.thought_wall.controllers.AuthController;
+import com.nyad.thought_wall.controllers.ThoughtController;
+import com.nyad.thought_wall.entity.Thought;
+import com.nyad.thought_wall.entity.User;
+import com.nyad.thought_wall.repository.UserRepository;
+import com.nyad.thought_wall.security.AuthenticatedUser;
+import com.nyad.thought_wall.security.JwtUtil;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Board listing latency while 16 threads log in as fast as they can.
+ *
+ * hashing=pool goes through AuthController.login, so BCrypt runs on PasswordHashing's pool and
+ * logins beyond its queue are refused with 503. hashing=caller does what login did before:
+ * every request thread runs BCrypt itself. Compare the listing's percentiles between the two;
+ * the login rows show the other side of the trade.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class LoginStormBenchmark {
+
+    private static final Map<String, String> REFUSED = Map.of();
+
+    @Param({"pool", "caller"})
+    public String hashing;
+
+    private BenchmarkApp app;
+    private ThoughtController thoughtController;
+    private AuthController authController;
+    private UserRepository userRepository;
+    private PasswordEncoder passwordEncoder;
+    private JwtUtil jwtUtil;
+    private Seeder.Dataset data;
+    private AuthenticatedUser principal;
+    private User loginRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        app = BenchmarkApp.start();
+        passwordEncoder = app.bean(PasswordEncoder.class);
+        data = app.seeder().seed(10, 1000, 0);
+        thoughtController = app.bean(ThoughtController.class);
+        authController = app.bean(AuthController.class);
+        userRepository = app.bean(UserRepository.class);
+        jwtUtil = app.bean(JwtUtil.class);
+        principal = new AuthenticatedUser(data.ownerId(), data.ownerEmail());
+
+        loginRequest = new User();
+        loginRequest.setEmail(data.ownerEmail());
+        loginRequest.setPassword(Seeder.PASSWORD);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        app.close();
+    }
+
+    @Benchmark
+    @Group("storm")
+    @GroupThreads(1)
+    public Page<Thought> listing() {
+        return app.inRequest(() -> thoughtController.getAllThoughts(data.roomId(), null, 0, 20, principal,
+                new ServletWebRequest(new MockHttpServletRequest("GET", "/api/thoughts"), new MockHttpServletResponse())));
+    }
+
+    @Benchmark
+    @Group("storm")
+    @GroupThreads(16)
+    public Map<String, String> login() {
+        if ("caller".equals(hashing)) {
+            return app.inRequest(() -> {
+                User user = userRepository.findByEmail(loginRequest.getEmail()).orElseThrow();
+                if (!passwordEncoder.matches(loginRequest.getPassword(), user.getPassword())) throw new IllegalStateException();
+                return Map.of("token", jwtUtil.generateToken(user.getId(), user.getEmail()));
+            });
+        }
+        return app.inRequest(() -> authController.login(loginRequest, new MockHttpServletRequest("POST", "/api/auth/login"))
+                .exceptionally(e -> REFUSED)
+                .join());
+    }
+}
@@ -0,0 +1,146 @@
+package com.nyad.thought_wall.bench;
+
+import com.nyad.thought_wall.util.TimeOrderedIdGenerator;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk-loads benchmark data with plain JDBC batches (Hibernate is far too slow for 1M rows).
+ *
+ * Layout: one room owned by user0 with {@code members} members (user0 included). Half of the
+ * thoughts live in the room, authored round-robin by its members; the other half are user0's
+ * personal thoughts, so both board types are measured at the requested size.
+ * Ids come from the application's generator, as they would for rows the server inserts.
+ */
+public class Seeder {
+
+    public static final String PASSWORD = "password";
+    public static final String[] TAGS = {"General", "Idea", "To-Do", "Important", "Bug", "Design", "Ops", "Later"};
+
+    private static final int BATCH = 5_000;
+
+    private final JdbcTemplate jdbc;
+    private final PasswordEncoder passwordEncoder;
+    private final TimeOrderedIdGenerator ids;
+
+    public Seeder(JdbcTemplate jdbc, PasswordEncoder passwordEncoder, TimeOrderedIdGenerator ids) {
+        this.jdbc = jdbc;
+        this.passwordEncoder = passwordEncoder;
+        this.ids = ids;
+    }
+
+    public record Dataset(long roomId, long ownerId, String ownerEmail, List<String> memberEmails) {}
+
+    public Dataset seed(int members, int thoughts, int chatMessages) {
+        String hash = passwordEncoder.encode(PASSWORD);
+
+        List<Object[]> userRows = new ArrayList<>(members);
+        List<Long> userIds = new ArrayList<>(members);
+        for (int i = 0; i < members; i++) {
+            long id = ids.nextId();
+            userIds.add(id);
+            userRows.add(new Object[]{id, email(i), hash});
+        }
+        batch("INSERT INTO users (id, email, password) VALUES (?, ?, ?)", userRows);
+        long ownerId = userIds.get(0);
+
+        long roomId = ids.nextId();
+        jdbc.update("INSERT INTO rooms (id, name, code, owner_id) VALUES (?, ?, ?, ?)", roomId, "Bench Room", "BENCH1", ownerId);
+
+        List<Object[]> memberRows = new ArrayList<>(members);
+        for (Long userId : userIds) {
+            memberRows.add(new Object[]{roomId, userId});
+        }
+        batch("INSERT INTO room_members (room_id, user_id) VALUES (?, ?)", memberRows);
+
+        List<Object[]> tagRows = new ArrayList<>(TAGS.length);
+        for (String tag : TAGS) tagRows.add(new Object[]{tag});
+        batch("INSERT INTO tags (name) VALUES (?)", tagRows);
+        Map<String, Integer> tagIds = new HashMap<>();
+        jdbc.query("SELECT id, name FROM tags", rs -> { tagIds.put(rs.getString("name"), rs.getInt("id")); });
+        // room_id, user_id, tag_id -> open, completed; written to tag_counts once the thoughts are in
+        Map<List<Long>, long[]> counts = new HashMap<>();
+
+        LocalDateTime base = LocalDateTime.now().minusDays(365);
+        List<Object[]> rows = new ArrayList<>(BATCH);
+        for (int i = 0; i < thoughts; i++) {
+            boolean inRoom = i % 2 == 0;
+            long author = inRoom ? userIds.get(i % userIds.size()) : ownerId;
+            LocalDateTime created = base.plusSeconds(i * 30L);
+            // ~30% without a due date, ~20% completed, ~5% pinned: mirrors what real boards look like
+            Timestamp due = i % 10 < 3 ? null : Timestamp.valueOf(created.plusDays(i % 60));
+            int tagId = tagIds.get(TAGS[i % TAGS.length]);
+            boolean completed = i % 5 == 0;
+            List<Long> board = inRoom ? List.of(roomId, 0L, (long) tagId) : List.of(0L, ownerId, (long) tagId);
+            counts.computeIfAbsent(board, k -> new long[2])[completed ? 1 : 0]++;
+            rows.add(new Object[]{
+                    ids.nextId(),
+                    "Benchmark thought #" + i + " with enough **markdown** text to look like a real card",
+                    tagId,
+                    i % 20 == 0,
+                    completed,
+                    Timestamp.valueOf(created),
+                    due,
+                    author,
+                    inRoom ? roomId : null,
+                    inRoom && i % 7 == 0 ? userIds.get((i / 7) % userIds.size()) : null
+            });
+            if (rows.size() == BATCH) {
+                batch(THOUGHT_INSERT, rows);
+                rows.clear();
+            }
+        }
+        batch(THOUGHT_INSERT, rows);
+        rows.clear();
+
+        for (Map.Entry<List<Long>, long[]> e : counts.entrySet()) {
+            List<Long> k = e.getKey();
+            rows.add(new Object[]{k.get(0), k.get(1), k.get(2), e.getValue()[0], e.getValue()[1]});
+        }
+        batch("INSERT INTO tag_counts (room_id, user_id, tag_id, open_count, completed_count) VALUES (?, ?, ?, ?, ?)", rows);
+        rows.clear();
+
+        for (int i = 0; i < chatMessages; i++) {
+            rows.add(new Object[]{
+                    ids.nextId(),
+                    "chat message " + i,
+                    Timestamp.valueOf(base.plusSeconds(i * 10L)),
+                    userIds.get(i % userIds.size()),
+                    roomId
+            });
+            if (rows.size() == BATCH) {
+                batch(CHAT_INSERT, rows);
+                rows.clear();
+            }
+        }
+        batch(CHAT_INSERT, rows);
+
+        List<String> emails = new ArrayList<>(members);
+        for (int i = 0; i < members; i++) emails.add(email(i));
+        return new Dataset(roomId, ownerId, email(0), emails);
+    }
+
+    private static final String THOUGHT_INSERT =
+            "INSERT INTO thoughts (id, content, tag_id, pinned, completed, created_at, due_date, user_id, room_id, assigned_to, change_version) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+
+    private static final String CHAT_INSERT =
+            "INSERT INTO chat_messages (id, content, \"timestamp\", sender_id, room_id) VALUES (?, ?, ?, ?, ?)";
+
+    private void batch(String sql, List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbc.batchUpdate(sql, rows);
+        }
+    }
+
+    public static String email(int i) {
+        return "user" + i + "@bench.local";
+    }
+}
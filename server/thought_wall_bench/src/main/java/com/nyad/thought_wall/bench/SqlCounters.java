@@ -0,0 +1,37 @@
+package com.nyad.thought_wall.bench;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Secondary JMH results: how many SQL statements the measured operations issued, Hibernate's
+ * and JdbcTemplate's alike (see {@link StatementCounter}).
+ * BenchmarkMain divides sqlStatements by operations to print statements/op.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.EVENTS)
+public class SqlCounters {
+
+    public long sqlStatements;
+    public long operations;
+
+    private long mark;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        sqlStatements = 0;
+        operations = 0;
+    }
+
+    void begin() {
+        mark = StatementCounter.current();
+    }
+
+    void end() {
+        sqlStatements += StatementCounter.current() - mark;
+        operations++;
+    }
+}
@@ -0,0 +1,17 @@
+package com.nyad.thought_wall.bench;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Most SQL statements (counted by {@link StatementCounter}) one operation of the benchmark
+ * may issue. BenchmarkMain fails the run when the measured statements/op go over it, so an
+ * association that starts loading lazily per row shows up as a failure, not just a slower number.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface StatementBudget {
+    int value();
+}
@@ -0,0 +1,136 @@
+package com.nyad.thought_wall.bench;
+
+import com.nyad.thought_wall.controllers.ThoughtController;
+import com.nyad.thought_wall.entity.Thought;
+import com.nyad.thought_wall.security.AuthenticatedUser;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET /api/thoughts (offset) and /api/thoughts/scroll (keyset) for room and personal
+ * boards, first page and a deep page, with and without the tag filter, plus the 304
+ * answer to a revalidation with a current ETag.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ThoughtListingBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int thoughts;
+
+    @Param({"10", "1000"})
+    public int members;
+
+    @Param({"false", "true"})
+    public boolean tagged;
+
+    @Param({"0", "40"})
+    public int page;
+
+    // Off measures what RepositoryMetrics (a timer and a statement summary per call) adds
+    @Param({"true", "false"})
+    public boolean repositoryMetrics;
+
+    private BenchmarkApp app;
+    private ThoughtController controller;
+    private Seeder.Dataset data;
+    private AuthenticatedUser principal;
+    private String tag;
+    private String roomCursor;
+    private String personalCursor;
+    private String roomEtag;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        app = BenchmarkApp.start(Map.of("app.metrics.repository.enabled", repositoryMetrics));
+        data = app.seeder().seed(members, thoughts, 0);
+        controller = app.bean(ThoughtController.class);
+        principal = new AuthenticatedUser(data.ownerId(), data.ownerEmail());
+        tag = tagged ? "Idea" : null;
+
+        // Walk the keyset pages once so the cursor benchmarks start at the same depth as the offset ones
+        for (int i = 0; i < page; i++) {
+            String rc = roomCursor, pc = personalCursor;
+            roomCursor = app.inRequest(() -> controller.scrollThoughts(data.roomId(), tag, rc, 20, false, principal)).nextCursor;
+            personalCursor = app.inRequest(() -> controller.scrollThoughts(null, tag, pc, 20, false, principal)).nextCursor;
+        }
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        app.inRequest(() -> controller.getAllThoughts(data.roomId(), tag, page, 20, principal,
+                new ServletWebRequest(new MockHttpServletRequest("GET", "/api/thoughts"), response)));
+        roomEtag = response.getHeader(HttpHeaders.ETAG);
+    }
+
+    // A request without If-None-Match, so the page is always built
+    private static ServletWebRequest request() {
+        return new ServletWebRequest(new MockHttpServletRequest("GET", "/api/thoughts"), new MockHttpServletResponse());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        app.close();
+    }
+
+    @Benchmark
+    @StatementBudget(3) // board version (ETag) + page + count
+    public Page<Thought> roomBoard(SqlCounters sql) {
+        sql.begin();
+        Page<Thought> result = app.inRequest(() ->
+                controller.getAllThoughts(data.roomId(), tag, page, 20, principal, request()));
+        sql.end();
+        return result;
+    }
+
+    @Benchmark
+    @StatementBudget(3)
+    public Page<Thought> personalBoard(SqlCounters sql) {
+        sql.begin();
+        Page<Thought> result = app.inRequest(() ->
+                controller.getAllThoughts(null, tag, page, 20, principal, request()));
+        sql.end();
+        return result;
+    }
+
+    @Benchmark
+    @StatementBudget(1) // only the board version
+    public Page<Thought> roomBoardNotModified(SqlCounters sql) {
+        MockHttpServletRequest revalidation = new MockHttpServletRequest("GET", "/api/thoughts");
+        revalidation.addHeader(HttpHeaders.IF_NONE_MATCH, roomEtag);
+        sql.begin();
+        Page<Thought> result = app.inRequest(() -> controller.getAllThoughts(data.roomId(), tag, page, 20, principal,
+                new ServletWebRequest(revalidation, new MockHttpServletResponse())));
+        sql.end();
+        return result;
+    }
+
+    @Benchmark
+    @StatementBudget(1)
+    public Object roomBoardCursor(SqlCounters sql) {
+        sql.begin();
+        Object result = app.inRequest(() ->
+                controller.scrollThoughts(data.roomId(), tag, roomCursor, 20, false, principal));
+        sql.end();
+        return result;
+    }
+
+    @Benchmark
+    @StatementBudget(1)
+    public Object personalBoardCursor(SqlCounters sql) {
+        sql.begin();
+        Object result = app.inRequest(() ->
+                controller.scrollThoughts(null, tag, personalCursor, 20, false, principal));
+        sql.end();
+        return result;
+    }
+}